@@ -0,0 +1,22 @@
+package in.workaounds.avrs;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+/**
+ * Generates {@code writeTo(List, DataOutput)} and {@code readFrom(DataInput)}, which encode a list
+ * of values in a compact binary form for caching mapped results: integers as zigzag varints,
+ * strings and byte arrays prefixed with their length, and one bit per {@code @Nullable} property
+ * instead of a marker byte. The encoding starts with a hash of the property names and types, so
+ * data written by a different version of the value type is rejected instead of misread.
+ *
+ * <p>Every property must be encodable; streams, suppliers, buffers, {@link TypeConverter} and
+ * {@code @ColumnAdapter} properties and {@link Children} are not.
+ */
+@Retention(SOURCE)
+@Target(TYPE)
+public @interface BinaryCodec {
+}
@@ -0,0 +1,156 @@
+package in.workaounds.avrs;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads and writes lists of {@link BinaryCodec} values, and the values they contain that
+ * {@link DataOutput} has no compact form for.
+ */
+public final class BinaryValues {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    /**
+     * Sizes read from the input are only trusted up to this many elements or bytes ahead of the
+     * data, so a corrupt size fails with an {@link java.io.EOFException} instead of allocating it.
+     */
+    private static final int MAX_PREALLOCATED = 1024;
+
+    private BinaryValues() {
+        throw new AssertionError("No instances.");
+    }
+
+    /** Writes the codec's schema hash and the number of values, followed by the values. */
+    public static <T> void writeList(List<? extends T> values, DataOutput out, ValueCodec<T> codec)
+            throws IOException {
+        out.writeLong(codec.schemaHash());
+        writeVarInt(out, values.size());
+        for (T value : values) {
+            codec.write(value, out);
+        }
+    }
+
+    /** Reads values written by {@link #writeList} into an unmodifiable list. */
+    public static <T> List<T> readList(DataInput in, ValueCodec<T> codec) throws IOException {
+        checkSchemaHash(in, codec.schemaHash());
+        int size = readVarInt(in);
+        if (size < 0) {
+            throw new IOException("Negative size " + size);
+        }
+        List<T> values = new ArrayList<>(Math.min(size, MAX_PREALLOCATED));
+        for (int i = 0; i < size; i++) {
+            values.add(codec.read(in));
+        }
+        return Collections.unmodifiableList(values);
+    }
+
+    /**
+     * Reads the schema hash written at the start of the encoding and throws if it isn't the one
+     * the reading value type was generated with.
+     */
+    public static void checkSchemaHash(DataInput in, long expected) throws IOException {
+        long actual = in.readLong();
+        if (actual != expected) {
+            throw new IOException(String.format(
+                    "Schema hash %016x doesn't match %016x, the data was written by a different "
+                            + "version of the value type", actual, expected));
+        }
+    }
+
+    /** Writes the value zigzag encoded, 7 bits per byte, so that small magnitudes stay short. */
+    public static void writeVarLong(DataOutput out, long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7fL) != 0) {
+            out.writeByte((int) ((zigzag & 0x7f) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    /** @throws IOException if the varint is longer than 10 bytes or overflows 64 bits */
+    public static long readVarLong(DataInput in) throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            if (shift == 63 && (b & 0x7e) != 0) {
+                // Only the lowest bit of the tenth byte is left in a long.
+                throw new IOException("Varint overflows 64 bits");
+            }
+            zigzag |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    public static void writeVarInt(DataOutput out, int value) throws IOException {
+        writeVarLong(out, value);
+    }
+
+    public static int readVarInt(DataInput in) throws IOException {
+        long value = readVarLong(in);
+        if (value != (int) value) {
+            throw new IOException("Varint " + value + " doesn't fit in an int");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Writes the length as a varint followed by the UTF-8 bytes. Unlike
+     * {@link DataOutput#writeUTF(String)} strings aren't limited to 64K bytes.
+     */
+    public static void writeString(DataOutput out, String value) throws IOException {
+        writeBytes(out, value.getBytes(UTF_8));
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        return new String(readBytes(in), UTF_8);
+    }
+
+    public static void writeBytes(DataOutput out, byte[] value) throws IOException {
+        writeVarInt(out, value.length);
+        out.write(value);
+    }
+
+    public static byte[] readBytes(DataInput in) throws IOException {
+        int length = readVarInt(in);
+        if (length < 0) {
+            throw new IOException("Negative length " + length);
+        }
+        byte[] value = new byte[Math.min(length, MAX_PREALLOCATED)];
+        int read = 0;
+        while (true) {
+            in.readFully(value, read, value.length - read);
+            read = value.length;
+            if (read == length) {
+                return value;
+            }
+            value = Arrays.copyOf(value, (int) Math.min(length, 2L * read));
+        }
+    }
+
+    /** Writes the milliseconds and the nanoseconds, which {@link Timestamp#getTime()} truncates. */
+    public static void writeTimestamp(DataOutput out, Timestamp value) throws IOException {
+        writeVarLong(out, value.getTime());
+        writeVarInt(out, value.getNanos());
+    }
+
+    /** @throws IOException if the nanoseconds aren't between 0 and 999,999,999 */
+    public static Timestamp readTimestamp(DataInput in) throws IOException {
+        Timestamp value = new Timestamp(readVarLong(in));
+        int nanos = readVarInt(in);
+        if (nanos < 0 || nanos > 999999999) {
+            throw new IOException("Malformed timestamp nanoseconds " + nanos);
+        }
+        value.setNanos(nanos);
+        return value;
+    }
+}
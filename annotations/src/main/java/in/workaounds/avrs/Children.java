@@ -0,0 +1,30 @@
+package in.workaounds.avrs;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+/**
+ * Marks a {@code List<Child>} property that is filled from the rows of a join, where
+ * {@code Child} is a value type in the same package that is read from {@code ResultSet} too.
+ *
+ * <p>{@code createGroupedListFromResultSet} walks a result set ordered by the {@link Id} property,
+ * reads each parent once and collects a child from every one of its rows into an unmodifiable
+ * list. Only one group is held in memory besides the values already returned. The other
+ * {@code createFromResultSet} methods leave the list empty.
+ *
+ * <p>Parent and child columns are found by name in the same row, so the child's columns must be
+ * named differently from the parent's, for example with {@link ColumnName}. A clash is a compile
+ * error.
+ */
+@Retention(SOURCE)
+@Target(METHOD)
+public @interface Children {
+    /**
+     * A child column that is {@code NULL} on rows without a child, as produced by a
+     * {@code LEFT JOIN}. Such rows add nothing to the list. When empty every row has a child.
+     */
+    String key() default "";
+}
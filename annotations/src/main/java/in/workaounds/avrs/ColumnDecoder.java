@@ -0,0 +1,13 @@
+package in.workaounds.avrs;
+
+/**
+ * Decodes the raw bytes captured for a {@link Lazy} property. One instance is shared by all rows
+ * of a value type and may be called from any thread that reads the property, so implementations
+ * must be stateless or thread safe and need a public no-arg constructor.
+ */
+public interface ColumnDecoder<T> {
+    /**
+     * @param bytes the column value as returned by {@code ResultSet.getBytes}, never {@code null}
+     */
+    T decode(byte[] bytes);
+}
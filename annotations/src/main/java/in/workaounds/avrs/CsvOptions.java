@@ -0,0 +1,81 @@
+package in.workaounds.avrs;
+
+/**
+ * Formatting of the generated {@code writeCsv} methods. Values containing the delimiter, a quote
+ * or a line break are quoted as in RFC 4180.
+ */
+public final class CsvOptions {
+    /** Comma separated, with a header row and CRLF line endings. */
+    public static final CsvOptions CSV = new CsvOptions(',', true, "\r\n", "");
+    /** Tab separated, with a header row and LF line endings. */
+    public static final CsvOptions TSV = new CsvOptions('\t', true, "\n", "");
+
+    private final char delimiter;
+    private final boolean header;
+    private final String lineSeparator;
+    private final String nullValue;
+
+    private CsvOptions(char delimiter, boolean header, String lineSeparator, String nullValue) {
+        if (delimiter == '"' || delimiter == '\r' || delimiter == '\n') {
+            throw new IllegalArgumentException(
+                    "A quote or line break can't be the delimiter: " + delimiter);
+        }
+        for (int i = 0; i < nullValue.length(); i++) {
+            char c = nullValue.charAt(i);
+            if (c == delimiter || c == '"' || c == '\r' || c == '\n') {
+                throw new IllegalArgumentException(
+                        "nullValue would need quoting, which makes it a string: " + nullValue);
+            }
+        }
+        this.delimiter = delimiter;
+        this.header = header;
+        this.lineSeparator = lineSeparator;
+        this.nullValue = nullValue;
+    }
+
+    public char delimiter() {
+        return delimiter;
+    }
+
+    /** Whether the column names are written as the first row. */
+    public boolean header() {
+        return header;
+    }
+
+    public String lineSeparator() {
+        return lineSeparator;
+    }
+
+    /**
+     * Written for {@code NULL} values; strings equal to it, such as the empty string, are quoted
+     * to tell them apart. It is written as is, so it can't contain the delimiter, a quote or a
+     * line break.
+     */
+    public String nullValue() {
+        return nullValue;
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code delimiter} is a quote or a line break, or the
+     *     null value contains it
+     */
+    public CsvOptions withDelimiter(char delimiter) {
+        return new CsvOptions(delimiter, header, lineSeparator, nullValue);
+    }
+
+    public CsvOptions withHeader(boolean header) {
+        return new CsvOptions(delimiter, header, lineSeparator, nullValue);
+    }
+
+    public CsvOptions withLineSeparator(String lineSeparator) {
+        return new CsvOptions(delimiter, header, lineSeparator, nullValue);
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code nullValue} contains the delimiter, a quote or a
+     *     line break
+     */
+    public CsvOptions withNullValue(String nullValue) {
+        return new CsvOptions(delimiter, header, lineSeparator, nullValue);
+    }
+}
@@ -0,0 +1,188 @@
+package in.workaounds.avrs;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.temporal.TemporalAccessor;
+import java.util.Date;
+
+/**
+ * A buffered UTF-8 CSV writer for the generated {@code writeCsv} methods. Numbers are written
+ * digit by digit and strings are only quoted when they need to be, so writing a row doesn't
+ * allocate apart from the values the driver returns.
+ */
+public final class CsvOutput extends Utf8Output {
+    private static final byte[] TRUE = { 't', 'r', 'u', 'e' };
+    private static final byte[] FALSE = { 'f', 'a', 'l', 's', 'e' };
+
+    private final char delimiter;
+    private final byte[] lineSeparator;
+    private final String nullString;
+    private final byte[] nullValue;
+    private boolean firstInRow = true;
+
+    public CsvOutput(OutputStream out, CsvOptions options) {
+        super(out);
+        delimiter = options.delimiter();
+        lineSeparator = options.lineSeparator().getBytes(UTF_8);
+        nullString = options.nullValue();
+        nullValue = nullString.getBytes(UTF_8);
+    }
+
+    /** Writes the CSV as characters, for callers that already hold a {@link Writer}. */
+    public CsvOutput(Writer out, CsvOptions options) {
+        this(new Utf8Writer(out), options);
+    }
+
+    /** Writes a row of names. */
+    public void header(String[] names) throws IOException {
+        for (String name : names) {
+            value(name);
+        }
+        endRow();
+    }
+
+    public void endRow() throws IOException {
+        writeBytes(lineSeparator);
+        firstInRow = true;
+    }
+
+    public void nullValue() throws IOException {
+        separate();
+        writeBytes(nullValue);
+    }
+
+    public void value(boolean value) throws IOException {
+        separate();
+        writeBytes(value ? TRUE : FALSE);
+    }
+
+    public void value(long value) throws IOException {
+        separate();
+        writeLong(value);
+    }
+
+    public void value(double value) throws IOException {
+        separate();
+        writeDouble(value);
+    }
+
+    public void value(String value) throws IOException {
+        if (value == null) {
+            nullValue();
+            return;
+        }
+        separate();
+        // Strings equal to the null value are quoted too, so that they read back as strings.
+        boolean quoted = value.isEmpty() || value.equals(nullString);
+        for (int i = 0; i < value.length() && !quoted; i++) {
+            char c = value.charAt(i);
+            quoted = c == delimiter || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quoted) {
+            for (int i = 0; i < value.length(); i++) {
+                i = writeCodePoint(value, i);
+            }
+            return;
+        }
+        require(1);
+        write('"');
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '"') {
+                require(1);
+                write('"');
+            }
+            i = writeCodePoint(value, i);
+        }
+        require(1);
+        write('"');
+    }
+
+    /** Writes the bytes as base64. */
+    public void value(byte[] value) throws IOException {
+        if (value == null) {
+            nullValue();
+            return;
+        }
+        separate();
+        writeBase64(value);
+    }
+
+    /** Writes the constant's name. */
+    public void value(Enum<?> value) throws IOException {
+        value(value != null ? value.name() : null);
+    }
+
+    /** Writes the number in plain notation, which keeps every digit and never uses an exponent. */
+    public void value(BigDecimal value) throws IOException {
+        if (value == null) {
+            nullValue();
+            return;
+        }
+        separate();
+        writeAscii(value.toPlainString());
+    }
+
+    /**
+     * Writes an ISO-8601 string: the local date and time held by a {@link java.sql.Timestamp},
+     * {@link java.sql.Date} or {@link java.sql.Time}, and other dates as an instant in UTC.
+     */
+    public void value(Date value) throws IOException {
+        value(value != null ? isoString(value) : null);
+    }
+
+    /** Writes an ISO-8601 string, with seconds even where they are zero. */
+    public void value(TemporalAccessor value) throws IOException {
+        value(value != null ? isoString(value) : null);
+    }
+
+    /** Writes {@link Object#toString()}, for UUIDs and other values. */
+    public void value(Object value) throws IOException {
+        if (value instanceof BigDecimal) {
+            value((BigDecimal) value);
+        } else if (value instanceof Date) {
+            value((Date) value);
+        } else if (value instanceof TemporalAccessor) {
+            value((TemporalAccessor) value);
+        } else {
+            value(value != null ? value.toString() : null);
+        }
+    }
+
+    /**
+     * Writes a value read with a primitive {@code ResultSet} getter, or the null value if
+     * {@code wasNull}.
+     */
+    public void nullableValue(long value, boolean wasNull) throws IOException {
+        if (wasNull) {
+            nullValue();
+        } else {
+            value(value);
+        }
+    }
+
+    public void nullableValue(double value, boolean wasNull) throws IOException {
+        if (wasNull) {
+            nullValue();
+        } else {
+            value(value);
+        }
+    }
+
+    public void nullableValue(boolean value, boolean wasNull) throws IOException {
+        if (wasNull) {
+            nullValue();
+        } else {
+            value(value);
+        }
+    }
+
+    private void separate() throws IOException {
+        if (firstInRow) {
+            firstInRow = false;
+        } else {
+            writeChar(delimiter);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package in.workaounds.avrs;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+/**
+ * Reads a property whose type is another {@code @AutoValue} class in the same package from the
+ * columns of the same row, named by its properties with {@link #prefix()} in front. The nested
+ * reads are inlined into the generated methods and share their column lookup, so no
+ * {@link ColumnAdapter} is needed.
+ */
+@Retention(SOURCE)
+@Target(METHOD)
+public @interface Embedded {
+    /** Prepended to the column name of every property of the embedded type. */
+    String prefix() default "";
+}
@@ -0,0 +1,18 @@
+package in.workaounds.avrs;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.RetentionPolicy.CLASS;
+
+/**
+ * Assigns the integer stored in the database to an enum constant. When the constants of an enum
+ * property's type carry this annotation, the column is read with {@code getInt} and decoded with a
+ * generated {@code switch} instead of by name.
+ */
+@Retention(CLASS)
+@Target(FIELD)
+public @interface EnumCode {
+    int value();
+}
@@ -0,0 +1,20 @@
+package in.workaounds.avrs;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.CLASS;
+
+/**
+ * Names the constant an enum property takes when the column holds a value that doesn't match any
+ * constant, or is {@code NULL}. Without it an unknown value, or {@code NULL} for a property that
+ * isn't {@code @Nullable}, fails the read with a {@link java.sql.SQLException}. A
+ * {@code @Nullable} property still reads {@code NULL} as {@code null}.
+ */
+@Retention(CLASS)
+@Target(METHOD)
+public @interface EnumFallback {
+    /** The name of the fallback constant. */
+    String value();
+}
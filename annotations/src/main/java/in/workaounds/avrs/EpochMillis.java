@@ -0,0 +1,16 @@
+package in.workaounds.avrs;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+/**
+ * Reads a {@code long} property from a date/time or numeric column as milliseconds since the
+ * epoch, see {@link PrimitiveColumns#getEpochMillis(java.sql.ResultSet, int)}.
+ */
+@Retention(SOURCE)
+@Target(METHOD)
+public @interface EpochMillis {
+}
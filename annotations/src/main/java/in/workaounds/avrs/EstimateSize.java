@@ -0,0 +1,18 @@
+package in.workaounds.avrs;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+/**
+ * Generates {@code estimateRetainedSize(List)}, which estimates the heap a mapped list retains
+ * from the value's fields and the lengths of its strings and arrays, for weighing entries of a
+ * {@link QueryCache}. Values shared between rows, such as enum constants and interned strings, are
+ * counted once per row, and the sizes of types the estimate doesn't know are a guess.
+ */
+@Retention(SOURCE)
+@Target(TYPE)
+public @interface EstimateSize {
+}
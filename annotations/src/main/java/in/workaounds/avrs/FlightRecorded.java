@@ -0,0 +1,25 @@
+package in.workaounds.avrs;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+/**
+ * Makes the generated methods that read every row of a result set emit a
+ * {@link MappingBatchEvent} per call: the {@code createListFromResultSet} methods, with and
+ * without an {@link IdentityMap}, {@code createGroupedListFromResultSet} and, for types that
+ * generate them, {@code queryEach}, {@code prefetchFromResultSet} and {@code forEach}. The event
+ * has the value type, the method, the row count, the bytes read into {@code byte[]} and
+ * {@code ByteBuffer} properties, the time spent in {@code ResultSet.next()} and the time spent in
+ * column adapters. {@code forEach} leaves reading the columns to its consumer, so its events have
+ * neither bytes nor adapter time.
+ *
+ * <p>The value type must be compiled against, and run on, a JDK that ships {@code jdk.jfr}: 11 or
+ * later, or 8u272 or later.
+ */
+@Retention(SOURCE)
+@Target(TYPE)
+public @interface FlightRecorded {
+}
@@ -0,0 +1,70 @@
+package in.workaounds.avrs;
+
+/**
+ * A count-min sketch of 4-bit counters that estimates how often a key was requested recently,
+ * used by {@link QueryCache} to decide which of two entries is worth keeping. Every key is
+ * counted in four counters and its frequency is the smallest of them. Once the sketch has counted
+ * ten times as many requests as it has rows, all counters are halved so that old popularity fades.
+ */
+final class FrequencySketch {
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final int COUNTER_MAX = 15;
+
+    private long[] table = new long[0];
+    private int counterMask;
+    private int sampleSize;
+    private int size;
+
+    /** Grows the sketch to track about {@code capacity} keys, forgetting what it counted. */
+    void ensureCapacity(long capacity) {
+        int rows = (int) Math.min(Math.max(capacity, 16), MAXIMUM_CAPACITY);
+        if (table.length >= rows) {
+            return;
+        }
+        table = new long[Integer.highestOneBit(rows - 1) << 1];
+        counterMask = (table.length << 4) - 1;
+        sampleSize = 10 * table.length;
+        size = 0;
+    }
+
+    int frequency(int hash) {
+        int frequency = COUNTER_MAX;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int index = indexOf(hash, i);
+            int count = (int) ((table[index >>> 4] >>> ((index & 15) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    void increment(int hash) {
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int index = indexOf(hash, i);
+            int offset = (index & 15) << 2;
+            if (((table[index >>> 4] >>> offset) & 0xfL) != COUNTER_MAX) {
+                table[index >>> 4] += 1L << offset;
+                added = true;
+            }
+        }
+        if (added && ++size == sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size /= 2;
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & counterMask;
+    }
+}
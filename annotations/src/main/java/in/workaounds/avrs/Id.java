@@ -0,0 +1,18 @@
+package in.workaounds.avrs;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+/**
+ * Marks the property that identifies the entity a row belongs to. For types with a
+ * {@link Children} property, {@code createGroupedListFromResultSet} starts a new value whenever
+ * it changes. The property must be read from the result set and can't be {@code @Nullable}.
+ * Ids are compared with {@code equals}, so arrays and streams are rejected.
+ */
+@Retention(SOURCE)
+@Target(METHOD)
+public @interface Id {
+}
@@ -0,0 +1,102 @@
+package in.workaounds.avrs;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps the {@link Id} of rows already read to their values, so that the generated
+ * {@code createFromResultSet(ResultSet, int[], IdentityMap)} returns the same instance for every
+ * row of an entity instead of decoding it again. Integral ids are kept in an open-addressing table
+ * of {@code long} keys, without boxing; other ids in a {@link HashMap}.
+ *
+ * <p>The map holds its values strongly, so its lifetime bounds how long they are kept. It isn't
+ * safe for concurrent use.
+ */
+public final class IdentityMap<T> {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final long GOLDEN_RATIO = 0x9e3779b97f4a7c15L;
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private Object[] values = new Object[INITIAL_CAPACITY];
+    private int longSize;
+    private Map<Object, T> objects;
+
+    @SuppressWarnings("unchecked")
+    public T get(long id) {
+        int mask = keys.length - 1;
+        for (int i = indexOf(id, mask); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == id) {
+                return (T) values[i];
+            }
+        }
+        return null;
+    }
+
+    public void put(long id, T value) {
+        if (value == null) {
+            throw new NullPointerException("value == null");
+        }
+        int mask = keys.length - 1;
+        int i = indexOf(id, mask);
+        while (values[i] != null) {
+            if (keys[i] == id) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = id;
+        values[i] = value;
+        if (++longSize > keys.length * 3 / 4) {
+            resize();
+        }
+    }
+
+    public T get(Object id) {
+        return objects != null ? objects.get(id) : null;
+    }
+
+    public void put(Object id, T value) {
+        if (value == null) {
+            throw new NullPointerException("value == null");
+        }
+        if (objects == null) {
+            objects = new HashMap<>();
+        }
+        objects.put(id, value);
+    }
+
+    public int size() {
+        return longSize + (objects != null ? objects.size() : 0);
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        longSize = 0;
+        objects = null;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new Object[oldValues.length * 2];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldValues[j] != null) {
+                int i = indexOf(oldKeys[j], mask);
+                while (values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    private static int indexOf(long id, int mask) {
+        long hash = id * GOLDEN_RATIO;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,21 @@
+package in.workaounds.avrs;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+/**
+ * Marks a property whose column may be missing from the result set, so one value type can be
+ * used for narrow projections. An absent column leaves the property {@code null}, or {@code 0} /
+ * {@code false} for primitives, instead of failing in {@code findColumn}. The property must be
+ * primitive or {@code @Nullable}.
+ *
+ * <p>{@code createListFromResultSet} looks the column up once per result set, the single row
+ * {@code createFromResultSet} once per call.
+ */
+@Retention(SOURCE)
+@Target(METHOD)
+public @interface IfPresent {
+}
@@ -0,0 +1,19 @@
+package in.workaounds.avrs;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+/**
+ * Generates instrumentation hooks in {@code createFromResultSet} that report to the
+ * {@link MappingListener} registered in {@link MappingListeners}.
+ *
+ * <p>The hooks are guarded by {@link MappingListeners#ENABLED}, a static final flag, so the JIT
+ * removes them entirely unless the {@code avrs.instrumentation} system property is set.
+ */
+@Retention(SOURCE)
+@Target(TYPE)
+public @interface Instrumented {
+}
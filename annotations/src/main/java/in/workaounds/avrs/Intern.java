@@ -0,0 +1,19 @@
+package in.workaounds.avrs;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+/**
+ * Canonicalizes the values of a low-cardinality {@code String} column (a status, a country code,
+ * a currency) through a {@link StringInterner}, so equal values read from different rows share one
+ * instance. Every annotated property gets its own interner.
+ */
+@Retention(SOURCE)
+@Target(METHOD)
+public @interface Intern {
+    /** Number of slots in the interner, rounded up to a power of two. */
+    int value() default 256;
+}
@@ -0,0 +1,213 @@
+package in.workaounds.avrs;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.temporal.TemporalAccessor;
+import java.util.Date;
+
+/**
+ * A buffered UTF-8 JSON writer for the generated {@code writeJson} methods. Field names are
+ * encoded once with {@link #fieldName(String, boolean)} and numbers are written digit by digit,
+ * so writing a row doesn't allocate apart from the values the driver returns.
+ *
+ * <p>The writer doesn't validate the structure it writes; that is left to the generated code.
+ */
+public final class JsonOutput extends Utf8Output {
+    private static final byte[] NULL = { 'n', 'u', 'l', 'l' };
+    private static final byte[] TRUE = { 't', 'r', 'u', 'e' };
+    private static final byte[] FALSE = { 'f', 'a', 'l', 's', 'e' };
+    private static final byte[] HEX = {
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f' };
+
+    public JsonOutput(OutputStream out) {
+        super(out);
+    }
+
+    /** Writes the JSON as characters, for callers that already hold a {@link Writer}. */
+    public JsonOutput(Writer out) {
+        super(new Utf8Writer(out));
+    }
+
+    /**
+     * Returns {@code "name":} encoded as UTF-8, preceded by a comma unless it is the first field
+     * of an object.
+     */
+    public static byte[] fieldName(String name, boolean first) {
+        JsonOutput encoder = new JsonOutput((OutputStream) null);
+        if (!first) {
+            encoder.write(',');
+        }
+        try {
+            encoder.value(name);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        encoder.write(':');
+        byte[] encoded = new byte[encoder.position];
+        System.arraycopy(encoder.buffer, 0, encoded, 0, encoder.position);
+        return encoded;
+    }
+
+    public void beginArray() throws IOException {
+        require(1);
+        write('[');
+    }
+
+    public void endArray() throws IOException {
+        require(1);
+        write(']');
+    }
+
+    public void beginObject() throws IOException {
+        require(1);
+        write('{');
+    }
+
+    public void endObject() throws IOException {
+        require(1);
+        write('}');
+    }
+
+    public void comma() throws IOException {
+        require(1);
+        write(',');
+    }
+
+    /** Writes a field name returned by {@link #fieldName(String, boolean)}. */
+    public void name(byte[] encodedName) throws IOException {
+        writeBytes(encodedName);
+    }
+
+    public void nullValue() throws IOException {
+        writeBytes(NULL);
+    }
+
+    public void value(boolean value) throws IOException {
+        writeBytes(value ? TRUE : FALSE);
+    }
+
+    public void value(long value) throws IOException {
+        writeLong(value);
+    }
+
+    /** Writes {@code null} for NaN and the infinities, which JSON can't represent. */
+    public void value(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            nullValue();
+        } else {
+            writeDouble(value);
+        }
+    }
+
+    public void value(String value) throws IOException {
+        if (value == null) {
+            nullValue();
+            return;
+        }
+        require(1);
+        write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                require(2);
+                write('\\');
+                write(c);
+            } else if (c < 0x20) {
+                require(6);
+                write('\\');
+                write('u');
+                write('0');
+                write('0');
+                write(HEX[c >> 4]);
+                write(HEX[c & 0xf]);
+            } else {
+                i = writeCodePoint(value, i);
+            }
+        }
+        require(1);
+        write('"');
+    }
+
+    /** Writes the bytes as a base64 string. */
+    public void value(byte[] value) throws IOException {
+        if (value == null) {
+            nullValue();
+            return;
+        }
+        require(1);
+        write('"');
+        writeBase64(value);
+        require(1);
+        write('"');
+    }
+
+    /** Writes the constant's name. */
+    public void value(Enum<?> value) throws IOException {
+        value(value != null ? value.name() : null);
+    }
+
+    /** Writes the number in plain notation, which keeps every digit and never uses an exponent. */
+    public void value(BigDecimal value) throws IOException {
+        if (value == null) {
+            nullValue();
+        } else {
+            writeAscii(value.toPlainString());
+        }
+    }
+
+    /**
+     * Writes an ISO-8601 string: the local date and time held by a {@link java.sql.Timestamp},
+     * {@link java.sql.Date} or {@link java.sql.Time}, and other dates as an instant in UTC.
+     */
+    public void value(Date value) throws IOException {
+        value(value != null ? isoString(value) : null);
+    }
+
+    /** Writes an ISO-8601 string, with seconds even where they are zero. */
+    public void value(TemporalAccessor value) throws IOException {
+        value(value != null ? isoString(value) : null);
+    }
+
+    /** Writes {@link Object#toString()} as a string, for UUIDs and other values. */
+    public void value(Object value) throws IOException {
+        if (value instanceof BigDecimal) {
+            value((BigDecimal) value);
+        } else if (value instanceof Date) {
+            value((Date) value);
+        } else if (value instanceof TemporalAccessor) {
+            value((TemporalAccessor) value);
+        } else {
+            value(value != null ? value.toString() : null);
+        }
+    }
+
+    /**
+     * Writes a value read with a primitive {@code ResultSet} getter, or {@code null} if
+     * {@code wasNull}.
+     */
+    public void nullableValue(long value, boolean wasNull) throws IOException {
+        if (wasNull) {
+            nullValue();
+        } else {
+            value(value);
+        }
+    }
+
+    public void nullableValue(double value, boolean wasNull) throws IOException {
+        if (wasNull) {
+            nullValue();
+        } else {
+            value(value);
+        }
+    }
+
+    public void nullableValue(boolean value, boolean wasNull) throws IOException {
+        if (wasNull) {
+            nullValue();
+        } else {
+            value(value);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package in.workaounds.avrs;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Reads a query in pages of at most {@code pageSize} values, ordered by a {@link SortKey}. Every
+ * page after the first continues after the key of the previous page's last value, so unlike
+ * {@code OFFSET} paging no rows are read and skipped, and each page costs the same with an index
+ * on the key. The base query is wrapped as
+ * {@code SELECT * FROM (baseQuery) keyset WHERE key > ? ORDER BY key LIMIT ?}, so it may have
+ * its own conditions and parameters but shouldn't be ordered.
+ *
+ * <p>Each iteration runs the queries again. The connection must stay open while iterating, and a
+ * {@link #prefetching prefetching} iterator uses it from the executor's thread while the caller
+ * processes the current page, so the connection can't be used for anything else until that
+ * iterator is exhausted or closed. Iterators throw {@link IllegalStateException} if a page can't
+ * be read.
+ */
+public abstract class KeysetPages<T> implements Iterable<List<T>> {
+    private final Connection connection;
+    private final String firstQuery;
+    private final String nextQuery;
+    private final int pageSize;
+    private final int estimatedRowBytes;
+    private final Object[] params;
+
+    /**
+     * @param keyColumn the column of the {@link SortKey} property
+     * @param params the parameters of {@code baseQuery}
+     */
+    protected KeysetPages(Connection connection, String baseQuery, String keyColumn,
+            int pageSize, int estimatedRowBytes, Object... params) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize < 1: " + pageSize);
+        }
+        String from = "SELECT * FROM (" + baseQuery + ") keyset";
+        String orderBy = " ORDER BY " + keyColumn + " LIMIT ?";
+        this.connection = connection;
+        this.firstQuery = from + orderBy;
+        this.nextQuery = from + " WHERE " + keyColumn + " > ?" + orderBy;
+        this.pageSize = pageSize;
+        this.estimatedRowBytes = estimatedRowBytes;
+        this.params = params.clone();
+    }
+
+    /** Binds the key of {@code last} as the parameter at {@code index}. */
+    protected abstract void bindKey(PreparedStatement statement, int index, T last)
+            throws SQLException;
+
+    /** Reads every row of a page, typically with {@code createListFromResultSet}. */
+    protected abstract List<T> read(ResultSet resultSet) throws SQLException;
+
+    /** Returns an iterator that reads each page when it's asked for. */
+    @Override
+    public PageIterator<T> iterator() {
+        return new Pages(null);
+    }
+
+    /**
+     * Returns an iterator that reads the next page on {@code executor} as soon as one is
+     * returned, so the query runs while the caller processes the current page. At most one query
+     * is in flight, and a page the executor rejects is read when it's asked for. Close the
+     * iterator when it isn't exhausted, which waits for that query before the connection is used
+     * again.
+     */
+    public PageIterator<T> prefetching(Executor executor) {
+        if (executor == null) {
+            throw new NullPointerException("executor == null");
+        }
+        return new Pages(executor);
+    }
+
+    /** Reads the page after {@code last}, or the first page if it's {@code null}. */
+    private List<T> readPage(T last) throws SQLException {
+        try (PreparedStatement statement = Queries.prepare(connection,
+                last == null ? firstQuery : nextQuery, estimatedRowBytes, params)) {
+            statement.setFetchSize(Math.min(pageSize, statement.getFetchSize()));
+            int index = params.length + 1;
+            if (last != null) {
+                bindKey(statement, index++, last);
+            }
+            statement.setInt(index, pageSize);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return read(resultSet);
+            }
+        }
+    }
+
+    /**
+     * Iterates over pages. Closing it skips the remaining pages and waits for a page that is
+     * being read in the background.
+     */
+    public interface PageIterator<T> extends Iterator<List<T>>, AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final class Pages implements PageIterator<T> {
+        private final Executor executor;
+        private T last;
+        private List<T> next;
+        private PageRead pendingRead;
+        private FutureTask<List<T>> pending;
+        private boolean exhausted;
+
+        Pages(Executor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !exhausted) {
+                next = take();
+                if (next.isEmpty()) {
+                    next = null;
+                    exhausted = true;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public List<T> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            List<T> page = next;
+            next = null;
+            last = page.get(page.size() - 1);
+            if (page.size() < pageSize) {
+                exhausted = true;
+            } else if (executor != null) {
+                PageRead read = new PageRead(last);
+                FutureTask<List<T>> task = new FutureTask<>(read);
+                try {
+                    executor.execute(task);
+                    pendingRead = read;
+                    pending = task;
+                } catch (RejectedExecutionException e) {
+                    // The next page is read when it's asked for instead.
+                }
+            }
+            return page;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            exhausted = true;
+            next = null;
+            if (pending != null) {
+                pendingRead.cancel();
+                pending.cancel(false);
+                pending = null;
+                pendingRead = null;
+            }
+        }
+
+        private List<T> take() {
+            try {
+                if (pending == null) {
+                    return readPage(last);
+                }
+                FutureTask<List<T>> task = pending;
+                pending = null;
+                pendingRead = null;
+                return task.get();
+            } catch (SQLException e) {
+                throw new IllegalStateException("Page can't be read", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Page can't be read", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for a page", e);
+            }
+        }
+    }
+
+    /** Reads the page after {@code after} in the background, unless it's cancelled first. */
+    private final class PageRead implements Callable<List<T>> {
+        private final T after;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private boolean started;
+        private boolean cancelled;
+
+        PageRead(T after) {
+            this.after = after;
+        }
+
+        @Override
+        public List<T> call() throws SQLException {
+            synchronized (this) {
+                if (cancelled) {
+                    return null;
+                }
+                started = true;
+            }
+            try {
+                return readPage(after);
+            } finally {
+                done.countDown();
+            }
+        }
+
+        /** Keeps the read from starting, or waits until it has finished with the connection. */
+        void cancel() {
+            synchronized (this) {
+                cancelled = true;
+                if (!started) {
+                    return;
+                }
+            }
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
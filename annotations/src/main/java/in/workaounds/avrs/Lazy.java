@@ -0,0 +1,19 @@
+package in.workaounds.avrs;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+/**
+ * Defers decoding of a rarely used column. The property must be a
+ * {@code java.util.function.Supplier<T>}: the generated reader only captures the column's bytes
+ * with {@code getBytes}, and the supplier runs the {@link ColumnDecoder} on its first call and
+ * memoizes the result.
+ */
+@Retention(SOURCE)
+@Target(METHOD)
+public @interface Lazy {
+    Class<? extends ColumnDecoder<?>> value();
+}
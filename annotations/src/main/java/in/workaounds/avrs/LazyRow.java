@@ -0,0 +1,26 @@
+package in.workaounds.avrs;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+/**
+ * Generates {@code createLazyFromResultSet(ResultSet)}, its bound variant taking the indices of
+ * {@code findColumns} and {@code createLazyListFromResultSet(ResultSet)} next to
+ * {@code createFromResultSet}. They read every column once, as the cursor requires, but keep the
+ * values the driver returned (primitives, boxed ones included, packed into a {@code long[]} and
+ * an {@code int[]} by width, references in an {@code Object[]}) and only decode enum names,
+ * {@link TypeConverter} arguments and {@link Lazy} columns when the property is first accessed.
+ * Column adapters, which read from the result set, and converters that declare exceptions run
+ * eagerly, as do {@link Intern} strings, so that rows don't keep duplicates. Decoded values are
+ * kept, and equal what {@code createFromResultSet} reads. {@code equals}, {@code hashCode} and
+ * {@code toString} materialize the regular value object.
+ *
+ * <p>Meant for very wide value types of which a code path reads only a few properties.
+ */
+@Retention(SOURCE)
+@Target(TYPE)
+public @interface LazyRow {
+}
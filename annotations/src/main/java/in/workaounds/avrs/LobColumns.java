@@ -0,0 +1,97 @@
+package in.workaounds.avrs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static java.nio.file.StandardOpenOption.DELETE_ON_CLOSE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Reads large binary columns for {@link Spill} properties.
+ */
+public final class LobColumns {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private LobColumns() {
+        throw new AssertionError("No instances.");
+    }
+
+    /**
+     * Streams the column with {@code getBinaryStream}. Returns a heap buffer if the value has at
+     * most {@code thresholdBytes} bytes, otherwise copies it into a temporary file and returns a
+     * read-only mapping of that file. The file is deleted once it's mapped; its storage is
+     * released when the buffer is garbage collected. Returns {@code null} for SQL {@code NULL}.
+     */
+    public static ByteBuffer getSpilled(ResultSet resultSet, int columnIndex, int thresholdBytes)
+            throws SQLException {
+        InputStream in = resultSet.getBinaryStream(columnIndex);
+        if (in == null) {
+            return null;
+        }
+        try {
+            ByteArrayOutputStream heap = new ByteArrayOutputStream(
+                    Math.min(thresholdBytes, BUFFER_SIZE));
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                heap.write(buffer, 0, read);
+                if (heap.size() > thresholdBytes) {
+                    return spill(heap, in);
+                }
+            }
+            return ByteBuffer.wrap(heap.toByteArray());
+        } catch (IOException e) {
+            throw new SQLException("Could not read column " + columnIndex, e);
+        } finally {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static ByteBuffer spill(ByteArrayOutputStream head, InputStream rest)
+            throws IOException {
+        Path file = Files.createTempFile("avrs-", ".lob");
+        FileChannel opened;
+        try {
+            opened = FileChannel.open(file, READ, WRITE, DELETE_ON_CLOSE);
+        } catch (IOException | RuntimeException e) {
+            // DELETE_ON_CLOSE only applies once the channel is open.
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException deleteFailure) {
+                e.addSuppressed(deleteFailure);
+            }
+            throw e;
+        }
+        try (FileChannel channel = opened) {
+            channel.write(ByteBuffer.wrap(head.toByteArray()));
+            ReadableByteChannel source = Channels.newChannel(rest);
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            while (source.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                buffer.clear();
+            }
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Value of " + size + " bytes is too large to map");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+}
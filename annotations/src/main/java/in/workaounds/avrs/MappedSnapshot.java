@@ -0,0 +1,161 @@
+package in.workaounds.avrs;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A read-only list backed by a memory-mapped file of {@link BinaryCodec} values, which survives
+ * restarts without holding the values on the heap. Every {@link #get(int)} decodes its value from
+ * the mapping, found through an index of row offsets, so callers that need a value repeatedly
+ * should keep it.
+ *
+ * <p>The file starts with a magic number, the format version and the codec's schema hash, and
+ * {@link #open} refuses files whose header doesn't match, such as those written by an older
+ * version of the value type. Files are written to a temporary file and moved into place, so a
+ * reader never maps a partial snapshot. The mapping is limited to 2 GB.
+ */
+public final class MappedSnapshot<T> extends AbstractList<T> implements RandomAccess {
+    private static final int MAGIC = 0x41565253; // "AVRS"
+    private static final int VERSION = 1;
+    /** Magic, version, schema hash and row count, followed by the row offsets. */
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4;
+
+    private final ByteBuffer buffer;
+    private final ValueCodec<T> codec;
+    private final int size;
+    private final int dataStart;
+
+    private MappedSnapshot(ByteBuffer buffer, ValueCodec<T> codec, int size) {
+        this.buffer = buffer;
+        this.codec = codec;
+        this.size = size;
+        this.dataStart = HEADER_BYTES + 4 * (size + 1);
+    }
+
+    /** Writes the values to {@code file}, replacing it atomically. */
+    public static <T> void write(File file, List<? extends T> values, ValueCodec<T> codec)
+            throws IOException {
+        File temporary = new File(file.getPath() + ".tmp");
+        try {
+            writeTemporary(temporary, values, codec);
+            Files.move(temporary.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            try {
+                Files.deleteIfExists(temporary.toPath());
+            } catch (IOException deleteFailure) {
+                e.addSuppressed(deleteFailure);
+            }
+            throw e;
+        }
+    }
+
+    private static <T> void writeTemporary(
+            File temporary, List<? extends T> values, ValueCodec<T> codec) throws IOException {
+        int size = values.size();
+        long dataStart = HEADER_BYTES + 4L * (size + 1);
+        int[] offsets = new int[size + 1];
+        try (RandomAccessFile output = new RandomAccessFile(temporary, "rw")) {
+            FileChannel channel = output.getChannel();
+            channel.truncate(0);
+            channel.position(dataStart);
+            DataOutputStream data = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel)));
+            for (int i = 0; i < size; i++) {
+                // Exact while the data is below 2 GB, which the position is checked against.
+                offsets[i] = data.size();
+                codec.write(values.get(i), data);
+            }
+            data.flush();
+            long end = channel.position();
+            if (end > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot of " + size + " values exceeds 2 GB");
+            }
+            offsets[size] = (int) (end - dataStart);
+
+            ByteBuffer header = ByteBuffer.allocate((int) dataStart);
+            header.putInt(MAGIC).putInt(VERSION).putLong(codec.schemaHash()).putInt(size);
+            for (int offset : offsets) {
+                header.putInt(offset);
+            }
+            header.flip();
+            channel.position(0);
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Maps a file written by {@link #write}. The mapping stays valid after the file is replaced
+     * or deleted.
+     *
+     * @throws IOException if the file can't be read, or wasn't written by this codec
+     */
+    public static <T> MappedSnapshot<T> open(File file, ValueCodec<T> codec) throws IOException {
+        MappedByteBuffer buffer;
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            long length = input.length();
+            if (length < HEADER_BYTES || length > Integer.MAX_VALUE) {
+                throw new IOException(file + " isn't a snapshot, it has " + length + " bytes");
+            }
+            buffer = input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+        }
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException(file + " isn't a snapshot");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException(String.format("%s has format version %d, expected %d",
+                    file, buffer.getInt(4), VERSION));
+        }
+        if (buffer.getLong(8) != codec.schemaHash()) {
+            throw new IOException(String.format("%s has schema hash %016x, expected %016x",
+                    file, buffer.getLong(8), codec.schemaHash()));
+        }
+        int size = buffer.getInt(16);
+        long dataStart = HEADER_BYTES + 4L * (size + 1);
+        if (size < 0 || dataStart > buffer.capacity()
+                || dataStart + buffer.getInt(HEADER_BYTES + 4 * size) != buffer.capacity()) {
+            throw new IOException(file + " is truncated");
+        }
+        return new MappedSnapshot<>(buffer, codec, size);
+    }
+
+    /**
+     * Decodes the value at {@code index}.
+     *
+     * @throws IllegalStateException if the value can't be decoded
+     */
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        ByteBuffer row = buffer.duplicate();
+        row.limit(dataStart + buffer.getInt(HEADER_BYTES + 4 * (index + 1)));
+        row.position(dataStart + buffer.getInt(HEADER_BYTES + 4 * index));
+        try {
+            return codec.read(new ByteBufferInput(row));
+        } catch (IOException e) {
+            throw new IllegalStateException("Row " + index + " can't be decoded", e);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
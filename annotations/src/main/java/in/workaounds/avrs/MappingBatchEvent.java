@@ -0,0 +1,104 @@
+package in.workaounds.avrs;
+
+import java.nio.ByteBuffer;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * The JDK Flight Recorder event emitted once per call by the bulk read methods of
+ * {@link FlightRecorded} types. Generated code starts it with {@link #start}, which returns
+ * {@code null} unless the event is recorded, so the per-row calls are skipped otherwise.
+ *
+ * <p>Only generated code of {@code @FlightRecorded} types loads this class, so it requires
+ * {@code jdk.jfr} at runtime for those types alone.
+ */
+@Name("in.workarounds.avrs.MappingBatch")
+@Label("ResultSet Mapping Batch")
+@Category("AutoValue ResultSet")
+public final class MappingBatchEvent extends Event {
+
+    @Label("Value Type")
+    private Class<?> valueType;
+
+    @Label("Method")
+    @Description("The generated method that read the rows")
+    private String method;
+
+    @Label("Row Count")
+    private long rowCount;
+
+    @Label("LOB Bytes")
+    @DataAmount
+    private long lobBytes;
+
+    @Label("Cursor Fetch Time")
+    @Timespan
+    @Description("Time spent in ResultSet.next()")
+    private long fetchNanos;
+
+    @Label("Adapter Time")
+    @Timespan
+    @Description("Time spent in column adapters")
+    private long adapterNanos;
+
+    /** Returns a begun event for {@code method} of {@code valueType}, or null if it's disabled. */
+    public static MappingBatchEvent start(Class<?> valueType, String method) {
+        MappingBatchEvent event = new MappingBatchEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.valueType = valueType;
+        event.method = method;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Moves to the next row, adding the time spent and the row to {@code event} unless it's
+     * {@code null}.
+     */
+    public static boolean fetch(ResultSet resultSet, MappingBatchEvent event)
+            throws SQLException {
+        if (event == null) {
+            return resultSet.next();
+        }
+        long startNanos = System.nanoTime();
+        boolean hasRow = resultSet.next();
+        event.fetchNanos += System.nanoTime() - startNanos;
+        if (hasRow) {
+            event.rowCount++;
+        }
+        return hasRow;
+    }
+
+    public void addLobBytes(byte[] value) {
+        if (value != null) {
+            lobBytes += value.length;
+        }
+    }
+
+    public void addLobBytes(ByteBuffer value) {
+        if (value != null) {
+            lobBytes += value.remaining();
+        }
+    }
+
+    public void addAdapterNanos(long nanos) {
+        adapterNanos += nanos;
+    }
+
+    /** Ends the event and commits it if it passes the recording's threshold. */
+    public void finish() {
+        end();
+        if (shouldCommit()) {
+            commit();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package in.workaounds.avrs;
+
+/**
+ * Receives timings from the read path of value types annotated with {@link Instrumented}.
+ * Implementations are called on the mapping thread and should be cheap and thread safe.
+ */
+public interface MappingListener {
+
+    /**
+     * Called once per row after the value object has been created.
+     *
+     * @param type the AutoValue class that was mapped
+     * @param nanos time spent mapping the row, including adapters
+     */
+    void onRowMapped(Class<?> type, long nanos);
+
+    /**
+     * Called after a column adapter returned.
+     *
+     * @param type the AutoValue class that is being mapped
+     * @param columnName the column name passed to the adapter
+     * @param nanos time spent in the adapter
+     */
+    void onAdapter(Class<?> type, String columnName, long nanos);
+
+    /**
+     * Called when a column read by the generated code was SQL {@code NULL}.
+     *
+     * @param type the AutoValue class that is being mapped
+     * @param columnName the column that was {@code NULL}
+     */
+    void onNull(Class<?> type, String columnName);
+}
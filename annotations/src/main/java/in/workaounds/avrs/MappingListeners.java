@@ -0,0 +1,42 @@
+package in.workaounds.avrs;
+
+/**
+ * Holds the {@link MappingListener} used by instrumented value types.
+ */
+public final class MappingListeners {
+
+    /**
+     * Whether instrumentation is enabled, read once from the {@code avrs.instrumentation} system
+     * property. Generated code copies this into its own static final field so that disabled hooks
+     * are dead code.
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("avrs.instrumentation");
+
+    private static final MappingListener NONE = new MappingListener() {
+        @Override
+        public void onRowMapped(Class<?> type, long nanos) {
+        }
+
+        @Override
+        public void onAdapter(Class<?> type, String columnName, long nanos) {
+        }
+
+        @Override
+        public void onNull(Class<?> type, String columnName) {
+        }
+    };
+
+    private static volatile MappingListener listener = NONE;
+
+    private MappingListeners() {
+        throw new AssertionError("No instances.");
+    }
+
+    public static MappingListener get() {
+        return listener;
+    }
+
+    public static void set(MappingListener mappingListener) {
+        listener = mappingListener != null ? mappingListener : NONE;
+    }
+}
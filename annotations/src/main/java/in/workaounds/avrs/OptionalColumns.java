@@ -0,0 +1,29 @@
+package in.workaounds.avrs;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Looks up the columns of {@link IfPresent} properties.
+ */
+public final class OptionalColumns {
+
+    private OptionalColumns() {
+        throw new AssertionError("No instances.");
+    }
+
+    /**
+     * Returns the index of the first column labeled {@code columnLabel}, ignoring case like
+     * {@link ResultSet#findColumn(String)}, or {@code 0} if there is no such column.
+     */
+    public static int find(ResultSet resultSet, String columnLabel) throws SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        for (int i = 1, count = metaData.getColumnCount(); i <= count; i++) {
+            if (columnLabel.equalsIgnoreCase(metaData.getColumnLabel(i))) {
+                return i;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,16 @@
+package in.workaounds.avrs;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+/**
+ * Reads an enum property from an integer column holding the constant's ordinal instead of from a
+ * column holding its name.
+ */
+@Retention(SOURCE)
+@Target(METHOD)
+public @interface Ordinal {
+}
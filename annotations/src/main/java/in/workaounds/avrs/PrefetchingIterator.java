@@ -0,0 +1,222 @@
+package in.workaounds.avrs;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps the rows of a result set on a background thread, so that reading the cursor overlaps with
+ * a caller that spends its time elsewhere, such as writing each row out. The background thread
+ * maps batches of rows, as many as the result set's fetch size, into a ring buffer of
+ * {@code depth} batches and waits while it is full; the caller drains one batch while the next
+ * ones are filled.
+ *
+ * <p>{@link #close()} stops the background thread and waits for it to let go of the result set,
+ * which the caller still owns and closes. Close the iterator when it isn't drained, or the
+ * background thread stays blocked on the full buffer. The iterator throws
+ * {@link IllegalStateException} if a row can't be read, and rethrows an {@link Error} thrown by
+ * the background thread.
+ */
+public abstract class PrefetchingIterator<T> implements Iterator<T>, AutoCloseable {
+    private static final int DEFAULT_BATCH_SIZE = 256;
+    private static final long OFFER_TIMEOUT_MILLIS = 50;
+    private static final List<Object> END = Collections.emptyList();
+
+    private final ResultSet resultSet;
+    private final Executor executor;
+    private final int batchSize;
+    private final BlockingQueue<List<?>> batches;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private volatile boolean cancelled;
+    private volatile Throwable failure;
+    private boolean started;
+    private List<T> current = Collections.emptyList();
+    private int position;
+    private boolean finished;
+
+    /**
+     * @param depth the number of batches mapped ahead of the caller, at least 1
+     * @param executor runs the background thread, which is busy until the result set is drained
+     *     or the iterator is closed
+     */
+    protected PrefetchingIterator(ResultSet resultSet, int depth, Executor executor)
+            throws SQLException {
+        if (depth < 1) {
+            throw new IllegalArgumentException("depth < 1: " + depth);
+        }
+        int fetchSize = resultSet.getFetchSize();
+        this.resultSet = resultSet;
+        this.executor = executor;
+        this.batchSize = fetchSize > 0 ? fetchSize : DEFAULT_BATCH_SIZE;
+        this.batches = new ArrayBlockingQueue<>(depth);
+    }
+
+    /** Maps the current row, typically with {@code createFromResultSet(ResultSet, int[])}. */
+    protected abstract T read(ResultSet resultSet) throws SQLException;
+
+    /** Called on the background thread before the first row is read. */
+    protected void producerStarted() {
+    }
+
+    /** Moves the result set to the next row on the background thread. */
+    protected boolean nextRow(ResultSet resultSet) throws SQLException {
+        return resultSet.next();
+    }
+
+    /** Called on the background thread once it stopped reading rows, for any reason. */
+    protected void producerStopped() {
+    }
+
+    /**
+     * Starts mapping rows in the background. It's called by the generated method that creates
+     * the iterator, once the subclass is initialized.
+     */
+    public PrefetchingIterator<T> start() {
+        if (started) {
+            throw new IllegalStateException("Already started");
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                produce();
+            }
+        });
+        // Only set once the executor took the task, so close() doesn't wait for a rejected one.
+        started = true;
+        return this;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (position == current.size()) {
+            if (finished) {
+                return false;
+            }
+            List<?> batch = take();
+            if (batch == END) {
+                finished = true;
+                if (failure instanceof Error) {
+                    throw (Error) failure;
+                }
+                if (failure != null) {
+                    throw new IllegalStateException("Row can't be read", failure);
+                }
+                return false;
+            }
+            @SuppressWarnings("unchecked")
+            List<T> rows = (List<T>) batch;
+            current = rows;
+            position = 0;
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.get(position++);
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Stops mapping rows and waits until the background thread has finished the row it is
+     * mapping, after which the result set may be closed.
+     */
+    @Override
+    public void close() {
+        if (cancelled) {
+            return;
+        }
+        cancelled = true;
+        finished = true;
+        current = Collections.emptyList();
+        position = 0;
+        batches.clear();
+        if (!started) {
+            return;
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                stopped.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        // Drops a batch published while closing, and wakes a consumer blocked in another thread.
+        batches.clear();
+        batches.offer(END);
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void produce() {
+        try {
+            producerStarted();
+            List<T> batch = new ArrayList<>(batchSize);
+            while (!cancelled && nextRow(resultSet)) {
+                batch.add(read(resultSet));
+                if (batch.size() == batchSize) {
+                    publish(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                publish(batch);
+            }
+        } catch (InterruptedException e) {
+            cancelled = true;
+        } catch (Throwable e) {
+            failure = e;
+        } finally {
+            try {
+                producerStopped();
+            } catch (Throwable e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+            try {
+                publish(END);
+            } catch (InterruptedException e) {
+                cancelled = true;
+            }
+            stopped.countDown();
+        }
+    }
+
+    /** Waits for room in the buffer, unless the iterator is closed meanwhile. */
+    private void publish(List<?> batch) throws InterruptedException {
+        while (!cancelled) {
+            if (batches.offer(batch, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        }
+    }
+
+    private List<?> take() {
+        try {
+            return batches.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for rows", e);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package in.workaounds.avrs;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+/**
+ * Reads temporal and decimal columns into primitives for {@link EpochMillis} and {@link Scaled}
+ * properties without allocating a {@link Timestamp} or {@link BigDecimal} where the driver allows.
+ * The variants that take the column's {@link Types SQL type} or {@link #scaledReadMode read mode}
+ * are called with the value that {@code findColumns} resolved once per result set. A SQL
+ * {@code NULL} reads as {@code 0}.
+ */
+public final class PrimitiveColumns {
+
+    /** Reads the column with {@code getLong}, which is exact for integer values. */
+    private static final int READ_LONG = 1;
+    /** Reads the column with {@code getDouble}, which is exact for up to 15 significant digits. */
+    private static final int READ_DOUBLE = 2;
+    /** Reads the column with {@code getBigDecimal}. */
+    private static final int READ_DECIMAL = 3;
+
+    private static final int MAX_EXACT_DOUBLE_DIGITS = 15;
+    private static final int MAX_LONG_DIGITS = 18;
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        long power = 1;
+        for (int i = 0; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = power;
+            power *= 10;
+        }
+    }
+
+    private PrimitiveColumns() {
+        throw new AssertionError("No instances.");
+    }
+
+    /**
+     * Returns the column as milliseconds since the epoch, looking up its SQL type in the result
+     * set's metadata.
+     */
+    public static long getEpochMillis(ResultSet resultSet, int columnIndex) throws SQLException {
+        return getEpochMillis(resultSet, columnIndex, sqlType(resultSet, columnIndex));
+    }
+
+    /**
+     * Returns the column as milliseconds since the epoch. Numeric columns are assumed to already
+     * hold epoch milliseconds and are read with {@code getLong}; anything else goes through
+     * {@code getTimestamp}.
+     */
+    public static long getEpochMillis(ResultSet resultSet, int columnIndex, int sqlType)
+            throws SQLException {
+        if (isNumeric(sqlType)) {
+            return resultSet.getLong(columnIndex);
+        }
+        Timestamp timestamp = resultSet.getTimestamp(columnIndex);
+        return timestamp != null ? timestamp.getTime() : 0L;
+    }
+
+    /**
+     * Returns the column multiplied by 10<sup>scale</sup>, looking up its read mode in the result
+     * set's metadata.
+     *
+     * @throws ArithmeticException if the scaled value doesn't fit in a {@code long}
+     */
+    public static long getScaled(ResultSet resultSet, int columnIndex, int scale)
+            throws SQLException {
+        return getScaled(resultSet, columnIndex, scale,
+                scaledReadMode(resultSet.getMetaData(), columnIndex, scale));
+    }
+
+    /**
+     * Returns how {@link #getScaled(ResultSet, int, int, int)} reads the column at {@code scale}.
+     * Integer columns and {@code DECIMAL} columns without a fraction that fit in a {@code long}
+     * are read with {@code getLong}. {@code DECIMAL} columns whose scale is at most {@code scale}
+     * and whose scaled values have at most 15 digits are read with {@code getDouble}, which is
+     * exact for them. Anything else, including columns whose scale or precision the driver
+     * doesn't report, is read with {@code getBigDecimal}.
+     */
+    public static int scaledReadMode(ResultSetMetaData metaData, int columnIndex, int scale)
+            throws SQLException {
+        int sqlType = metaData.getColumnType(columnIndex);
+        if (isInteger(sqlType)) {
+            return READ_LONG;
+        }
+        if (sqlType == Types.NUMERIC || sqlType == Types.DECIMAL) {
+            int precision = metaData.getPrecision(columnIndex);
+            int columnScale = metaData.getScale(columnIndex);
+            if (precision <= 0 || columnScale < 0 || columnScale > scale) {
+                return READ_DECIMAL;
+            }
+            if (columnScale == 0 && precision <= MAX_LONG_DIGITS) {
+                return READ_LONG;
+            }
+            if (precision + scale - columnScale <= MAX_EXACT_DOUBLE_DIGITS) {
+                return READ_DOUBLE;
+            }
+        }
+        return READ_DECIMAL;
+    }
+
+    /**
+     * Returns the column multiplied by 10<sup>scale</sup> and rounded half up, read as
+     * {@code readMode} from {@link #scaledReadMode} says. {@code getBigDecimal} is only used for
+     * columns whose scale doesn't fit, so that values like {@code 1.005} round as written.
+     *
+     * @throws ArithmeticException if the scaled value doesn't fit in a {@code long}
+     */
+    public static long getScaled(ResultSet resultSet, int columnIndex, int scale, int readMode)
+            throws SQLException {
+        if (readMode == READ_LONG) {
+            long value = resultSet.getLong(columnIndex);
+            long power = POWERS_OF_TEN[scale];
+            if (value > Long.MAX_VALUE / power || value < Long.MIN_VALUE / power) {
+                throw new ArithmeticException("Overflow scaling column " + columnIndex);
+            }
+            return value * power;
+        }
+        if (readMode == READ_DOUBLE) {
+            // The scaled value is an integer of at most 15 digits, so rounding the product undoes
+            // the binary representation error of the double.
+            return Math.round(resultSet.getDouble(columnIndex) * POWERS_OF_TEN[scale]);
+        }
+        BigDecimal value = resultSet.getBigDecimal(columnIndex);
+        if (value == null) {
+            return 0L;
+        }
+        return value.movePointRight(scale).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    private static int sqlType(ResultSet resultSet, int columnIndex) throws SQLException {
+        return resultSet.getMetaData().getColumnType(columnIndex);
+    }
+
+    private static boolean isInteger(int sqlType) {
+        switch (sqlType) {
+            case Types.BIGINT:
+            case Types.INTEGER:
+            case Types.SMALLINT:
+            case Types.TINYINT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isNumeric(int sqlType) {
+        return isInteger(sqlType) || sqlType == Types.NUMERIC || sqlType == Types.DECIMAL;
+    }
+}
@@ -0,0 +1,53 @@
+package in.workaounds.avrs;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Prepares the statements of the generated {@link Queryable} methods: forward-only and read-only,
+ * so drivers can stream the rows, with a fetch size that keeps each round trip to about
+ * {@value #FETCH_BYTES} bytes.
+ *
+ * <p>Some drivers ignore the fetch size unless the connection is set up for it. PostgreSQL reads
+ * the whole result up front unless auto-commit is off. MySQL Connector/J only streams with
+ * {@code useCursorFetch=true} in the URL, or when the fetch size is {@link Integer#MIN_VALUE},
+ * which callers that need it set on a statement of their own.
+ */
+public final class Queries {
+
+    static final int FETCH_BYTES = 256 * 1024;
+    private static final int MINIMUM_FETCH_SIZE = 16;
+    private static final int MAXIMUM_FETCH_SIZE = 10000;
+
+    private Queries() {
+        throw new AssertionError("No instances.");
+    }
+
+    /** Returns the number of rows of about {@code estimatedRowBytes} to fetch per round trip. */
+    public static int fetchSize(int estimatedRowBytes) {
+        int rows = FETCH_BYTES / Math.max(estimatedRowBytes, 1);
+        return Math.max(MINIMUM_FETCH_SIZE, Math.min(rows, MAXIMUM_FETCH_SIZE));
+    }
+
+    /**
+     * Prepares a forward-only, read-only statement and binds the parameters with
+     * {@link PreparedStatement#setObject(int, Object)}.
+     */
+    public static PreparedStatement prepare(Connection connection, String sql,
+            int estimatedRowBytes, Object... params) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(
+                sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            statement.setFetchSize(fetchSize(estimatedRowBytes));
+            for (int i = 0; i < params.length; i++) {
+                statement.setObject(i + 1, params[i]);
+            }
+            return statement;
+        } catch (SQLException | RuntimeException e) {
+            statement.close();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package in.workaounds.avrs;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches mapped query results, keyed by the SQL and its parameters, as unmodifiable lists.
+ *
+ * <p>The cache is bounded by the total weight of its entries, normally the estimate returned by a
+ * generated {@code estimateRetainedSize} method, see {@link EstimateSize}. New entries go to a
+ * small window holding 1% of the weight. Entries leaving the window only enter the main space by
+ * evicting an entry requested less often, as counted by a {@link FrequencySketch}, so a scan of
+ * one-off queries can't flush the popular ones (the W-TinyLFU policy). The main space keeps
+ * entries requested again in a protected segment of 80% of its weight, and evicts from those
+ * requested only once first.
+ *
+ * <p>Entries expire a fixed time after they were loaded, and are removed when any of the tables
+ * their query reads from is {@linkplain #invalidate(String) invalidated}. Results loaded while a
+ * table was invalidated aren't cached, as they may predate the change.
+ *
+ * <p>The cache is safe for concurrent use. Loaders run without holding the lock, so concurrent
+ * misses for the same query may each load it.
+ */
+public final class QueryCache {
+
+    /** Runs a query for {@link #get} and weighs its result. */
+    public interface Loader<T> {
+        List<T> load() throws SQLException;
+
+        /** Returns the weight of the values, such as their estimated retained size in bytes. */
+        long weigh(List<T> values);
+    }
+
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+
+    private final long maximumWeight;
+    private final long maximumWindowWeight;
+    private final long maximumProtectedWeight;
+    private final long expireAfterWriteNanos;
+
+    private final Map<Key, Node> data = new HashMap<>();
+    private final Map<String, Set<Node>> nodesByTable = new HashMap<>();
+    private final LinkedHashSet<Node> window = new LinkedHashSet<>();
+    private final LinkedHashSet<Node> probation = new LinkedHashSet<>();
+    private final LinkedHashSet<Node> protectedNodes = new LinkedHashSet<>();
+    private final FrequencySketch sketch = new FrequencySketch();
+    private long windowWeight;
+    private long probationWeight;
+    private long protectedWeight;
+    private long invalidations;
+
+    public QueryCache(long maximumWeight, long expireAfterWrite, TimeUnit unit) {
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException(
+                    "maximumWeight must be positive but was " + maximumWeight);
+        }
+        if (expireAfterWrite <= 0) {
+            throw new IllegalArgumentException(
+                    "expireAfterWrite must be positive but was " + expireAfterWrite);
+        }
+        this.maximumWeight = maximumWeight;
+        this.maximumWindowWeight = Math.max(1, maximumWeight * WINDOW_PERCENT / 100);
+        this.maximumProtectedWeight =
+                (maximumWeight - maximumWindowWeight) * PROTECTED_PERCENT / 100;
+        this.expireAfterWriteNanos = unit.toNanos(expireAfterWrite);
+        sketch.ensureCapacity(0);
+    }
+
+    /**
+     * Returns the cached result of the query, or loads and caches it. Table names are compared
+     * case-insensitively with those passed to {@link #invalidate(String)}. Results heavier than
+     * the whole cache are returned without being cached.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> get(String sql, Object[] params, String[] tables, Loader<T> loader)
+            throws SQLException {
+        Key key = new Key(sql, params);
+        long startInvalidations;
+        synchronized (this) {
+            sketch.increment(key.hash);
+            Node node = data.get(key);
+            if (node != null) {
+                if (node.expiresAtNanos - System.nanoTime() > 0) {
+                    onHit(node);
+                    return (List<T>) node.values;
+                }
+                remove(node);
+            }
+            startInvalidations = invalidations;
+        }
+
+        List<T> values = Collections.unmodifiableList(loader.load());
+        long weight = loader.weigh(values);
+        synchronized (this) {
+            if (weight <= maximumWeight && startInvalidations == invalidations
+                    && !data.containsKey(key)) {
+                add(new Node(key, values, weight, normalize(tables),
+                        System.nanoTime() + expireAfterWriteNanos));
+            }
+        }
+        return values;
+    }
+
+    /** Removes the results of every query that reads from the table. */
+    public synchronized void invalidate(String table) {
+        invalidations++;
+        Set<Node> nodes = nodesByTable.get(table.toLowerCase(Locale.ROOT));
+        if (nodes == null) {
+            return;
+        }
+        for (Node node : new ArrayList<>(nodes)) {
+            remove(node);
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        invalidations++;
+        for (Node node : new ArrayList<>(data.values())) {
+            remove(node);
+        }
+    }
+
+    /** Removes expired entries, which are otherwise only removed when they are requested. */
+    public synchronized void cleanUp() {
+        long now = System.nanoTime();
+        for (Node node : new ArrayList<>(data.values())) {
+            if (node.expiresAtNanos - now <= 0) {
+                remove(node);
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return data.size();
+    }
+
+    public synchronized long weight() {
+        return windowWeight + probationWeight + protectedWeight;
+    }
+
+    private static String[] normalize(String[] tables) {
+        String[] normalized = new String[tables.length];
+        for (int i = 0; i < tables.length; i++) {
+            normalized[i] = tables[i].toLowerCase(Locale.ROOT);
+        }
+        return normalized;
+    }
+
+    private void onHit(Node node) {
+        if (window.remove(node)) {
+            window.add(node);
+        } else if (probation.remove(node)) {
+            probationWeight -= node.weight;
+            protectedNodes.add(node);
+            protectedWeight += node.weight;
+            demoteProtected();
+        } else if (protectedNodes.remove(node)) {
+            protectedNodes.add(node);
+        }
+    }
+
+    /** Moves the least recently used protected entries back to probation while it's too heavy. */
+    private void demoteProtected() {
+        while (protectedWeight > maximumProtectedWeight) {
+            Node demoted = protectedNodes.iterator().next();
+            protectedNodes.remove(demoted);
+            protectedWeight -= demoted.weight;
+            probation.add(demoted);
+            probationWeight += demoted.weight;
+        }
+    }
+
+    private void add(Node node) {
+        data.put(node.key, node);
+        for (String table : node.tables) {
+            Set<Node> nodes = nodesByTable.get(table);
+            if (nodes == null) {
+                nodes = new HashSet<>();
+                nodesByTable.put(table, nodes);
+            }
+            nodes.add(node);
+        }
+        window.add(node);
+        windowWeight += node.weight;
+        sketch.ensureCapacity(data.size());
+        evict();
+    }
+
+    /**
+     * Moves entries from the window to the main space while the window is too heavy. An entry
+     * only enters a full main space by evicting entries that are requested less often; entries
+     * at the head of probation are the victims, then those at the head of the protected segment.
+     */
+    private void evict() {
+        long now = System.nanoTime();
+        while (windowWeight > maximumWindowWeight) {
+            Node candidate = window.iterator().next();
+            window.remove(candidate);
+            windowWeight -= candidate.weight;
+
+            while (candidate != null && weight() + candidate.weight > maximumWeight) {
+                Node victim = !probation.isEmpty()
+                        ? probation.iterator().next()
+                        : protectedNodes.isEmpty() ? null : protectedNodes.iterator().next();
+                if (victim == null) {
+                    removeDetached(candidate);
+                    candidate = null;
+                } else if (victim.expiresAtNanos - now <= 0
+                        || sketch.frequency(candidate.key.hash)
+                                > sketch.frequency(victim.key.hash)) {
+                    remove(victim);
+                } else {
+                    removeDetached(candidate);
+                    candidate = null;
+                }
+            }
+            if (candidate != null) {
+                probation.add(candidate);
+                probationWeight += candidate.weight;
+            }
+        }
+    }
+
+    private void remove(Node node) {
+        if (window.remove(node)) {
+            windowWeight -= node.weight;
+        } else if (probation.remove(node)) {
+            probationWeight -= node.weight;
+        } else if (protectedNodes.remove(node)) {
+            protectedWeight -= node.weight;
+        }
+        removeDetached(node);
+    }
+
+    /** Removes a node that is in none of the queues from the indices. */
+    private void removeDetached(Node node) {
+        data.remove(node.key);
+        for (String table : node.tables) {
+            Set<Node> nodes = nodesByTable.get(table);
+            if (nodes != null && nodes.remove(node) && nodes.isEmpty()) {
+                nodesByTable.remove(table);
+            }
+        }
+    }
+
+    private static final class Key {
+        final String sql;
+        final Object[] params;
+        final int hash;
+
+        Key(String sql, Object[] params) {
+            this.sql = sql;
+            this.params = params.clone();
+            this.hash = 31 * sql.hashCode() + Arrays.deepHashCode(this.params);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash
+                    && sql.equals(other.sql)
+                    && Arrays.deepEquals(params, other.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Node {
+        final Key key;
+        final List<?> values;
+        final long weight;
+        final String[] tables;
+        final long expiresAtNanos;
+
+        Node(Key key, List<?> values, long weight, String[] tables, long expiresAtNanos) {
+            this.key = key;
+            this.values = values;
+            this.weight = weight;
+            this.tables = tables;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package in.workaounds.avrs;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+/**
+ * Generates {@code query(Connection, String, Object...)}, which runs a query with
+ * {@link Queries#prepare} and maps every row with {@code createListFromResultSet}. The fetch size
+ * is derived from the width of a row, estimated from the property types when the value type is
+ * compiled. {@code queryEach(Connection, String, RowConsumer, Object...)} runs the query the same
+ * way but hands each value to a {@link RowConsumer} as it's mapped, so the rows don't have to fit
+ * in memory at once. Also generates {@code prefetchFromResultSet(ResultSet, int, Executor)}, which
+ * maps the rows on a background thread with a {@link PrefetchingIterator}.
+ *
+ * <p>Whether rows are streamed rather than read in full when the query runs depends on the driver;
+ * see {@link Queries}.
+ */
+@Retention(SOURCE)
+@Target(TYPE)
+public @interface Queryable {
+}
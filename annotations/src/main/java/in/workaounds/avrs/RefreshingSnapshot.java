@@ -0,0 +1,90 @@
+package in.workaounds.avrs;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves a {@link MappedSnapshot} of a query result and replaces it with a fresh one in the
+ * background. After a restart the snapshot left by the previous run is served until the first
+ * refresh, so callers don't wait for the query. A failed refresh keeps the current snapshot.
+ */
+public final class RefreshingSnapshot<T> {
+    private final File file;
+    private final ValueCodec<T> codec;
+    private final Callable<? extends List<? extends T>> loader;
+    private final Object refreshLock = new Object();
+    private volatile MappedSnapshot<T> current;
+    private volatile Exception lastFailure;
+
+    /**
+     * @param loader runs the query, typically returning {@code createListFromResultSet}
+     */
+    public RefreshingSnapshot(
+            File file, ValueCodec<T> codec, Callable<? extends List<? extends T>> loader) {
+        this.file = file;
+        this.codec = codec;
+        this.loader = loader;
+    }
+
+    /**
+     * Returns the current snapshot. The first call maps the file left by an earlier run, or
+     * refreshes if there is none or it was written by a different version of the value type.
+     */
+    public List<T> get() throws Exception {
+        MappedSnapshot<T> snapshot = current;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        synchronized (refreshLock) {
+            if (current == null && file.exists()) {
+                try {
+                    current = MappedSnapshot.open(file, codec);
+                } catch (IOException e) {
+                    lastFailure = e;
+                }
+            }
+            if (current == null) {
+                refresh();
+            }
+            return current;
+        }
+    }
+
+    /** Runs the query, writes its result to the file and serves it. */
+    public void refresh() throws Exception {
+        synchronized (refreshLock) {
+            MappedSnapshot.write(file, loader.call(), codec);
+            current = MappedSnapshot.open(file, codec);
+        }
+    }
+
+    /**
+     * Refreshes the snapshot after {@code initialDelay}, then {@code period} after each refresh
+     * ends. An initial delay of 0 replaces the snapshot left by an earlier run right away, while
+     * {@link #get()} serves it. Failures are kept in {@link #lastFailure()} and don't stop later
+     * refreshes.
+     */
+    public ScheduledFuture<?> scheduleRefresh(ScheduledExecutorService executor,
+            long initialDelay, long period, TimeUnit unit) {
+        return executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    refresh();
+                } catch (Exception e) {
+                    lastFailure = e;
+                }
+            }
+        }, initialDelay, period, unit);
+    }
+
+    /** Returns the exception of the last failed refresh or open, or {@code null}. */
+    public Exception lastFailure() {
+        return lastFailure;
+    }
+}
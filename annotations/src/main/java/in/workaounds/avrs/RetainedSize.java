@@ -0,0 +1,40 @@
+package in.workaounds.avrs;
+
+import java.util.List;
+
+/**
+ * Estimates the heap retained by the values the {@link EstimateSize} methods can't size at
+ * compile time, assuming a 64-bit JVM with compressed references and compact strings.
+ */
+public final class RetainedSize {
+
+    private static final int OBJECT_ALIGNMENT = 8;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int STRING = 24;
+    private static final int ARRAY_LIST = 24;
+
+    private RetainedSize() {
+        throw new AssertionError("No instances.");
+    }
+
+    /** Returns the size of the string and its characters, counting one byte per character. */
+    public static long of(String value) {
+        return value != null ? STRING + align(ARRAY_HEADER + value.length()) : 0;
+    }
+
+    public static long of(byte[] value) {
+        return value != null ? align(ARRAY_HEADER + value.length) : 0;
+    }
+
+    /** Returns the size of an {@code ArrayList} and its array, not counting the elements. */
+    public static long of(List<?> value) {
+        return value != null
+                ? ARRAY_LIST + align(ARRAY_HEADER + (long) REFERENCE * value.size())
+                : 0;
+    }
+
+    public static long align(long size) {
+        return (size + OBJECT_ALIGNMENT - 1) & -OBJECT_ALIGNMENT;
+    }
+}
@@ -0,0 +1,12 @@
+package in.workaounds.avrs;
+
+import java.sql.SQLException;
+
+/**
+ * Receives every row of the generated {@code forEach(ResultSet, RowConsumer)} of a
+ * {@link RowView} type, as the same view moved to the next row, or every value mapped by the
+ * generated {@code queryEach} of a {@link Queryable} type.
+ */
+public interface RowConsumer<R> {
+    void accept(R row) throws SQLException;
+}
@@ -0,0 +1,24 @@
+package in.workaounds.avrs;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+/**
+ * Generates a nested {@code X_Row} class, a view of the current row of a result set with an
+ * accessor per property that reads its column on every call, and
+ * {@code forEach(ResultSet, RowConsumer)}, which passes the same view to the consumer for every
+ * row. Nothing is allocated per row for properties read directly from their column, so
+ * aggregations and filters over many rows don't create value objects; {@code materialize()} reads
+ * the current row into one for the rows worth keeping.
+ *
+ * <p>The view is only valid inside the consumer, and an accessor called twice reads the column
+ * twice. Types with {@link Lazy} or {@link Children} properties, which can't be read from the
+ * current row alone, can't be annotated.
+ */
+@Retention(SOURCE)
+@Target(TYPE)
+public @interface RowView {
+}
@@ -0,0 +1,19 @@
+package in.workaounds.avrs;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+/**
+ * Reads a {@code long} property from a decimal column as an integer count of
+ * 10<sup>-scale</sup> units, e.g. {@code @Scaled(2)} turns {@code 12.34} into {@code 1234}. See
+ * {@link PrimitiveColumns#getScaled(java.sql.ResultSet, int, int)}.
+ */
+@Retention(SOURCE)
+@Target(METHOD)
+public @interface Scaled {
+    /** The number of decimal places, between 0 and 18. */
+    int value();
+}
@@ -0,0 +1,21 @@
+package in.workaounds.avrs;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+/**
+ * Marks the unique, non-null property a query is ordered by, to generate
+ * {@code pages(Connection, String, int, Object...)}, which reads the query in pages that continue
+ * after the key of the previous page's last row. See {@link KeysetPages}.
+ *
+ * <p>The property must be a primitive, a {@code String} or a {@link java.sql.Timestamp}, which
+ * are bound the way they are read. Other types, such as UUIDs, may be ordered differently in Java
+ * than in the database.
+ */
+@Retention(SOURCE)
+@Target(METHOD)
+public @interface SortKey {
+}
@@ -0,0 +1,20 @@
+package in.workaounds.avrs;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+/**
+ * Reads a {@link java.nio.ByteBuffer} property from a binary column by streaming it. Values up to
+ * {@link #value()} bytes are kept on the heap, larger ones are copied to a temporary file that is
+ * memory-mapped, so huge values don't have to fit in the heap. See
+ * {@link LobColumns#getSpilled(java.sql.ResultSet, int, int)}.
+ */
+@Retention(SOURCE)
+@Target(METHOD)
+public @interface Spill {
+    /** The largest value, in bytes, that is kept on the heap. */
+    int value();
+}
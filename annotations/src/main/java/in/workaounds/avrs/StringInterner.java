@@ -0,0 +1,41 @@
+package in.workaounds.avrs;
+
+/**
+ * A bounded, lock-free table of canonical strings used by {@link Intern} properties.
+ *
+ * <p>Each value hashes to exactly one slot. A value equal to the slot's current entry returns that
+ * entry, any other value replaces it. Concurrent readers may race on a slot, which at worst costs a
+ * missed deduplication: strings are immutable, so an entry read from the table is always fully
+ * constructed.
+ */
+public final class StringInterner {
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    private final String[] table;
+    private final int mask;
+
+    public StringInterner(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive but was " + capacity);
+        }
+        int size = capacity >= MAXIMUM_CAPACITY
+                ? MAXIMUM_CAPACITY
+                : Integer.highestOneBit(capacity - 1) << 1;
+        table = new String[Math.max(size, 1)];
+        mask = table.length - 1;
+    }
+
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        int hash = value.hashCode();
+        int index = (hash ^ (hash >>> 16)) & mask;
+        String cached = table[index];
+        if (value.equals(cached)) {
+            return cached;
+        }
+        table[index] = value;
+        return value;
+    }
+}
@@ -0,0 +1,22 @@
+package in.workaounds.avrs;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.CLASS;
+
+/**
+ * Marks a static method that converts a column value into a type that can't be read from
+ * {@code ResultSet} otherwise, like {@code static Money fromColumn(long cents)}. Its parameter
+ * must be a type that can be read, such as {@code long}, {@code String} or {@code byte[]}.
+ *
+ * <p>Converters declared in the type itself are used for every property of that type. Others are
+ * found in the classes listed by {@link TypeConverters}. The generated code calls the method
+ * directly, so it must not be private and, if declared in another package, must be public. The
+ * processor reports converters it can't call.
+ */
+@Retention(CLASS)
+@Target(METHOD)
+public @interface TypeConverter {
+}
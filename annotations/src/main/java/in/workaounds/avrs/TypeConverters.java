@@ -0,0 +1,18 @@
+package in.workaounds.avrs;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.CLASS;
+
+/**
+ * Lists classes with {@link TypeConverter} methods for the value types in the annotated class.
+ * It isn't supported on packages, as Gradle wouldn't reprocess the value types of a package when
+ * its {@code package-info.java} changes.
+ */
+@Retention(CLASS)
+@Target(TYPE)
+public @interface TypeConverters {
+    Class<?>[] value();
+}
@@ -0,0 +1,208 @@
+package in.workaounds.avrs;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.Date;
+
+/**
+ * The buffer behind {@link JsonOutput} and {@link CsvOutput}: encodes characters, integers and
+ * base64 into a byte array that is written to the stream when full, and formats dates the same way
+ * for both.
+ */
+abstract class Utf8Output implements Flushable {
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(UTF_8);
+    private static final byte[] BASE64 =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(UTF_8);
+
+    private final OutputStream out;
+    final byte[] buffer = new byte[8192];
+    int position;
+
+    Utf8Output(OutputStream out) {
+        this.out = out;
+    }
+
+    /** Writes the buffered output to the stream and flushes it, without closing it. */
+    @Override
+    public void flush() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+        out.flush();
+    }
+
+    /**
+     * Returns the ISO-8601 form of the date. {@link java.sql.Timestamp}, {@link java.sql.Date} and
+     * {@link java.sql.Time} are formatted as the local date and time they hold, other dates as an
+     * instant in UTC.
+     */
+    static String isoString(Date value) {
+        if (value instanceof java.sql.Timestamp) {
+            return isoString(((java.sql.Timestamp) value).toLocalDateTime());
+        }
+        if (value instanceof java.sql.Date) {
+            return isoString(((java.sql.Date) value).toLocalDate());
+        }
+        if (value instanceof java.sql.Time) {
+            return isoString(((java.sql.Time) value).toLocalTime());
+        }
+        return isoString(value.toInstant());
+    }
+
+    /** Returns the ISO-8601 form of the value, with seconds even where they are zero. */
+    static String isoString(TemporalAccessor value) {
+        return isoFormatter(value).format(value);
+    }
+
+    private static DateTimeFormatter isoFormatter(TemporalAccessor value) {
+        if (value instanceof Instant) {
+            return DateTimeFormatter.ISO_INSTANT;
+        }
+        if (value instanceof LocalDate) {
+            return DateTimeFormatter.ISO_LOCAL_DATE;
+        }
+        if (value instanceof LocalTime) {
+            return DateTimeFormatter.ISO_LOCAL_TIME;
+        }
+        if (value instanceof LocalDateTime) {
+            return DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+        }
+        if (value instanceof OffsetTime) {
+            return DateTimeFormatter.ISO_OFFSET_TIME;
+        }
+        if (value instanceof OffsetDateTime) {
+            return DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+        }
+        if (value instanceof ZonedDateTime) {
+            return DateTimeFormatter.ISO_ZONED_DATE_TIME;
+        }
+        return DateTimeFormatter.ISO_DATE_TIME;
+    }
+
+    final void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            writeBytes(MIN_LONG);
+            return;
+        }
+        require(20);
+        if (value < 0) {
+            write('-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = position + digits - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position += digits;
+    }
+
+    /** Writes whole numbers below 10^15 like longs, others with {@link Double#toString}. */
+    final void writeDouble(double value) throws IOException {
+        if (value == (long) value && Math.abs(value) < 1e15) {
+            writeLong((long) value);
+        } else {
+            writeAscii(Double.toString(value));
+        }
+    }
+
+    /** Writes a character that isn't a surrogate. */
+    final void writeChar(char c) throws IOException {
+        require(3);
+        if (c < 0x80) {
+            write(c);
+        } else if (c < 0x800) {
+            write(0xc0 | c >> 6);
+            write(0x80 | c & 0x3f);
+        } else {
+            write(0xe0 | c >> 12);
+            write(0x80 | c >> 6 & 0x3f);
+            write(0x80 | c & 0x3f);
+        }
+    }
+
+    /**
+     * Writes the character at {@code index}, combined with the next one if they form a surrogate
+     * pair, and returns the index of the last character written.
+     */
+    final int writeCodePoint(String value, int index) throws IOException {
+        char c = value.charAt(index);
+        if (Character.isHighSurrogate(c) && index + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(index + 1))) {
+            int codePoint = Character.toCodePoint(c, value.charAt(index + 1));
+            require(4);
+            write(0xf0 | codePoint >> 18);
+            write(0x80 | codePoint >> 12 & 0x3f);
+            write(0x80 | codePoint >> 6 & 0x3f);
+            write(0x80 | codePoint & 0x3f);
+            return index + 1;
+        }
+        writeChar(c);
+        return index;
+    }
+
+    final void writeBase64(byte[] value) throws IOException {
+        for (int i = 0; i < value.length; i += 3) {
+            int remaining = value.length - i;
+            int bits = (value[i] & 0xff) << 16
+                    | (remaining > 1 ? (value[i + 1] & 0xff) << 8 : 0)
+                    | (remaining > 2 ? value[i + 2] & 0xff : 0);
+            require(4);
+            buffer[position++] = BASE64[bits >> 18 & 0x3f];
+            buffer[position++] = BASE64[bits >> 12 & 0x3f];
+            buffer[position++] = remaining > 1 ? BASE64[bits >> 6 & 0x3f] : (byte) '=';
+            buffer[position++] = remaining > 2 ? BASE64[bits & 0x3f] : (byte) '=';
+        }
+    }
+
+    /** Writes characters below 0x80, in chunks that fit the buffer. */
+    final void writeAscii(String value) throws IOException {
+        int start = 0;
+        while (start < value.length()) {
+            int end = start + Math.min(value.length() - start, buffer.length);
+            require(end - start);
+            for (int i = start; i < end; i++) {
+                write(value.charAt(i));
+            }
+            start = end;
+        }
+    }
+
+    final void writeBytes(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.length) {
+            out.write(buffer, 0, position);
+            position = 0;
+            out.write(bytes);
+            return;
+        }
+        require(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    /** Writes a byte, which {@link #require(int)} must have made room for. */
+    final void write(int b) {
+        buffer[position++] = (byte) b;
+    }
+
+    final void require(int count) throws IOException {
+        if (position + count > buffer.length) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
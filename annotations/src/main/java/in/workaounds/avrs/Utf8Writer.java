@@ -0,0 +1,55 @@
+package in.workaounds.avrs;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Decodes the output of a {@link Utf8Output} into a {@link Writer}, for callers that write text
+ * rather than bytes. {@link Utf8Output} makes room for a whole character before encoding it, so
+ * every write holds complete UTF-8 sequences and is decoded on its own.
+ */
+final class Utf8Writer extends OutputStream {
+    private final Writer writer;
+    private final CharsetDecoder decoder = Utf8Output.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CharBuffer chars = CharBuffer.allocate(8192);
+
+    Utf8Writer(Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(bytes, offset, length);
+        decoder.reset();
+        while (decoder.decode(in, chars, true).isOverflow()) {
+            drain();
+        }
+        while (decoder.flush(chars).isOverflow()) {
+            drain();
+        }
+        drain();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    private void drain() throws IOException {
+        chars.flip();
+        writer.write(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+        chars.clear();
+    }
+}
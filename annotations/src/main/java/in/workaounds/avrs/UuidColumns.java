@@ -0,0 +1,73 @@
+package in.workaounds.avrs;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.UUID;
+
+/**
+ * Reads {@link UUID} properties from binary, native and text columns.
+ */
+public final class UuidColumns {
+
+    private static final int UUID_BYTES = 16;
+
+    private UuidColumns() {
+        throw new AssertionError("No instances.");
+    }
+
+    /**
+     * Returns the column as a {@link UUID}, looking up its SQL type in the result set's metadata.
+     */
+    public static UUID getUuid(ResultSet resultSet, int columnIndex) throws SQLException {
+        return getUuid(resultSet, columnIndex, resultSet.getMetaData().getColumnType(columnIndex));
+    }
+
+    /**
+     * Returns the column as a {@link UUID}, or {@code null} for SQL {@code NULL}. Binary columns
+     * must hold 16 big-endian bytes, which are assembled into the two halves directly. Character
+     * columns are parsed with {@link UUID#fromString(String)}. Anything else, such as a native
+     * {@code uuid} column, is requested from the driver with {@code getObject(int, UUID.class)}.
+     *
+     * @param sqlType the column's {@link Types SQL type}, as resolved once by {@code findColumns}
+     */
+    public static UUID getUuid(ResultSet resultSet, int columnIndex, int sqlType)
+            throws SQLException {
+        switch (sqlType) {
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+                return fromBytes(resultSet.getBytes(columnIndex), columnIndex);
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                String value = resultSet.getString(columnIndex);
+                return value != null ? UUID.fromString(value.trim()) : null;
+            default:
+                return resultSet.getObject(columnIndex, UUID.class);
+        }
+    }
+
+    private static UUID fromBytes(byte[] bytes, int columnIndex) throws SQLException {
+        if (bytes == null) {
+            return null;
+        }
+        if (bytes.length != UUID_BYTES) {
+            throw new SQLException(String.format(
+                    "Column %d holds %d bytes, expected %d for a UUID",
+                    columnIndex, bytes.length, UUID_BYTES));
+        }
+        return new UUID(readLong(bytes, 0), readLong(bytes, 8));
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (bytes[i] & 0xff);
+        }
+        return value;
+    }
+}
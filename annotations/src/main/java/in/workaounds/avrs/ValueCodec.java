@@ -0,0 +1,21 @@
+package in.workaounds.avrs;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Encodes single values of a {@link BinaryCodec} type, which generates an implementation in the
+ * {@code CODEC} field of the AutoValue class.
+ */
+public interface ValueCodec<T> {
+    /**
+     * Returns the hash of the property names and types, which changes whenever the encoding
+     * does.
+     */
+    long schemaHash();
+
+    void write(T value, DataOutput out) throws IOException;
+
+    T read(DataInput in) throws IOException;
+}
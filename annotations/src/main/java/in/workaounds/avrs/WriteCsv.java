@@ -0,0 +1,19 @@
+package in.workaounds.avrs;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+/**
+ * Generates {@code writeCsv(ResultSet, OutputStream, CsvOptions)} and
+ * {@code writeCsv(ResultSet, Writer, CsvOptions)}, which write the remaining rows as CSV without
+ * creating the value objects, one column per property and per property of an
+ * {@link Embedded} type, headed by the column names. Values are written like {@link WriteJson}
+ * writes them, and the same properties are left out.
+ */
+@Retention(SOURCE)
+@Target(TYPE)
+public @interface WriteCsv {
+}
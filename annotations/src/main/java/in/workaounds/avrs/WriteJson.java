@@ -0,0 +1,21 @@
+package in.workaounds.avrs;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+/**
+ * Generates {@code writeJson(ResultSet, OutputStream)} and {@code writeJson(ResultSet, Writer)},
+ * which write the remaining rows as a JSON array of objects keyed by property name without
+ * creating the value objects. Values come
+ * straight from the typed getters through a {@link JsonOutput}: enums as their names, byte arrays
+ * as base64, dates and times as ISO-8601 strings, UUIDs as strings, and {@link TypeConverter}
+ * properties as the column value they are converted from. Properties read with an adapter,
+ * streamed or {@link Lazy} are left out.
+ */
+@Retention(SOURCE)
+@Target(TYPE)
+public @interface WriteJson {
+}
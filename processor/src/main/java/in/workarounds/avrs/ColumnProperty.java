@@ -1,30 +1,84 @@
 package in.workarounds.avrs;
 
+import in.workaounds.avrs.Children;
 import in.workaounds.avrs.ColumnAdapter;
 import in.workaounds.avrs.ColumnName;
+import in.workaounds.avrs.Embedded;
+import in.workaounds.avrs.EnumCode;
+import in.workaounds.avrs.EnumFallback;
+import in.workaounds.avrs.EpochMillis;
+import in.workaounds.avrs.Id;
+import in.workaounds.avrs.IfPresent;
+import in.workaounds.avrs.Intern;
+import in.workaounds.avrs.Ordinal;
+import in.workaounds.avrs.PrimitiveColumns;
+import in.workaounds.avrs.Lazy;
+import in.workaounds.avrs.LobColumns;
+import in.workaounds.avrs.Scaled;
+import in.workaounds.avrs.SortKey;
+import in.workaounds.avrs.Spill;
+import in.workaounds.avrs.TypeConverter;
+import in.workaounds.avrs.TypeConverters;
+import in.workaounds.avrs.UuidColumns;
 import com.gabrielittner.auto.value.util.Property;
+import com.google.auto.common.AnnotationMirrors;
+import com.google.auto.common.MoreElements;
+import com.google.auto.value.AutoValue;
 import com.google.auto.value.extension.AutoValueExtension;
+import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
 
 import static com.gabrielittner.auto.value.util.ElementUtil.getAnnotationValue;
+import static com.google.auto.common.MoreElements.getLocalAndInheritedMethods;
+import static com.google.auto.common.MoreElements.isAnnotationPresent;
 
 public final class ColumnProperty extends Property {
     public static final ClassName SQL_DATE = ClassName.bestGuess("java.sql.Date");
     public static final ClassName SQL_TIME = ClassName.bestGuess("java.sql.Time");
     public static final ClassName SQL_TIMESTAMP = ClassName.bestGuess("java.sql.Timestamp");
     public static final ClassName INPUT_STREAM = ClassName.bestGuess("java.io.InputStream");
+    public static final ClassName READER = ClassName.bestGuess("java.io.Reader");
+    public static final ClassName BYTE_BUFFER = ClassName.bestGuess("java.nio.ByteBuffer");
+    public static final ClassName LOB_COLUMNS = ClassName.get(LobColumns.class);
+    public static final ClassName LIST = ClassName.get("java.util", "List");
+    public static final ClassName SUPPLIER = ClassName.get("java.util.function", "Supplier");
+    public static final ClassName PRIMITIVE_COLUMNS = ClassName.get(PrimitiveColumns.class);
+    public static final ClassName UUID_COLUMNS = ClassName.get(UuidColumns.class);
+    public static final ClassName UUID = ClassName.get("java.util", "UUID");
+    public static final ClassName INSTANT = ClassName.get("java.time", "Instant");
+    public static final ClassName LOCAL_DATE = ClassName.get("java.time", "LocalDate");
+    public static final ClassName LOCAL_TIME = ClassName.get("java.time", "LocalTime");
+    public static final ClassName LOCAL_DATE_TIME = ClassName.get("java.time", "LocalDateTime");
+    public static final ClassName OFFSET_TIME = ClassName.get("java.time", "OffsetTime");
+    public static final ClassName OFFSET_DATE_TIME = ClassName.get("java.time", "OffsetDateTime");
 
     public static ImmutableList<ColumnProperty> from(AutoValueExtension.Context context) {
+        Elements elements = context.processingEnvironment().getElementUtils();
         ImmutableList.Builder<ColumnProperty> values = ImmutableList.builder();
         for (Map.Entry<String, ExecutableElement> entry : context.properties().entrySet()) {
-            values.add(new ColumnProperty(entry.getKey(), entry.getValue()));
+            values.add(new ColumnProperty(entry.getKey(), entry.getKey(), entry.getValue(), "",
+                    context.autoValueClass(), elements));
         }
         return values.build();
     }
@@ -51,34 +105,504 @@ public final class ColumnProperty extends Property {
                     SQL_DATE,
                     SQL_TIME,
                     SQL_TIMESTAMP,
-                    INPUT_STREAM);
+                    INPUT_STREAM,
+                    READER,
+                    UUID);
+
+    /**
+     * Types read with the JDBC 4.2 {@code getObject(int, Class)}, which lets the driver decode
+     * straight into {@code java.time} without a {@code java.sql} intermediate.
+     */
+    private static final List<TypeName> JAVA_TIME_TYPES =
+            Arrays.<TypeName>asList(
+                    INSTANT,
+                    LOCAL_DATE,
+                    LOCAL_TIME,
+                    LOCAL_DATE_TIME,
+                    OFFSET_TIME,
+                    OFFSET_DATE_TIME);
 
     private final String columnName;
+    private final String propertyName;
+    private final String columnPrefix;
+    private final Elements elements;
+    private final ExecutableElement converter;
+    private final TypeElement enumType;
     private final boolean supportedType;
+    private ImmutableList<ColumnProperty> embeddedProperties;
 
-    private ColumnProperty(String humanName, ExecutableElement element) {
+    /**
+     * @param humanName the name of the local variable the generated code reads the property into
+     * @param propertyName the name AutoValue gives the property, which is the default column name
+     * @param owner the value class that declares the property
+     */
+    private ColumnProperty(
+            String humanName,
+            String propertyName,
+            ExecutableElement element,
+            String columnPrefix,
+            TypeElement owner,
+            Elements elements) {
         super(humanName, element);
+        this.propertyName = propertyName;
+        this.columnPrefix = columnPrefix;
+        this.elements = elements;
         columnName = (String) getAnnotationValue(element, ColumnName.class, "value");
-        supportedType = SUPPORTED_TYPES.contains(type());
+        converter = findConverter(owner);
+        enumType = converter == null ? getEnumType(element.getReturnType()) : null;
+        supportedType = SUPPORTED_TYPES.contains(type())
+                || JAVA_TIME_TYPES.contains(type())
+                || converter != null
+                || (type().equals(BYTE_BUFFER) && spillThreshold() != null)
+                || (isSupplier(type()) && lazyDecoder() != null)
+                || enumType != null;
+    }
+
+    /**
+     * Returns the {@link TypeConverter} method for the property's type, looking in the type itself
+     * and then in the classes listed by {@link TypeConverters} on {@code owner}, its enclosing
+     * classes and its package.
+     */
+    private ExecutableElement findConverter(TypeElement owner) {
+        if (SUPPORTED_TYPES.contains(type()) || JAVA_TIME_TYPES.contains(type())) {
+            return null;
+        }
+        List<TypeElement> converterClasses = new ArrayList<>();
+        TypeMirror returnType = element().getReturnType();
+        if (returnType.getKind() == TypeKind.DECLARED) {
+            converterClasses.add((TypeElement) ((DeclaredType) returnType).asElement());
+        }
+        // Enclosing classes only: a package isn't reachable from the value class, which would make
+        // the extension aggregating.
+        for (Element enclosing = owner; enclosing instanceof TypeElement;
+                enclosing = enclosing.getEnclosingElement()) {
+            converterClasses.addAll(listedConverterClasses(enclosing));
+        }
+        for (TypeElement converterClass : converterClasses) {
+            for (ExecutableElement method
+                    : ElementFilter.methodsIn(converterClass.getEnclosedElements())) {
+                // Instance and private converters are found too, so that validation rejects them.
+                if (isAnnotationPresent(method, TypeConverter.class)
+                        && method.getParameters().size() == 1
+                        && TypeName.get(method.getReturnType()).equals(type())
+                        && isConvertible(TypeName.get(method.getParameters().get(0).asType()))) {
+                    return method;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static List<TypeElement> listedConverterClasses(Element element) {
+        Optional<AnnotationMirror> annotation =
+                MoreElements.getAnnotationMirror(element, TypeConverters.class);
+        if (!annotation.isPresent()) {
+            return ImmutableList.of();
+        }
+        ImmutableList.Builder<TypeElement> classes = ImmutableList.builder();
+        Object value = AnnotationMirrors.getAnnotationValue(annotation.get(), "value").getValue();
+        for (Object listed : (List<?>) value) {
+            TypeMirror type = (TypeMirror) ((AnnotationValue) listed).getValue();
+            if (type.getKind() == TypeKind.DECLARED) {
+                classes.add((TypeElement) ((DeclaredType) type).asElement());
+            }
+        }
+        return classes.build();
+    }
+
+    /**
+     * Returns whether a {@link TypeConverter} can take {@code type}, which must be read without
+     * any of the property annotations.
+     */
+    private static boolean isConvertible(TypeName type) {
+        return JAVA_TIME_TYPES.contains(type)
+                || (SUPPORTED_TYPES.contains(type)
+                        && !type.equals(INPUT_STREAM)
+                        && !type.equals(READER));
+    }
+
+    public static boolean isSupplier(TypeName type) {
+        return type instanceof ParameterizedTypeName
+                && ((ParameterizedTypeName) type).rawType.equals(SUPPLIER);
+    }
+
+    private static TypeElement getEnumType(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        Element element = ((DeclaredType) type).asElement();
+        return element.getKind() == ElementKind.ENUM ? (TypeElement) element : null;
     }
 
     public boolean supportedType() {
         return supportedType;
     }
 
+    /**
+     * Returns the {@link TypeConverter} method the property is read with, or {@code null} if its
+     * type is read directly.
+     */
+    public ExecutableElement converter() {
+        return converter;
+    }
+
+    /**
+     * Returns the name AutoValue gives the property. Unlike {@link #humanName()} it isn't
+     * prefixed for properties of an {@link Embedded} type.
+     */
+    public String propertyName() {
+        return propertyName;
+    }
+
     public String columnName() {
-        return columnName != null ? columnName : humanName();
+        return columnPrefix + (columnName != null ? columnName : propertyName);
+    }
+
+    /**
+     * Returns whether the column may be missing from the result set, see {@link IfPresent}.
+     */
+    public boolean ifPresent() {
+        return isAnnotationPresent(element(), IfPresent.class);
+    }
+
+    public boolean id() {
+        return isAnnotationPresent(element(), Id.class);
+    }
+
+    public boolean sortKey() {
+        return isAnnotationPresent(element(), SortKey.class);
+    }
+
+    public boolean children() {
+        return isAnnotationPresent(element(), Children.class);
+    }
+
+    /**
+     * Returns the element type of a {@link Children} property, or {@code null} if the property
+     * isn't a {@code java.util.List} of a declared type.
+     */
+    public TypeElement childType() {
+        if (!(type() instanceof ParameterizedTypeName)
+                || !((ParameterizedTypeName) type()).rawType.equals(LIST)) {
+            return null;
+        }
+        TypeMirror argument =
+                ((DeclaredType) element().getReturnType()).getTypeArguments().get(0);
+        return argument.getKind() == TypeKind.DECLARED
+                ? (TypeElement) ((DeclaredType) argument).asElement()
+                : null;
+    }
+
+    /**
+     * Returns the column given by {@link Children#key()}, or {@code null} if every row has a child.
+     */
+    public String childrenKey() {
+        String key = (String) getAnnotationValue(element(), Children.class, "key");
+        return key == null || key.isEmpty() ? null : key;
+    }
+
+    public boolean embedded() {
+        return isAnnotationPresent(element(), Embedded.class);
+    }
+
+    /**
+     * Returns the {@code @AutoValue} class of an {@link Embedded} property, or {@code null} if the
+     * property's type isn't one.
+     */
+    public TypeElement embeddedType() {
+        TypeMirror type = element().getReturnType();
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+        return isAnnotationPresent(element, AutoValue.class) ? element : null;
+    }
+
+    /**
+     * Returns the properties of {@link #embeddedType()} in the order of its AutoValue constructor.
+     * Their columns are prefixed with {@link Embedded#prefix()} and their local variables with
+     * this property's name.
+     */
+    public ImmutableList<ColumnProperty> embeddedProperties() {
+        if (embeddedProperties != null) {
+            return embeddedProperties;
+        }
+        String embeddedPrefix = (String) getAnnotationValue(element(), Embedded.class, "prefix");
+        String prefix = columnPrefix + (embeddedPrefix != null ? embeddedPrefix : "");
+        embeddedProperties = propertiesOf(embeddedType(), prefix);
+        return embeddedProperties;
+    }
+
+    /**
+     * Returns the properties of a {@link Children} property's child type, as the child's own
+     * {@code findColumns} reads them.
+     */
+    public ImmutableList<ColumnProperty> childProperties() {
+        return propertiesOf(childType(), "");
+    }
+
+    private ImmutableList<ColumnProperty> propertiesOf(TypeElement type, String prefix) {
+        List<ExecutableElement> methods = new ArrayList<>();
+        boolean allPrefixed = true;
+        for (ExecutableElement method : getLocalAndInheritedMethods(type, elements)) {
+            if (method.getModifiers().contains(Modifier.ABSTRACT)
+                    && method.getParameters().isEmpty()
+                    && method.getReturnType().getKind() != TypeKind.VOID
+                    && !method.getSimpleName().contentEquals("toString")
+                    && !method.getSimpleName().contentEquals("hashCode")) {
+                methods.add(method);
+                allPrefixed &= beanPropertyName(method) != null;
+            }
+        }
+        ImmutableList.Builder<ColumnProperty> values = ImmutableList.builder();
+        for (ExecutableElement method : methods) {
+            String name = allPrefixed
+                    ? beanPropertyName(method)
+                    : method.getSimpleName().toString();
+            String localName = humanName()
+                    + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            values.add(new ColumnProperty(localName, name, method, prefix, type, elements));
+        }
+        return values.build();
+    }
+
+    /**
+     * Returns the property name AutoValue derives from a {@code getFoo()} or {@code isFoo()}
+     * method, or {@code null} if the method doesn't have such a name.
+     */
+    private static String beanPropertyName(ExecutableElement method) {
+        String name = method.getSimpleName().toString();
+        int length;
+        if (name.startsWith("get") && name.length() > 3) {
+            length = 3;
+        } else if (name.startsWith("is") && name.length() > 2
+                && method.getReturnType().getKind() == TypeKind.BOOLEAN) {
+            length = 2;
+        } else {
+            return null;
+        }
+        return Character.toLowerCase(name.charAt(length)) + name.substring(length + 1);
     }
 
     public TypeMirror columnAdapter() {
         return (TypeMirror) getAnnotationValue(element(), ColumnAdapter.class, "value");
     }
 
-    public String resultSetMethod() {
+    /**
+     * Returns the capacity of the {@link Intern} table for this property, or {@code null} if the
+     * property isn't annotated with {@code @Intern}.
+     */
+    public Integer internCapacity() {
+        return (Integer) getAnnotationValue(element(), Intern.class, "value");
+    }
+
+    /**
+     * Returns the enum this property's type is, or {@code null} if it isn't an enum.
+     */
+    public TypeElement enumType() {
+        return enumType;
+    }
+
+    /**
+     * Returns the enum constants of {@link #enumType()} in declaration order.
+     */
+    public List<VariableElement> enumConstants() {
+        ImmutableList.Builder<VariableElement> constants = ImmutableList.builder();
+        for (Element element : enumType.getEnclosedElements()) {
+            if (element.getKind() == ElementKind.ENUM_CONSTANT) {
+                constants.add((VariableElement) element);
+            }
+        }
+        return constants.build();
+    }
+
+    /**
+     * Returns whether the enum is stored as an integer, either as its ordinal or as the codes
+     * given by {@link EnumCode}.
+     */
+    public boolean enumStoredAsInt() {
+        return ordinal() || enumCoded();
+    }
+
+    public boolean ordinal() {
+        return isAnnotationPresent(element(), Ordinal.class);
+    }
+
+    public boolean enumCoded() {
+        if (enumType == null) {
+            return false;
+        }
+        for (VariableElement constant : enumConstants()) {
+            if (isAnnotationPresent(constant, EnumCode.class)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String enumFallback() {
+        return (String) getAnnotationValue(element(), EnumFallback.class, "value");
+    }
+
+    public boolean epochMillis() {
+        return isAnnotationPresent(element(), EpochMillis.class);
+    }
+
+    /**
+     * Returns the number of decimal places given by {@link Scaled}, or {@code null} if the
+     * property isn't annotated with {@code @Scaled}.
+     */
+    public Integer scale() {
+        return (Integer) getAnnotationValue(element(), Scaled.class, "value");
+    }
+
+    /**
+     * Returns the heap threshold given by {@link Spill}, or {@code null} if the property isn't
+     * annotated with {@code @Spill}.
+     */
+    public Integer spillThreshold() {
+        return (Integer) getAnnotationValue(element(), Spill.class, "value");
+    }
+
+    /**
+     * Returns the {@link in.workaounds.avrs.ColumnDecoder} given by {@link Lazy}, or {@code null}
+     * if the property isn't annotated with {@code @Lazy}.
+     */
+    public TypeMirror lazyDecoder() {
+        return (TypeMirror) getAnnotationValue(element(), Lazy.class, "value");
+    }
+
+    /**
+     * Returns whether the column is read according to its SQL type, which {@code findColumns}
+     * then resolves once per result set.
+     */
+    public boolean needsSqlType() {
+        return supportedType
+                && columnAdapter() == null
+                && (UUID.equals(columnType())
+                        || converter == null && (epochMillis() || scale() != null));
+    }
+
+    /**
+     * Returns the code with which {@code findColumns} resolves the SQL type of a
+     * {@link #needsSqlType()} column from {@code metaData}, or for {@link Scaled} properties the
+     * {@link PrimitiveColumns#scaledReadMode read mode} of the column.
+     */
+    public CodeBlock sqlTypeLookup(Object columnIndex) {
+        if (converter == null && scale() != null) {
+            return CodeBlock.of("$T.scaledReadMode(metaData, $L, $L)",
+                    PRIMITIVE_COLUMNS, columnIndex, scale());
+        }
+        return CodeBlock.of("metaData.getColumnType($L)", columnIndex);
+    }
+
+    public CodeBlock resultSetMethod(Object columnIndex) {
+        return resultSetMethod(columnIndex, null);
+    }
+
+    /**
+     * Returns the code that reads the property's column. {@code sqlType} is the resolved
+     * {@link #sqlTypeLookup SQL type} of a {@link #needsSqlType()} column, or {@code null} to look
+     * it up in the metadata.
+     */
+    public CodeBlock resultSetMethod(Object columnIndex, Object sqlType) {
         if (!supportedType) {
             return null;
         }
-        TypeName type = type();
+        if (converter != null) {
+            TypeName columnType = TypeName.get(converter.getParameters().get(0).asType());
+            return convert(columnValue(columnType, columnIndex, sqlType));
+        }
+        if (type().equals(BYTE_BUFFER)) {
+            return CodeBlock.of("$T.getSpilled(resultSet, $L, $L)",
+                    LOB_COLUMNS, columnIndex, spillThreshold());
+        }
+        if (epochMillis()) {
+            return sqlType != null
+                    ? CodeBlock.of("$T.getEpochMillis(resultSet, $L, $L)",
+                            PRIMITIVE_COLUMNS, columnIndex, sqlType)
+                    : CodeBlock.of("$T.getEpochMillis(resultSet, $L)",
+                            PRIMITIVE_COLUMNS, columnIndex);
+        }
+        if (scale() != null) {
+            return sqlType != null
+                    ? CodeBlock.of("$T.getScaled(resultSet, $L, $L, $L)",
+                            PRIMITIVE_COLUMNS, columnIndex, scale(), sqlType)
+                    : CodeBlock.of("$T.getScaled(resultSet, $L, $L)",
+                            PRIMITIVE_COLUMNS, columnIndex, scale());
+        }
+        if (lazyDecoder() != null) {
+            return CodeBlock.of("resultSet.getBytes($L)", columnIndex);
+        }
+        if (enumType != null) {
+            String getter = enumStoredAsInt() ? "getInt" : "getString";
+            return CodeBlock.of("resultSet.$L($L)", getter, columnIndex);
+        }
+        return columnValue(type(), columnIndex, sqlType);
+    }
+
+    /** Returns the code that turns {@code columnValue} into the property with its converter. */
+    public CodeBlock convert(CodeBlock columnValue) {
+        return CodeBlock.of("$T.$N($L)",
+                ClassName.get((TypeElement) converter.getEnclosingElement()),
+                converter.getSimpleName().toString(),
+                columnValue);
+    }
+
+    /**
+     * Returns the type of the value read from the column before it is converted or decoded into
+     * the property, or {@code null} if the type isn't supported.
+     */
+    public TypeName columnType() {
+        if (!supportedType) {
+            return null;
+        }
+        if (converter != null) {
+            return TypeName.get(converter.getParameters().get(0).asType());
+        }
+        if (epochMillis() || scale() != null) {
+            // A @Nullable Long stays boxed, so that writers tell NULL apart from 0.
+            return type().isBoxedPrimitive() ? TypeName.LONG.box() : TypeName.LONG;
+        }
+        if (lazyDecoder() != null) {
+            return TypeName.get(byte[].class);
+        }
+        if (enumType != null) {
+            return enumStoredAsInt() ? TypeName.INT : TypeName.get(String.class);
+        }
+        return type();
+    }
+
+    /**
+     * Returns the code that reads the {@link #columnType()} value, which for {@link TypeConverter}
+     * properties is the converter's argument.
+     */
+    public CodeBlock columnValue(Object columnIndex) {
+        return columnValue(columnIndex, null);
+    }
+
+    /** Like {@link #columnValue(Object)}, with the resolved SQL type of the column if known. */
+    public CodeBlock columnValue(Object columnIndex, Object sqlType) {
+        if (converter != null) {
+            return columnValue(columnType(), columnIndex, sqlType);
+        }
+        return resultSetMethod(columnIndex, sqlType);
+    }
+
+    private static CodeBlock columnValue(TypeName type, Object columnIndex, Object sqlType) {
+        if (JAVA_TIME_TYPES.contains(type)) {
+            return CodeBlock.of("resultSet.getObject($L, $T.class)", columnIndex, type);
+        }
+        if (type.equals(UUID)) {
+            return sqlType != null
+                    ? CodeBlock.of("$T.getUuid(resultSet, $L, $L)",
+                            UUID_COLUMNS, columnIndex, sqlType)
+                    : CodeBlock.of("$T.getUuid(resultSet, $L)", UUID_COLUMNS, columnIndex);
+        }
+        return CodeBlock.of(resultSetGetter(type), columnIndex);
+    }
+
+    private static String resultSetGetter(TypeName type) {
         if (type.equals(TypeName.get(byte[].class)) || type.equals(TypeName.get(Byte[].class))) {
             return "resultSet.getBytes($L)";
         }
@@ -116,7 +640,10 @@ public final class ColumnProperty extends Property {
             return "resultSet.getTimestamp($L)";
         }
         if (type.equals(INPUT_STREAM)) {
-            return "resultSet.getAsciiStream($L)";
+            return "resultSet.getBinaryStream($L)";
+        }
+        if (type.equals(READER)) {
+            return "resultSet.getCharacterStream($L)";
         }
         throw new AssertionError(
                 String.format("supportedType is true but type %s isn't handled", type));
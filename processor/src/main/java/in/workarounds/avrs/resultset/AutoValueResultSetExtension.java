@@ -1,12 +1,26 @@
 package in.workarounds.avrs.resultset;
 
+import in.workaounds.avrs.BinaryCodec;
+import in.workaounds.avrs.EstimateSize;
+import in.workaounds.avrs.FlightRecorded;
+import in.workaounds.avrs.Instrumented;
+import in.workaounds.avrs.LazyRow;
+import in.workaounds.avrs.MappingListeners;
+import in.workaounds.avrs.OptionalColumns;
+import in.workaounds.avrs.Queryable;
+import in.workaounds.avrs.RowView;
+import in.workaounds.avrs.StringInterner;
+import in.workaounds.avrs.WriteCsv;
+import in.workaounds.avrs.WriteJson;
 import in.workarounds.avrs.ColumnProperty;
 import com.gabrielittner.auto.value.util.ElementUtil;
 import com.gabrielittner.auto.value.util.Property;
 import com.google.auto.service.AutoService;
 import com.google.auto.value.extension.AutoValueExtension;
+import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.squareup.javapoet.ArrayTypeName;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.FieldSpec;
@@ -17,10 +31,17 @@ import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
 
 import static com.gabrielittner.auto.value.util.AutoValueUtil.error;
 import static com.gabrielittner.auto.value.util.AutoValueUtil.getAutoValueClassClassName;
@@ -28,7 +49,10 @@ import static com.gabrielittner.auto.value.util.AutoValueUtil.getFinalClassClass
 import static com.gabrielittner.auto.value.util.AutoValueUtil.newFinalClassConstructorCall;
 import static com.gabrielittner.auto.value.util.AutoValueUtil.newTypeSpecBuilder;
 import static com.gabrielittner.auto.value.util.ElementUtil.getMatchingStaticMethod;
+import static com.google.auto.common.MoreElements.getPackage;
+import static com.google.auto.common.MoreElements.isAnnotationPresent;
 import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
 import static javax.lang.model.element.Modifier.PUBLIC;
 import static javax.lang.model.element.Modifier.STATIC;
 
@@ -38,11 +62,20 @@ public class AutoValueResultSetExtension extends AutoValueExtension {
     private static final ClassName SQL_EXCEPTION = ClassName.get("java.sql", "SQLException");
     private static final ClassName RX_EXCEPTIONS = ClassName.get("rx.exceptions", "Exceptions");
     private static final ClassName RESULT_SET = ClassName.get("java.sql", "ResultSet");
+    private static final ClassName RESULT_SET_META_DATA =
+            ClassName.get("java.sql", "ResultSetMetaData");
     private static final ClassName FUNC1 = ClassName.get("rx.functions", "Func1");
+    private static final ClassName LIST = ClassName.get(List.class);
+    private static final ClassName ARRAY_LIST = ClassName.get(ArrayList.class);
+    private static final TypeName STRING = TypeName.get(String.class);
+    private static final TypeName INT_ARRAY = TypeName.get(int[].class);
 
-    private static final String METHOD_NAME = "createFromResultSet";
+    static final String METHOD_NAME = "createFromResultSet";
+    static final String LIST_METHOD_NAME = "createListFromResultSet";
+    static final String FIND_COLUMNS_METHOD_NAME = "findColumns";
     private static final String FUNC1_FIELD_NAME = "MAPPER";
     private static final String FUNC1_METHOD_NAME = "call";
+    private static final String INSTRUMENTED_FIELD_NAME = "INSTRUMENTED";
 
     @Override
     public boolean applicable(Context context) {
@@ -51,14 +84,155 @@ public class AutoValueResultSetExtension extends AutoValueExtension {
                 || getMatchingStaticMethod(valueClass, getFunc1TypeName(context)).isPresent();
     }
 
+    /**
+     * Returns whether {@code valueClass} declares one of the methods that make this extension
+     * generate its reads, so that other generated code can call them.
+     */
+    static boolean applicable(TypeElement valueClass) {
+        ClassName valueClassName = ClassName.get(valueClass);
+        return getMatchingStaticMethod(valueClass, valueClassName, RESULT_SET).isPresent()
+                || getMatchingStaticMethod(valueClass,
+                        ParameterizedTypeName.get(FUNC1, RESULT_SET, valueClassName)).isPresent();
+    }
+
+    /**
+     * The generated class only depends on types reachable from the value class: its property
+     * types, including {@code @Embedded} and {@code @Children} types and enum constants, and the
+     * classes listed in {@code @TypeConverters} on it or its enclosing classes.
+     */
+    @Override
+    public IncrementalExtensionType incrementalType(ProcessingEnvironment processingEnvironment) {
+        return IncrementalExtensionType.ISOLATING;
+    }
+
     @Override
     public String generateClass(
             Context context, String className, String classToExtend, boolean isFinal) {
         ImmutableList<ColumnProperty> properties = ColumnProperty.from(context);
+        validate(context, properties);
+        boolean instrumented = isInstrumented(context);
+        boolean flightRecorder =
+                isAnnotationPresent(context.autoValueClass(), FlightRecorded.class);
+        Elements elements = context.processingEnvironment().getElementUtils();
+        if (flightRecorder && !FlightRecorderEvents.available(elements)) {
+            context.processingEnvironment().getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "@FlightRecorded requires jdk.jfr.Event on the compile classpath.",
+                    context.autoValueClass());
+            flightRecorder = false;
+        }
+        boolean timedAdapters = timesAdapters(flightRecorder, properties);
 
         TypeSpec.Builder subclass =
                 newTypeSpecBuilder(context, className, classToExtend, isFinal)
-                        .addMethod(createReadMethod(context, properties));
+                        .addMethod(createReadMethod(
+                                context, properties, instrumented, false, false))
+                        .addMethod(createFindColumnsMethod(properties));
+        if (timedAdapters) {
+            subclass.addMethod(createUntimedReadMethod(context));
+        }
+        subclass.addMethod(createReadMethod(context, properties, instrumented, true, timedAdapters))
+                .addMethod(createListMethod(context, properties, flightRecorder));
+
+        if (GroupedRows.applicable(properties)) {
+            subclass.addMethod(GroupedRows.createGroupedListMethod(
+                    context, properties, instrumented, flightRecorder));
+        }
+
+        if (IdentityRows.idProperty(properties) != null) {
+            if (timedAdapters) {
+                subclass.addMethod(IdentityRows.createUntimedReadMethod(context));
+            }
+            subclass.addMethod(IdentityRows.createReadMethod(
+                            context, properties, instrumented, timedAdapters))
+                    .addMethod(IdentityRows.createListMethod(context, properties, flightRecorder));
+        }
+
+        boolean queryable = isAnnotationPresent(context.autoValueClass(), Queryable.class);
+        boolean paged = KeysetPagination.sortKeyProperty(properties) != null;
+        if (queryable || paged) {
+            subclass.addField(QueryMethods.createRowBytesField(properties));
+        }
+        if (queryable) {
+            subclass.addMethod(QueryMethods.createQueryMethod(context))
+                    .addMethod(QueryMethods.createQueryEachMethod(
+                            context, properties, flightRecorder))
+                    .addMethod(QueryMethods.createPrefetchMethod(
+                            context, properties, flightRecorder));
+        }
+        if (paged) {
+            subclass.addMethod(KeysetPagination.createPagesMethod(context, properties));
+        }
+
+        if (isAnnotationPresent(context.autoValueClass(), LazyRow.class)) {
+            ExecutableElement unsupported = LazyRows.unsupportedAbstractMethod(context);
+            if (unsupported != null) {
+                context.processingEnvironment().getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "@LazyRow can't be used with abstract methods that aren't properties.",
+                        unsupported);
+            } else {
+                subclass.addMethod(LazyRows.createReadMethod(context, properties, false))
+                        .addMethod(LazyRows.createReadMethod(context, properties, true))
+                        .addMethod(LazyRows.createListMethod(
+                                context, properties, flightRecorder))
+                        .addType(LazyRows.createLazyRowClass(context, properties));
+            }
+        }
+
+        if (isAnnotationPresent(context.autoValueClass(), RowView.class)) {
+            subclass.addMethod(RowViews.createForEachMethod(context, flightRecorder))
+                    .addType(RowViews.createViewClass(context, properties));
+        }
+
+        if (isAnnotationPresent(context.autoValueClass(), WriteJson.class)) {
+            subclass.addMethods(JsonWriters.createWriteMethods(properties))
+                    .addFields(JsonWriters.createNameFields(properties));
+        }
+
+        if (isAnnotationPresent(context.autoValueClass(), WriteCsv.class)) {
+            subclass.addMethods(CsvWriters.createWriteMethods(properties))
+                    .addField(CsvWriters.createHeaderField(properties));
+        }
+
+        boolean binaryCodec = isAnnotationPresent(context.autoValueClass(), BinaryCodec.class)
+                && BinaryCodecs.applicable(properties);
+        if (binaryCodec) {
+            subclass.addField(BinaryCodecs.createSchemaHashField(properties))
+                    .addField(BinaryCodecs.createCodecField(context, properties))
+                    .addMethod(BinaryCodecs.createWriteListMethod(context))
+                    .addMethod(BinaryCodecs.createReadListMethod(context));
+        }
+
+        if (isAnnotationPresent(context.autoValueClass(), EstimateSize.class)) {
+            subclass.addMethod(SizeEstimates.createEstimateMethod(context, properties));
+        }
+
+        if (instrumented) {
+            subclass.addField(createInstrumentedField());
+        }
+
+        List<String> lazyDecoders = new ArrayList<>();
+        for (ColumnProperty property : columnLayout(properties)) {
+            if (property.internCapacity() != null) {
+                subclass.addField(createInternerField(property));
+            }
+            if (property.lazyDecoder() != null && property.supportedType()) {
+                String decoderField = LazyColumns.decoderFieldName(property);
+                if (lazyDecoders.isEmpty()) {
+                    subclass.addType(LazyColumns.createLazyColumnClass());
+                }
+                if (!lazyDecoders.contains(decoderField)) {
+                    subclass.addField(LazyColumns.createDecoderField(property));
+                    lazyDecoders.add(decoderField);
+                }
+            }
+            if (property.enumType() != null && property.columnAdapter() == null) {
+                if (property.ordinal()
+                        || (binaryCodec && BinaryCodecs.needsValuesField(property))) {
+                    subclass.addField(EnumDecoders.createValuesField(property));
+                }
+                subclass.addMethod(EnumDecoders.createDecodeMethod(context, property));
+            }
+        }
 
         if (ElementUtil.typeExists(context.processingEnvironment().getElementUtils(), FUNC1)) {
             subclass.addField(createMapper(context));
@@ -67,74 +241,655 @@ public class AutoValueResultSetExtension extends AutoValueExtension {
         return JavaFile.builder(context.packageName(), subclass.build()).build().toString();
     }
 
-    private MethodSpec createReadMethod(Context context, ImmutableList<ColumnProperty> properties) {
+    private void validate(Context context, ImmutableList<ColumnProperty> properties) {
+        for (ColumnProperty property : columnLayout(properties)) {
+            if (property.embedded()) {
+                validateEmbedded(context, property);
+                continue;
+            }
+            if (property.columnAdapter() == null && property.converter() != null) {
+                validateConverter(context, property);
+            }
+            if (property.columnAdapter() == null
+                    && !property.supportedType()
+                    && !property.children()
+                    && !property.nullable()) {
+                error(context, property, "Property has type that can't be read from ResultSet.");
+            }
+            if (property.internCapacity() != null
+                    && (property.columnAdapter() != null || !property.type().equals(STRING))) {
+                error(context, property, "Only String properties read from ResultSet can be "
+                        + "annotated with @Intern.");
+            }
+            if ((property.ordinal() || property.enumFallback() != null)
+                    && property.enumType() == null) {
+                error(context, property, "Only enum properties can be annotated with @Ordinal or "
+                        + "@EnumFallback.");
+            }
+            if ((property.epochMillis() || property.scale() != null)
+                    && (property.columnAdapter() != null
+                            || !(property.type().equals(TypeName.LONG)
+                                    || property.type().equals(TypeName.LONG.box())))) {
+                error(context, property, "Only long properties read from ResultSet can be "
+                        + "annotated with @EpochMillis or @Scaled.");
+            }
+            if (property.spillThreshold() != null
+                    && (property.columnAdapter() != null
+                            || !property.type().equals(ColumnProperty.BYTE_BUFFER))) {
+                error(context, property, "Only ByteBuffer properties read from ResultSet can be "
+                        + "annotated with @Spill.");
+            }
+            if (property.lazyDecoder() != null
+                    && (property.columnAdapter() != null
+                            || !ColumnProperty.isSupplier(property.type()))) {
+                error(context, property, "Only java.util.function.Supplier properties read from "
+                        + "ResultSet can be annotated with @Lazy.");
+            }
+            if (property.scale() != null && (property.scale() < 0 || property.scale() > 18)) {
+                error(context, property, "@Scaled must be between 0 and 18.");
+            }
+            if (property.ifPresent()
+                    && (property.columnAdapter() != null
+                            || !(property.type().isPrimitive() || property.nullable()))) {
+                error(context, property, "Only primitive or @Nullable properties read from "
+                        + "ResultSet can be annotated with @IfPresent.");
+            }
+            if (property.id()
+                    && (property.columnAdapter() != null
+                            || !property.supportedType()
+                            || property.nullable()
+                            || property.ifPresent()
+                            || property.lazyDecoder() != null)) {
+                error(context, property, "Only non-null properties read from ResultSet can be "
+                        + "annotated with @Id.");
+            } else if (property.id() && !comparableByValue(property.columnType())) {
+                error(context, property, "@Id properties are compared with equals(), so they "
+                        + "can't be arrays or streams.");
+            }
+        }
+        GroupedRows.validate(context, properties);
+        KeysetPagination.validate(context, properties);
+        if (isAnnotationPresent(context.autoValueClass(), BinaryCodec.class)) {
+            BinaryCodecs.validate(context, properties);
+        }
+        if (isAnnotationPresent(context.autoValueClass(), RowView.class)) {
+            RowViews.validate(context, properties);
+        }
+    }
+
+    /** Returns whether values of the column type are equal when their contents are. */
+    private static boolean comparableByValue(TypeName type) {
+        return !(type instanceof ArrayTypeName)
+                && !type.equals(ColumnProperty.INPUT_STREAM)
+                && !type.equals(ColumnProperty.READER);
+    }
+
+    /** Checks that the generated class can call the property's converter. */
+    private static void validateConverter(Context context, ColumnProperty property) {
+        ExecutableElement converter = property.converter();
+        Set<Modifier> modifiers = converter.getModifiers();
+        TypeElement owner = (TypeElement) converter.getEnclosingElement();
+        String name = owner.getSimpleName() + "." + converter.getSimpleName();
+        if (!modifiers.contains(STATIC)) {
+            error(context, property, String.format("@TypeConverter %s must be static.", name));
+        } else if (modifiers.contains(PRIVATE)) {
+            error(context, property, String.format("@TypeConverter %s can't be private.", name));
+        } else if (!modifiers.contains(PUBLIC) && !getPackage(owner).getQualifiedName()
+                .contentEquals(context.packageName())) {
+            error(context, property, String.format(
+                    "@TypeConverter %s must be public to be used from another package.", name));
+        }
+    }
+
+    private static void validateEmbedded(Context context, ColumnProperty property) {
+        TypeElement embeddedType = property.embeddedType();
+        if (property.columnAdapter() != null || embeddedType == null) {
+            error(context, property, "@Embedded properties must be an @AutoValue class.");
+        } else if (property.nullable()) {
+            error(context, property, "@Embedded properties can't be @Nullable.");
+        } else if (!getPackage(embeddedType).getQualifiedName().contentEquals(
+                context.packageName())) {
+            error(context, property, "@Embedded properties must be a value type in the same "
+                    + "package.");
+        }
+    }
+
+    /**
+     * Returns the properties in the order of the indices returned by {@code findColumns}: the
+     * value type's own, followed by those of {@link ColumnProperty#embedded()} properties.
+     */
+    static ImmutableList<ColumnProperty> columnLayout(List<ColumnProperty> properties) {
+        ImmutableList.Builder<ColumnProperty> layout = ImmutableList.builder();
+        layout.addAll(properties);
+        for (ColumnProperty property : properties) {
+            if (property.embedded() && property.embeddedType() != null) {
+                layout.addAll(columnLayout(property.embeddedProperties()));
+            }
+        }
+        return layout.build();
+    }
+
+    /**
+     * Creates {@code createFromResultSet}. The single row variant finds its columns by name, the
+     * bound variant takes the indices returned by {@code findColumns}. A {@code timed} bound
+     * variant also takes the {@code MappingBatchEvent} that adapter time is added to.
+     */
+    private MethodSpec createReadMethod(
+            Context context,
+            ImmutableList<ColumnProperty> properties,
+            boolean instrumented,
+            boolean bound,
+            boolean timed) {
         MethodSpec.Builder readMethod =
                 MethodSpec.methodBuilder(METHOD_NAME)
                         .addModifiers(STATIC)
                         .returns(getFinalClassClassName(context))
                         .addException(SQL_EXCEPTION)
                         .addParameter(RESULT_SET, "resultSet");
+        if (bound) {
+            readMethod.addParameter(INT_ARRAY, "columns");
+        }
+        if (timed) {
+            readMethod.addParameter(
+                    FlightRecorderEvents.EVENT, FlightRecorderEvents.VARIABLE_NAME);
+        }
 
-        ImmutableMap<Property, FieldSpec> columnAdapters = getColumnAdapters(properties);
-        addColumnAdaptersToMethod(readMethod, properties, columnAdapters);
+        if (instrumented) {
+            readMethod.addStatement(
+                    "long startNanos = $N ? $T.nanoTime() : 0L", INSTRUMENTED_FIELD_NAME, System.class);
+        }
+
+        ImmutableList<ColumnProperty> layout = columnLayout(properties);
+        ImmutableMap<Property, FieldSpec> columnAdapters = getColumnAdapters(layout);
+        addColumnAdaptersToMethod(readMethod, layout, columnAdapters);
 
+        readMethod.addCode(readProperties(context, properties, columnAdapters, instrumented, bound,
+                false, layout, timed));
         String[] names = new String[properties.size()];
         for (int i = 0; i < properties.size(); i++) {
-            ColumnProperty property = properties.get(i);
-            names[i] = property.humanName();
+            names[i] = properties.get(i).humanName();
+        }
 
+        if (!instrumented) {
+            return readMethod
+                    .addCode("return ")
+                    .addCode(newFinalClassConstructorCall(context, names))
+                    .build();
+        }
+        return readMethod
+                .addCode("$T mapped = ", getFinalClassClassName(context))
+                .addCode(newFinalClassConstructorCall(context, names))
+                .beginControlFlow("if ($N)", INSTRUMENTED_FIELD_NAME)
+                .addStatement(
+                        "$T.get().onRowMapped($T.class, $T.nanoTime() - startNanos)",
+                        MappingListeners.class,
+                        getAutoValueClassClassName(context),
+                        System.class)
+                .endControlFlow()
+                .addStatement("return mapped")
+                .build();
+    }
+
+    /** Creates the bound {@code createFromResultSet} of types that also have a timed one. */
+    private static MethodSpec createUntimedReadMethod(Context context) {
+        return MethodSpec.methodBuilder(METHOD_NAME)
+                .addModifiers(STATIC)
+                .returns(getFinalClassClassName(context))
+                .addException(SQL_EXCEPTION)
+                .addParameter(RESULT_SET, "resultSet")
+                .addParameter(INT_ARRAY, "columns")
+                // Cast, as the read taking an IdentityMap would match null too.
+                .addStatement("return $L(resultSet, columns, ($T) null)",
+                        METHOD_NAME, FlightRecorderEvents.EVENT)
+                .build();
+    }
+
+    /**
+     * Returns whether the bulk reads of a {@code @FlightRecorded} type time its column adapters,
+     * through bound read methods that take the event.
+     */
+    static boolean timesAdapters(boolean flightRecorder, List<ColumnProperty> properties) {
+        return flightRecorder && !getColumnAdapters(columnLayout(properties)).isEmpty();
+    }
+
+    /**
+     * Returns the bound {@code createFromResultSet} call of the bulk reads, which passes the
+     * event to a timed read method if there is one.
+     */
+    static CodeBlock readRow(boolean timedAdapters) {
+        return timedAdapters
+                ? CodeBlock.of("$L(resultSet, columns, $N)",
+                        METHOD_NAME, FlightRecorderEvents.VARIABLE_NAME)
+                : CodeBlock.of("$L(resultSet, columns)", METHOD_NAME);
+    }
+
+    /**
+     * Declares a local variable for every property. Bound reads take the column indices from
+     * {@code columns}, grouped reads leave {@link ColumnProperty#children()} properties to the
+     * caller. The adapters must include those of embedded properties.
+     */
+    static CodeBlock readProperties(
+            Context context,
+            List<ColumnProperty> properties,
+            ImmutableMap<Property, FieldSpec> columnAdapters,
+            boolean instrumented,
+            boolean bound,
+            boolean grouped) {
+        return readProperties(context, properties, columnAdapters, instrumented, bound, grouped,
+                columnLayout(properties));
+    }
+
+    /**
+     * Like {@link #readProperties(Context, List, ImmutableMap, boolean, boolean, boolean)}, for
+     * some of the properties of {@code layout}.
+     */
+    static CodeBlock readProperties(
+            Context context,
+            List<ColumnProperty> properties,
+            ImmutableMap<Property, FieldSpec> columnAdapters,
+            boolean instrumented,
+            boolean bound,
+            boolean grouped,
+            List<ColumnProperty> layout) {
+        return readProperties(context, properties, columnAdapters, instrumented, bound, grouped,
+                layout, false);
+    }
+
+    /**
+     * Like {@link #readProperties(Context, List, ImmutableMap, boolean, boolean, boolean, List)},
+     * adding the time spent in adapters to the {@code MappingBatchEvent} variable, if it isn't
+     * {@code null}, when {@code timeAdapters} is set.
+     */
+    static CodeBlock readProperties(
+            Context context,
+            List<ColumnProperty> properties,
+            ImmutableMap<Property, FieldSpec> columnAdapters,
+            boolean instrumented,
+            boolean bound,
+            boolean grouped,
+            List<ColumnProperty> layout,
+            boolean timeAdapters) {
+        CodeBlock.Builder reads = CodeBlock.builder();
+        for (ColumnProperty property : properties) {
             if (property.columnAdapter() != null) {
-                readMethod.addStatement(
-                        "$T $N = $N.fromResultSet(resultSet, $S)",
+                if (instrumented || timeAdapters) {
+                    reads.add(readTimedAdapterProperty(context, property,
+                            columnAdapters.get(property), instrumented, timeAdapters));
+                } else {
+                    reads.addStatement(
+                            "$T $N = $N.fromResultSet(resultSet, $S)",
+                            property.type(),
+                            property.humanName(),
+                            columnAdapters.get(property),
+                            property.columnName());
+                }
+            } else if (property.supportedType()) {
+                CodeBlock columnIndex = bound
+                        ? CodeBlock.of("columns[$L]", indexOf(layout, property))
+                        : getColumnIndex(property);
+                CodeBlock sqlType = bound ? sqlType(layout, property) : null;
+                reads.add(readProperty(property, columnIndex, sqlType));
+                if (instrumented) {
+                    reads.add(reportNull(context, property));
+                }
+            } else if (property.embedded() && property.embeddedType() != null) {
+                List<ColumnProperty> embedded = property.embeddedProperties();
+                reads.add(readProperties(context, embedded, columnAdapters, instrumented, bound,
+                        grouped, layout, timeAdapters));
+                List<String> names = new ArrayList<>();
+                for (ColumnProperty embeddedProperty : embedded) {
+                    names.add(embeddedProperty.humanName());
+                }
+                reads.addStatement("$T $N = new $T($L)",
                         property.type(),
                         property.humanName(),
-                        columnAdapters.get(property),
-                        property.columnName());
-            } else if (property.supportedType()) {
-                if (property.nullable()) {
-                    readMethod.addCode(readNullableProperty(property));
-                } else {
-                    readMethod.addCode(readProperty(property));
+                        finalClassName(property.embeddedType()),
+                        Joiner.on(", ").join(names));
+            } else if (property.children()) {
+                if (!grouped) {
+                    reads.addStatement("$T $N = $T.emptyList()",
+                            property.type(), property.humanName(), Collections.class);
                 }
             } else if (property.nullable()) {
-                readMethod.addCode(
-                        "$T $N = null; // can't be read from resultSet\n",
+                reads.add("$T $N = null; // can't be read from resultSet\n",
                         property.type(),
                         property.humanName());
-            } else {
-                error(context, property, "Property has type that can't be read from ResultSet.");
             }
         }
-        return readMethod
-                .addCode("return ")
-                .addCode(newFinalClassConstructorCall(context, names))
+        return reads.build();
+    }
+
+    /**
+     * Returns where {@code findColumns} stores the {@link ColumnProperty#sqlTypeLookup SQL type} of
+     * a {@link ColumnProperty#needsSqlType()} property, after the column indices of the layout, or
+     * {@code null} if the property doesn't need it.
+     */
+    static CodeBlock sqlType(List<ColumnProperty> layout, ColumnProperty property) {
+        if (!property.needsSqlType()) {
+            return null;
+        }
+        int index = layout.size();
+        for (ColumnProperty other : layout) {
+            if (other == property) {
+                return CodeBlock.of("columns[$L]", index);
+            }
+            if (other.needsSqlType()) {
+                index++;
+            }
+        }
+        throw new AssertionError(property.humanName() + " isn't part of the column layout");
+    }
+
+    static int indexOf(List<ColumnProperty> layout, ColumnProperty property) {
+        for (int i = 0; i < layout.size(); i++) {
+            if (layout.get(i) == property) {
+                return i;
+            }
+        }
+        throw new AssertionError(property.humanName() + " isn't part of the column layout");
+    }
+
+    /**
+     * Returns the class AutoValue generates for {@code valueClass}, which for nested classes joins
+     * the enclosing names with underscores.
+     */
+    static ClassName finalClassName(TypeElement valueClass) {
+        ClassName name = ClassName.get(valueClass);
+        return ClassName.get(name.packageName(),
+                "AutoValue_" + Joiner.on('_').join(name.simpleNames()));
+    }
+
+    /**
+     * Reads an adapter property, reporting the time spent in the adapter to the listener if
+     * {@code instrumented} and adding it to the {@code MappingBatchEvent} if {@code timed}.
+     */
+    private static CodeBlock readTimedAdapterProperty(Context context, ColumnProperty property,
+            FieldSpec adapter, boolean instrumented, boolean timed) {
+        String startVar = property.humanName() + "StartNanos";
+        CodeBlock.Builder timing = CodeBlock.builder();
+        if (instrumented) {
+            timing.add("$N", INSTRUMENTED_FIELD_NAME);
+        }
+        if (timed) {
+            timing.add(instrumented ? " || " : "")
+                    .add("$N != null", FlightRecorderEvents.VARIABLE_NAME);
+        }
+        CodeBlock.Builder read = CodeBlock.builder()
+                .addStatement(
+                        "long $L = $L ? $T.nanoTime() : 0L",
+                        startVar,
+                        timing.build(),
+                        System.class)
+                .addStatement(
+                        "$T $N = $N.fromResultSet(resultSet, $S)",
+                        property.type(),
+                        property.humanName(),
+                        adapter,
+                        property.columnName());
+        if (instrumented) {
+            read.beginControlFlow("if ($N)", INSTRUMENTED_FIELD_NAME)
+                    .addStatement(
+                            "$T.get().onAdapter($T.class, $S, $T.nanoTime() - $L)",
+                            MappingListeners.class,
+                            getAutoValueClassClassName(context),
+                            property.columnName(),
+                            System.class,
+                            startVar)
+                    .endControlFlow();
+        }
+        if (timed) {
+            read.beginControlFlow("if ($N != null)", FlightRecorderEvents.VARIABLE_NAME)
+                    .addStatement("$N.addAdapterNanos($T.nanoTime() - $L)",
+                            FlightRecorderEvents.VARIABLE_NAME, System.class, startVar)
+                    .endControlFlow();
+        }
+        return read.build();
+    }
+
+    private static CodeBlock reportNull(Context context, ColumnProperty property) {
+        CodeBlock.Builder isNull = CodeBlock.builder();
+        if (property.ifPresent()) {
+            // An absent column wasn't read, so neither wasNull() nor the default value tell.
+            isNull.add("$L != 0 && ", columnIndexVar(property));
+        }
+        if (property.type().isPrimitive()) {
+            isNull.add("resultSet.wasNull()");
+        } else {
+            isNull.add("$N == null", property.humanName());
+        }
+        return CodeBlock.builder()
+                .beginControlFlow("if ($N && $L)", INSTRUMENTED_FIELD_NAME, isNull.build())
+                .addStatement(
+                        "$T.get().onNull($T.class, $S)",
+                        MappingListeners.class,
+                        getAutoValueClassClassName(context),
+                        property.columnName())
+                .endControlFlow()
                 .build();
     }
 
-    private CodeBlock readProperty(ColumnProperty property) {
-        CodeBlock getValue = CodeBlock.of(property.resultSetMethod(), getColumnIndex(property));
+    private MethodSpec createListMethod(
+            Context context, ImmutableList<ColumnProperty> properties, boolean flightRecorder) {
+        TypeName valueType = getAutoValueClassClassName(context);
+        MethodSpec.Builder listMethod =
+                MethodSpec.methodBuilder(LIST_METHOD_NAME)
+                        .addModifiers(STATIC)
+                        .returns(ParameterizedTypeName.get(LIST, valueType))
+                        .addException(SQL_EXCEPTION)
+                        .addParameter(RESULT_SET, "resultSet")
+                        .addStatement("$T columns = $L(resultSet)", INT_ARRAY, FIND_COLUMNS_METHOD_NAME)
+                        .addStatement("$T<$T> values = new $T<>()", LIST, valueType, ARRAY_LIST);
+
+        if (!flightRecorder) {
+            return listMethod
+                    .beginControlFlow("while (resultSet.next())")
+                    .addStatement("values.add($L)", readRow(false))
+                    .endControlFlow()
+                    .addStatement("return values")
+                    .build();
+        }
+        return listMethod
+                .addCode(FlightRecorderEvents.start(valueType, LIST_METHOD_NAME))
+                .beginControlFlow("while ($L)", FlightRecorderEvents.next(true))
+                .addStatement("$T value = $L", getFinalClassClassName(context),
+                        readRow(timesAdapters(true, properties)))
+                .addCode(FlightRecorderEvents.countLobs(properties, "value"))
+                .addStatement("values.add(value)")
+                .endControlFlow()
+                .addCode(FlightRecorderEvents.finish())
+                .addStatement("return values")
+                .build();
+    }
+
+    private static CodeBlock readProperty(
+            ColumnProperty property, CodeBlock columnIndex, CodeBlock sqlType) {
+        if (!needsColumnIndexVar(property)) {
+            return CodeBlock.builder()
+                    .addStatement("$T $N = $L", property.type(), property.humanName(),
+                            readValue(property, columnIndex, sqlType))
+                    .build();
+        }
+        String columnIndexVar = columnIndexVar(property);
+        CodeBlock getValue = guardValue(
+                property, columnIndexVar, readValue(property, columnIndexVar, sqlType));
         return CodeBlock.builder()
+                .addStatement("int $L = $L", columnIndexVar, columnIndex)
                 .addStatement("$T $N = $L", property.type(), property.humanName(), getValue)
                 .build();
     }
 
-    private CodeBlock readNullableProperty(ColumnProperty property) {
-        String columnIndexVar = property.humanName() + "ColumnIndex";
-        CodeBlock getValue =
-                CodeBlock.builder()
-                        .add("resultSet.isNull($L) ? null : ", columnIndexVar)
-                        .add(property.resultSetMethod(), columnIndexVar)
-                        .build();
+    /**
+     * Returns whether reading the property checks its column index before calling the getter,
+     * which it then needs in a local variable.
+     */
+    static boolean needsColumnIndexVar(ColumnProperty property) {
+        return property.nullable() || property.ifPresent();
+    }
+
+    static String columnIndexVar(ColumnProperty property) {
+        return property.humanName() + "ColumnIndex";
+    }
+
+    /**
+     * Wraps {@code value} so that a {@code NULL} or, for {@link ColumnProperty#ifPresent()}, an
+     * absent column produces the property's default value instead.
+     */
+    static CodeBlock guardValue(ColumnProperty property, String columnIndexVar, CodeBlock value) {
+        String defaultValue = !property.type().isPrimitive()
+                ? "null"
+                : property.type().equals(TypeName.BOOLEAN) ? "false" : "0";
+        return CodeBlock.of("$L ? $L : $L",
+                guardCondition(property, columnIndexVar), defaultValue, value);
+    }
+
+    /** Returns the condition under which {@link #guardValue} produces the default value. */
+    static CodeBlock guardCondition(ColumnProperty property, String columnIndexVar) {
+        CodeBlock.Builder guard = CodeBlock.builder();
+        if (property.ifPresent()) {
+            guard.add("$L == 0", columnIndexVar);
+        }
+        if (property.nullable()) {
+            guard.add(property.ifPresent() ? " || " : "")
+                    .add("resultSet.isNull($L)", columnIndexVar);
+        }
+        return guard.build();
+    }
+
+    static CodeBlock readValue(ColumnProperty property, Object columnIndex) {
+        return readValue(property, columnIndex, null);
+    }
+
+    /**
+     * Reads the property's value, passing the SQL type resolved by {@code findColumns} to
+     * {@link ColumnProperty#needsSqlType()} properties if {@code sqlType} isn't {@code null}.
+     */
+    static CodeBlock readValue(ColumnProperty property, Object columnIndex, Object sqlType) {
+        return decodeValue(property, property.resultSetMethod(columnIndex, sqlType));
+    }
+
+    /**
+     * Turns the value returned by {@link ColumnProperty#resultSetMethod(Object)} into the value
+     * of the property.
+     */
+    static CodeBlock decodeValue(ColumnProperty property, CodeBlock value) {
+        if (property.lazyDecoder() != null) {
+            return CodeBlock.of("new $N<>($L, $N)",
+                    LazyColumns.CLASS_NAME, value, LazyColumns.decoderFieldName(property));
+        }
+        if (property.enumType() != null) {
+            // The arguments are evaluated in order, so wasNull() refers to the getInt call.
+            return property.enumStoredAsInt()
+                    ? CodeBlock.of("$N($L, resultSet.wasNull())",
+                            EnumDecoders.methodName(property), value)
+                    : CodeBlock.of("$N($L)", EnumDecoders.methodName(property), value);
+        }
+        if (property.internCapacity() != null) {
+            return CodeBlock.of("$N.intern($L)", internerFieldName(property), value);
+        }
+        return value;
+    }
+
+    /**
+     * Returns whether the generated writers can write the property from its column value.
+     * Embedded properties are written through their own properties.
+     */
+    static boolean writable(ColumnProperty property) {
+        if (property.embedded()) {
+            return property.embeddedType() != null;
+        }
+        TypeName type = property.columnType();
+        return property.columnAdapter() == null
+                && type != null
+                && property.lazyDecoder() == null
+                && !type.equals(ColumnProperty.INPUT_STREAM)
+                && !type.equals(ColumnProperty.READER)
+                && !type.equals(ColumnProperty.BYTE_BUFFER);
+    }
+
+    /**
+     * Writes the column value of a {@link #writable} property with the {@code value} methods of
+     * {@code output}, a {@code JsonOutput} or {@code CsvOutput}, using the bound column indices.
+     */
+    static CodeBlock writeColumn(
+            String output, ColumnProperty property, List<ColumnProperty> layout) {
+        String columnIndex = "columns[" + indexOf(layout, property) + "]";
+        CodeBlock sqlType = sqlType(layout, property);
+        CodeBlock value;
+        if (property.enumType() != null) {
+            value = CodeBlock.of("$L.value($L)", output, readValue(property, columnIndex));
+        } else if (property.columnType().isBoxedPrimitive()) {
+            value = CodeBlock.of("$L.nullableValue($L, resultSet.wasNull())",
+                    output, property.columnValue(columnIndex, sqlType));
+        } else {
+            value = CodeBlock.of("$L.value($L)",
+                    output, property.columnValue(columnIndex, sqlType));
+        }
+        if (!property.ifPresent()) {
+            return CodeBlock.builder().addStatement("$L", value).build();
+        }
         return CodeBlock.builder()
-                .addStatement("int $L = $L", columnIndexVar, getColumnIndex(property))
-                .addStatement("$T $N = $L", property.type(), property.humanName(), getValue)
+                .beginControlFlow("if ($L == 0)", columnIndex)
+                .addStatement("$L.nullValue()", output)
+                .nextControlFlow("else")
+                .addStatement("$L", value)
+                .endControlFlow()
                 .build();
     }
 
-    private CodeBlock getColumnIndex(ColumnProperty property) {
+    static CodeBlock getColumnIndex(ColumnProperty property) {
+        if (property.ifPresent()) {
+            return CodeBlock.of("$T.find(resultSet, $S)",
+                    OptionalColumns.class, property.columnName());
+        }
         return CodeBlock.of("resultSet.findColumn($S)", property.columnName());
     }
 
+    private static int sqlTypeCount(List<ColumnProperty> layout) {
+        int count = 0;
+        for (ColumnProperty property : layout) {
+            if (property.needsSqlType()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private MethodSpec createFindColumnsMethod(ImmutableList<ColumnProperty> properties) {
+        ImmutableList<ColumnProperty> layout = columnLayout(properties);
+        MethodSpec.Builder findColumns =
+                MethodSpec.methodBuilder(FIND_COLUMNS_METHOD_NAME)
+                        .addModifiers(STATIC)
+                        .returns(INT_ARRAY)
+                        .addException(SQL_EXCEPTION)
+                        .addParameter(RESULT_SET, "resultSet")
+                        .addStatement("$T columns = new int[$L]",
+                                INT_ARRAY, layout.size() + sqlTypeCount(layout));
+        CodeBlock.Builder sqlTypes = CodeBlock.builder();
+        int sqlTypeCount = 0;
+        for (int i = 0; i < layout.size(); i++) {
+            ColumnProperty property = layout.get(i);
+            if (property.columnAdapter() == null && property.supportedType()) {
+                findColumns.addStatement("columns[$L] = $L", i, getColumnIndex(property));
+                if (property.needsSqlType()) {
+                    CodeBlock sqlType = sqlType(layout, property);
+                    CodeBlock getColumnType =
+                            property.sqlTypeLookup(CodeBlock.of("columns[$L]", i));
+                    if (property.ifPresent()) {
+                        getColumnType = CodeBlock.of("columns[$L] == 0 ? 0 : $L", i, getColumnType);
+                    }
+                    sqlTypes.addStatement("$L = $L", sqlType, getColumnType);
+                    sqlTypeCount++;
+                }
+            }
+        }
+        if (sqlTypeCount > 0) {
+            // SQL types are stored after the indices, so callers pass a single array around.
+            findColumns.addStatement("$T metaData = resultSet.getMetaData()", RESULT_SET_META_DATA)
+                    .addCode(sqlTypes.build());
+        }
+        return findColumns.addStatement("return columns").build();
+    }
+
     private FieldSpec createMapper(Context context) {
         TypeName func1Name = getFunc1TypeName(context);
         MethodSpec func1Method =
@@ -160,6 +915,39 @@ public class AutoValueResultSetExtension extends AutoValueExtension {
                 .build();
     }
 
+    private FieldSpec createInstrumentedField() {
+        return FieldSpec.builder(TypeName.BOOLEAN, INSTRUMENTED_FIELD_NAME, PRIVATE, STATIC, FINAL)
+                .initializer("$T.ENABLED", MappingListeners.class)
+                .build();
+    }
+
+    private FieldSpec createInternerField(ColumnProperty property) {
+        return FieldSpec.builder(
+                        StringInterner.class, internerFieldName(property), PRIVATE, STATIC, FINAL)
+                .initializer("new $T($L)", StringInterner.class, property.internCapacity())
+                .build();
+    }
+
+    static String internerFieldName(ColumnProperty property) {
+        return toUpperSnakeCase(property.humanName()) + "_INTERNER";
+    }
+
+    static String toUpperSnakeCase(String s) {
+        StringBuilder builder = new StringBuilder(s.length() + 4);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (Character.isUpperCase(c) && i > 0) {
+                builder.append('_');
+            }
+            builder.append(Character.toUpperCase(c));
+        }
+        return builder.toString();
+    }
+
+    private static boolean isInstrumented(Context context) {
+        return isAnnotationPresent(context.autoValueClass(), Instrumented.class);
+    }
+
     private TypeName getFunc1TypeName(Context context) {
         return ParameterizedTypeName.get(FUNC1, RESULT_SET, getAutoValueClassClassName(context));
     }
@@ -0,0 +1,483 @@
+package in.workarounds.avrs.resultset;
+
+import in.workaounds.avrs.BinaryValues;
+import in.workaounds.avrs.ValueCodec;
+import in.workarounds.avrs.ColumnProperty;
+import com.google.auto.value.extension.AutoValueExtension.Context;
+import com.google.common.base.Joiner;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.WildcardTypeName;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.lang.model.element.VariableElement;
+
+import static com.gabrielittner.auto.value.util.AutoValueUtil.error;
+import static com.gabrielittner.auto.value.util.AutoValueUtil.getAutoValueClassClassName;
+import static com.gabrielittner.auto.value.util.AutoValueUtil.newFinalClassConstructorCall;
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+
+/**
+ * Creates the {@link in.workaounds.avrs.BinaryCodec} codec, which encodes the properties in
+ * declaration order with {@link BinaryValues} after a bitmap of the {@code @Nullable} properties
+ * that are null, the list methods using it and the schema hash field that guards them.
+ */
+final class BinaryCodecs {
+
+    static final String WRITE_METHOD_NAME = "writeTo";
+    static final String READ_METHOD_NAME = "readFrom";
+    static final String CODEC_FIELD_NAME = "CODEC";
+    private static final String SCHEMA_HASH_FIELD_NAME = "SCHEMA_HASH";
+
+    private static final ClassName IO_EXCEPTION = ClassName.get("java.io", "IOException");
+    private static final ClassName DATA_OUTPUT = ClassName.get("java.io", "DataOutput");
+    private static final ClassName DATA_INPUT = ClassName.get("java.io", "DataInput");
+    private static final ClassName LIST = ClassName.get(List.class);
+    private static final ClassName ZONE_OFFSET = ClassName.get("java.time", "ZoneOffset");
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final List<TypeName> ENCODABLE_TYPES =
+            Arrays.asList(
+                    TypeName.get(String.class),
+                    TypeName.get(byte[].class),
+                    TypeName.BOOLEAN,
+                    TypeName.BYTE,
+                    TypeName.SHORT,
+                    TypeName.INT,
+                    TypeName.LONG,
+                    TypeName.FLOAT,
+                    TypeName.DOUBLE,
+                    ColumnProperty.SQL_DATE,
+                    ColumnProperty.SQL_TIME,
+                    ColumnProperty.SQL_TIMESTAMP,
+                    ColumnProperty.UUID,
+                    ColumnProperty.INSTANT,
+                    ColumnProperty.LOCAL_DATE,
+                    ColumnProperty.LOCAL_TIME,
+                    ColumnProperty.LOCAL_DATE_TIME,
+                    ColumnProperty.OFFSET_TIME,
+                    ColumnProperty.OFFSET_DATE_TIME);
+
+    private BinaryCodecs() {
+        throw new AssertionError("No instances.");
+    }
+
+    /**
+     * Returns whether the property's value can be encoded. Embedded properties are encoded
+     * through their own properties.
+     */
+    private static boolean encodable(ColumnProperty property) {
+        if (property.columnAdapter() != null
+                || property.converter() != null
+                || property.lazyDecoder() != null
+                || property.children()) {
+            return false;
+        }
+        if (property.embedded()) {
+            return property.embeddedType() != null;
+        }
+        return property.enumType() != null || ENCODABLE_TYPES.contains(unbox(property.type()));
+    }
+
+    static void validate(Context context, List<ColumnProperty> properties) {
+        for (ColumnProperty property : AutoValueResultSetExtension.columnLayout(properties)) {
+            if (!encodable(property)) {
+                error(context, property, "Property has type that can't be encoded by "
+                        + "@BinaryCodec.");
+            }
+        }
+    }
+
+    /**
+     * Returns whether every property can be encoded, after {@link #validate} reported those that
+     * can't.
+     */
+    static boolean applicable(List<ColumnProperty> properties) {
+        for (ColumnProperty property : AutoValueResultSetExtension.columnLayout(properties)) {
+            if (!encodable(property)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the enum property's constants are looked up in the {@code _VALUES} field,
+     * which {@link EnumDecoders} otherwise only creates for ordinal columns.
+     */
+    static boolean needsValuesField(ColumnProperty property) {
+        return property.enumType() != null && property.columnAdapter() == null;
+    }
+
+    static FieldSpec createSchemaHashField(List<ColumnProperty> properties) {
+        long hash = FNV_OFFSET_BASIS;
+        for (char c : schema(properties).toCharArray()) {
+            hash = (hash ^ c) * FNV_PRIME;
+        }
+        return FieldSpec.builder(TypeName.LONG, SCHEMA_HASH_FIELD_NAME, PRIVATE, STATIC, FINAL)
+                .initializer("0x$LL", String.format("%016x", hash))
+                .build();
+    }
+
+    /**
+     * Describes everything the encoding depends on: the names, types and nullability of the
+     * properties in order, and the constants of enums, whose ordinals are written.
+     */
+    private static String schema(List<ColumnProperty> properties) {
+        StringBuilder schema = new StringBuilder();
+        for (ColumnProperty property : properties) {
+            schema.append(property.propertyName()).append(':').append(property.type());
+            if (property.nullable()) {
+                schema.append('?');
+            }
+            if (property.embedded()) {
+                schema.append('(').append(schema(property.embeddedProperties())).append(')');
+            } else if (property.enumType() != null) {
+                List<String> names = new ArrayList<>();
+                for (VariableElement constant : property.enumConstants()) {
+                    names.add(constant.getSimpleName().toString());
+                }
+                schema.append('{').append(Joiner.on(',').join(names)).append('}');
+            }
+            schema.append(';');
+        }
+        return schema.toString();
+    }
+
+    /**
+     * Creates the {@link ValueCodec} field, which encodes a single value and is shared by the
+     * list methods and {@link in.workaounds.avrs.MappedSnapshot}.
+     */
+    static FieldSpec createCodecField(Context context, List<ColumnProperty> properties) {
+        TypeName valueType = getAutoValueClassClassName(context);
+        TypeName codecType = ParameterizedTypeName.get(ClassName.get(ValueCodec.class), valueType);
+        TypeSpec codec = TypeSpec.anonymousClassBuilder("")
+                .addSuperinterface(codecType)
+                .addMethod(MethodSpec.methodBuilder("schemaHash")
+                        .addAnnotation(Override.class)
+                        .addModifiers(PUBLIC)
+                        .returns(TypeName.LONG)
+                        .addStatement("return $N", SCHEMA_HASH_FIELD_NAME)
+                        .build())
+                .addMethod(createWriteMethod(valueType, properties))
+                .addMethod(createReadMethod(context, valueType, properties))
+                .build();
+        return FieldSpec.builder(codecType, CODEC_FIELD_NAME, STATIC, FINAL)
+                .initializer("$L", codec)
+                .build();
+    }
+
+    static MethodSpec createWriteListMethod(Context context) {
+        return MethodSpec.methodBuilder(WRITE_METHOD_NAME)
+                .addModifiers(STATIC)
+                .addException(IO_EXCEPTION)
+                .addParameter(ParameterizedTypeName.get(LIST,
+                        WildcardTypeName.subtypeOf(getAutoValueClassClassName(context))), "values")
+                .addParameter(DATA_OUTPUT, "out")
+                .addStatement("$T.writeList(values, out, $N)", BinaryValues.class, CODEC_FIELD_NAME)
+                .build();
+    }
+
+    static MethodSpec createReadListMethod(Context context) {
+        return MethodSpec.methodBuilder(READ_METHOD_NAME)
+                .addModifiers(STATIC)
+                .returns(ParameterizedTypeName.get(LIST, getAutoValueClassClassName(context)))
+                .addException(IO_EXCEPTION)
+                .addParameter(DATA_INPUT, "in")
+                .addStatement("return $T.readList(in, $N)", BinaryValues.class, CODEC_FIELD_NAME)
+                .build();
+    }
+
+    private static MethodSpec createWriteMethod(
+            TypeName valueType, List<ColumnProperty> properties) {
+        List<CodeBlock> nulls = new ArrayList<>();
+        CodeBlock.Builder writes = CodeBlock.builder();
+        addWrites(properties, CodeBlock.of("value"), nulls, writes);
+
+        MethodSpec.Builder writeMethod = MethodSpec.methodBuilder("write")
+                .addAnnotation(Override.class)
+                .addModifiers(PUBLIC)
+                .addException(IO_EXCEPTION)
+                .addParameter(valueType, "value")
+                .addParameter(DATA_OUTPUT, "out");
+        for (int i = 0; i < nulls.size(); i += 8) {
+            CodeBlock.Builder bits = CodeBlock.builder();
+            for (int bit = 0; bit < 8 && i + bit < nulls.size(); bit++) {
+                bits.add(bit == 0 ? "($L == null ? $L : 0)" : " | ($L == null ? $L : 0)",
+                        nulls.get(i + bit), 1 << bit);
+            }
+            writeMethod.addStatement("out.writeByte($L)", bits.build());
+        }
+        return writeMethod
+                .addCode(writes.build())
+                .build();
+    }
+
+    private static void addWrites(List<ColumnProperty> properties, CodeBlock owner,
+            List<CodeBlock> nulls, CodeBlock.Builder writes) {
+        for (ColumnProperty property : properties) {
+            CodeBlock value = CodeBlock.of("$L.$N()", owner, property.methodName());
+            if (property.embedded()) {
+                addWrites(property.embeddedProperties(), value, nulls, writes);
+                continue;
+            }
+            if (property.nullable()) {
+                nulls.add(value);
+                writes.beginControlFlow("if ($L != null)", value)
+                        .add(write(property, value))
+                        .endControlFlow();
+            } else {
+                writes.add(write(property, value));
+            }
+        }
+    }
+
+    private static CodeBlock write(ColumnProperty property, CodeBlock value) {
+        CodeBlock.Builder write = CodeBlock.builder();
+        TypeName type = unbox(property.type());
+        if (property.enumType() != null) {
+            return write.addStatement("$T.writeVarInt(out, $L.ordinal())",
+                    BinaryValues.class, value).build();
+        }
+        if (type.equals(TypeName.BOOLEAN)) {
+            return write.addStatement("out.writeBoolean($L)", value).build();
+        }
+        if (type.equals(TypeName.BYTE)) {
+            return write.addStatement("out.writeByte($L)", value).build();
+        }
+        if (type.equals(TypeName.SHORT) || type.equals(TypeName.INT)) {
+            return write.addStatement("$T.writeVarInt(out, $L)", BinaryValues.class, value)
+                    .build();
+        }
+        if (type.equals(TypeName.LONG)) {
+            return write.addStatement("$T.writeVarLong(out, $L)", BinaryValues.class, value)
+                    .build();
+        }
+        if (type.equals(TypeName.FLOAT)) {
+            return write.addStatement("out.writeFloat($L)", value).build();
+        }
+        if (type.equals(TypeName.DOUBLE)) {
+            return write.addStatement("out.writeDouble($L)", value).build();
+        }
+        if (type.equals(TypeName.get(String.class))) {
+            return write.addStatement("$T.writeString(out, $L)", BinaryValues.class, value)
+                    .build();
+        }
+        if (type.equals(TypeName.get(byte[].class))) {
+            return write.addStatement("$T.writeBytes(out, $L)", BinaryValues.class, value)
+                    .build();
+        }
+        if (type.equals(ColumnProperty.SQL_DATE) || type.equals(ColumnProperty.SQL_TIME)) {
+            return write.addStatement("$T.writeVarLong(out, $L.getTime())",
+                    BinaryValues.class, value).build();
+        }
+        if (type.equals(ColumnProperty.SQL_TIMESTAMP)) {
+            return write.addStatement("$T.writeTimestamp(out, $L)", BinaryValues.class, value)
+                    .build();
+        }
+        if (type.equals(ColumnProperty.UUID)) {
+            return write.addStatement("out.writeLong($L.getMostSignificantBits())", value)
+                    .addStatement("out.writeLong($L.getLeastSignificantBits())", value)
+                    .build();
+        }
+        if (type.equals(ColumnProperty.INSTANT)) {
+            return write.addStatement("$T.writeVarLong(out, $L.getEpochSecond())",
+                            BinaryValues.class, value)
+                    .addStatement("$T.writeVarInt(out, $L.getNano())", BinaryValues.class, value)
+                    .build();
+        }
+        if (type.equals(ColumnProperty.LOCAL_DATE)) {
+            return write.addStatement("$T.writeVarLong(out, $L.toEpochDay())",
+                    BinaryValues.class, value).build();
+        }
+        if (type.equals(ColumnProperty.LOCAL_TIME)) {
+            return write.addStatement("$T.writeVarLong(out, $L.toNanoOfDay())",
+                    BinaryValues.class, value).build();
+        }
+        if (type.equals(ColumnProperty.LOCAL_DATE_TIME)) {
+            return write.add(writeDateTime(value)).build();
+        }
+        if (type.equals(ColumnProperty.OFFSET_TIME)) {
+            return write.addStatement("$T.writeVarLong(out, $L.toLocalTime().toNanoOfDay())",
+                            BinaryValues.class, value)
+                    .add(writeOffset(value))
+                    .build();
+        }
+        if (type.equals(ColumnProperty.OFFSET_DATE_TIME)) {
+            return write.add(writeDateTime(CodeBlock.of("$L.toLocalDateTime()", value)))
+                    .add(writeOffset(value))
+                    .build();
+        }
+        throw new AssertionError(property.humanName() + " can't be encoded");
+    }
+
+    private static CodeBlock writeDateTime(CodeBlock value) {
+        return CodeBlock.builder()
+                .addStatement("$T.writeVarLong(out, $L.toLocalDate().toEpochDay())",
+                        BinaryValues.class, value)
+                .addStatement("$T.writeVarLong(out, $L.toLocalTime().toNanoOfDay())",
+                        BinaryValues.class, value)
+                .build();
+    }
+
+    private static CodeBlock writeOffset(CodeBlock value) {
+        return CodeBlock.builder()
+                .addStatement("$T.writeVarInt(out, $L.getOffset().getTotalSeconds())",
+                        BinaryValues.class, value)
+                .build();
+    }
+
+    private static MethodSpec createReadMethod(
+            Context context, TypeName valueType, List<ColumnProperty> properties) {
+        List<CodeBlock> nullChecks = new ArrayList<>();
+        CodeBlock.Builder reads = CodeBlock.builder();
+        addReads(properties, nullChecks, reads);
+
+        String[] names = new String[properties.size()];
+        for (int i = 0; i < properties.size(); i++) {
+            names[i] = properties.get(i).humanName();
+        }
+
+        MethodSpec.Builder readMethod = MethodSpec.methodBuilder("read")
+                .addAnnotation(Override.class)
+                .addModifiers(PUBLIC)
+                .returns(valueType)
+                .addException(IO_EXCEPTION)
+                .addParameter(DATA_INPUT, "in");
+        for (int i = 0; i < nullChecks.size(); i += 8) {
+            readMethod.addStatement("int nulls$L = in.readUnsignedByte()", i / 8);
+        }
+        return readMethod
+                .addCode(reads.build())
+                .addCode("return ")
+                .addCode(newFinalClassConstructorCall(context, names))
+                .build();
+    }
+
+    private static void addReads(
+            List<ColumnProperty> properties, List<CodeBlock> nullChecks, CodeBlock.Builder reads) {
+        for (ColumnProperty property : properties) {
+            if (property.embedded()) {
+                List<ColumnProperty> embedded = property.embeddedProperties();
+                addReads(embedded, nullChecks, reads);
+                List<String> names = new ArrayList<>();
+                for (ColumnProperty embeddedProperty : embedded) {
+                    names.add(embeddedProperty.humanName());
+                }
+                reads.addStatement("$T $N = new $T($L)",
+                        property.type(),
+                        property.humanName(),
+                        AutoValueResultSetExtension.finalClassName(property.embeddedType()),
+                        Joiner.on(", ").join(names));
+                continue;
+            }
+            CodeBlock value = read(property);
+            if (property.nullable()) {
+                int bit = nullChecks.size();
+                CodeBlock isNull = CodeBlock.of("(nulls$L & $L) != 0", bit / 8, 1 << (bit % 8));
+                nullChecks.add(isNull);
+                value = CodeBlock.of("$L ? null : $L", isNull, value);
+            }
+            reads.addStatement("$T $N = $L", property.type(), property.humanName(), value);
+        }
+    }
+
+    private static CodeBlock read(ColumnProperty property) {
+        TypeName type = unbox(property.type());
+        if (property.enumType() != null) {
+            return CodeBlock.of("$N[$T.readVarInt(in)]",
+                    EnumDecoders.valuesFieldName(property), BinaryValues.class);
+        }
+        if (type.equals(TypeName.BOOLEAN)) {
+            return CodeBlock.of("in.readBoolean()");
+        }
+        if (type.equals(TypeName.BYTE)) {
+            return CodeBlock.of("in.readByte()");
+        }
+        if (type.equals(TypeName.SHORT)) {
+            return CodeBlock.of("(short) $T.readVarInt(in)", BinaryValues.class);
+        }
+        if (type.equals(TypeName.INT)) {
+            return CodeBlock.of("$T.readVarInt(in)", BinaryValues.class);
+        }
+        if (type.equals(TypeName.LONG)) {
+            return CodeBlock.of("$T.readVarLong(in)", BinaryValues.class);
+        }
+        if (type.equals(TypeName.FLOAT)) {
+            return CodeBlock.of("in.readFloat()");
+        }
+        if (type.equals(TypeName.DOUBLE)) {
+            return CodeBlock.of("in.readDouble()");
+        }
+        if (type.equals(TypeName.get(String.class))) {
+            return CodeBlock.of("$T.readString(in)", BinaryValues.class);
+        }
+        if (type.equals(TypeName.get(byte[].class))) {
+            return CodeBlock.of("$T.readBytes(in)", BinaryValues.class);
+        }
+        if (type.equals(ColumnProperty.SQL_DATE) || type.equals(ColumnProperty.SQL_TIME)) {
+            return CodeBlock.of("new $T($T.readVarLong(in))", type, BinaryValues.class);
+        }
+        if (type.equals(ColumnProperty.SQL_TIMESTAMP)) {
+            return CodeBlock.of("$T.readTimestamp(in)", BinaryValues.class);
+        }
+        if (type.equals(ColumnProperty.UUID)) {
+            return CodeBlock.of("new $T(in.readLong(), in.readLong())", type);
+        }
+        if (type.equals(ColumnProperty.INSTANT)) {
+            return CodeBlock.of("$T.ofEpochSecond($T.readVarLong(in), $T.readVarInt(in))",
+                    type, BinaryValues.class, BinaryValues.class);
+        }
+        if (type.equals(ColumnProperty.LOCAL_DATE)) {
+            return readDate();
+        }
+        if (type.equals(ColumnProperty.LOCAL_TIME)) {
+            return readTime();
+        }
+        if (type.equals(ColumnProperty.LOCAL_DATE_TIME)) {
+            return readDateTime();
+        }
+        if (type.equals(ColumnProperty.OFFSET_TIME)) {
+            return CodeBlock.of("$T.of($L, $L)", type, readTime(), readOffset());
+        }
+        if (type.equals(ColumnProperty.OFFSET_DATE_TIME)) {
+            return CodeBlock.of("$T.of($L, $L)", type, readDateTime(), readOffset());
+        }
+        throw new AssertionError(property.humanName() + " can't be encoded");
+    }
+
+    private static CodeBlock readDate() {
+        return CodeBlock.of("$T.ofEpochDay($T.readVarLong(in))",
+                ColumnProperty.LOCAL_DATE, BinaryValues.class);
+    }
+
+    private static CodeBlock readTime() {
+        return CodeBlock.of("$T.ofNanoOfDay($T.readVarLong(in))",
+                ColumnProperty.LOCAL_TIME, BinaryValues.class);
+    }
+
+    private static CodeBlock readDateTime() {
+        return CodeBlock.of("$T.of($L, $L)",
+                ColumnProperty.LOCAL_DATE_TIME, readDate(), readTime());
+    }
+
+    private static CodeBlock readOffset() {
+        return CodeBlock.of("$T.ofTotalSeconds($T.readVarInt(in))",
+                ZONE_OFFSET, BinaryValues.class);
+    }
+
+    private static TypeName unbox(TypeName type) {
+        return type.isBoxedPrimitive() ? type.unbox() : type;
+    }
+}
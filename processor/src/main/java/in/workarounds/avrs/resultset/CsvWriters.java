@@ -0,0 +1,120 @@
+package in.workarounds.avrs.resultset;
+
+import in.workaounds.avrs.CsvOptions;
+import in.workaounds.avrs.CsvOutput;
+import in.workarounds.avrs.ColumnProperty;
+import com.google.common.collect.ImmutableList;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
+import java.util.List;
+
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.STATIC;
+
+/**
+ * Creates the {@link in.workaounds.avrs.WriteCsv} methods, which write rows with a
+ * {@link CsvOutput} straight from the column getters, and the field holding their header.
+ */
+final class CsvWriters {
+
+    static final String METHOD_NAME = "writeCsv";
+    private static final String HEADER_FIELD_NAME = "CSV_HEADER";
+
+    private static final ClassName SQL_EXCEPTION = ClassName.get("java.sql", "SQLException");
+    private static final ClassName IO_EXCEPTION = ClassName.get("java.io", "IOException");
+    private static final ClassName RESULT_SET = ClassName.get("java.sql", "ResultSet");
+    private static final ClassName OUTPUT_STREAM = ClassName.get("java.io", "OutputStream");
+    private static final ClassName WRITER = ClassName.get("java.io", "Writer");
+    private static final TypeName INT_ARRAY = TypeName.get(int[].class);
+    private static final TypeName STRING_ARRAY = ArrayTypeName.of(String.class);
+
+    private CsvWriters() {
+        throw new AssertionError("No instances.");
+    }
+
+    static FieldSpec createHeaderField(List<ColumnProperty> properties) {
+        CodeBlock.Builder names = CodeBlock.builder();
+        for (ColumnProperty property : columns(properties)) {
+            names.add(names.build().isEmpty() ? "$S" : ", $S", property.columnName());
+        }
+        return FieldSpec.builder(STRING_ARRAY, HEADER_FIELD_NAME, PRIVATE, STATIC, FINAL)
+                .initializer("{$L}", names.build())
+                .build();
+    }
+
+    /**
+     * Creates the public {@code writeCsv} overloads for an {@code OutputStream} and a
+     * {@code Writer}, which both call the private one taking a {@link CsvOutput}.
+     */
+    static ImmutableList<MethodSpec> createWriteMethods(List<ColumnProperty> properties) {
+        return ImmutableList.of(
+                createDelegatingMethod(OUTPUT_STREAM),
+                createDelegatingMethod(WRITER),
+                createWriteMethod(properties));
+    }
+
+    private static MethodSpec createDelegatingMethod(ClassName outputType) {
+        return MethodSpec.methodBuilder(METHOD_NAME)
+                .addModifiers(STATIC)
+                .returns(TypeName.INT)
+                .addException(SQL_EXCEPTION)
+                .addException(IO_EXCEPTION)
+                .addParameter(RESULT_SET, "resultSet")
+                .addParameter(outputType, "out")
+                .addParameter(CsvOptions.class, "options")
+                .addStatement("return $L(resultSet, new $T(out, options), options.header())",
+                        METHOD_NAME, CsvOutput.class)
+                .build();
+    }
+
+    private static MethodSpec createWriteMethod(List<ColumnProperty> properties) {
+        List<ColumnProperty> layout = AutoValueResultSetExtension.columnLayout(properties);
+        CodeBlock.Builder writeRow = CodeBlock.builder();
+        for (ColumnProperty property : columns(properties)) {
+            writeRow.add(AutoValueResultSetExtension.writeColumn("csv", property, layout));
+        }
+        return MethodSpec.methodBuilder(METHOD_NAME)
+                .addModifiers(PRIVATE, STATIC)
+                .returns(TypeName.INT)
+                .addException(SQL_EXCEPTION)
+                .addException(IO_EXCEPTION)
+                .addParameter(RESULT_SET, "resultSet")
+                .addParameter(CsvOutput.class, "csv")
+                .addParameter(TypeName.BOOLEAN, "header")
+                .addStatement("$T columns = $L(resultSet)",
+                        INT_ARRAY, AutoValueResultSetExtension.FIND_COLUMNS_METHOD_NAME)
+                .beginControlFlow("if (header)")
+                .addStatement("csv.header($N)", HEADER_FIELD_NAME)
+                .endControlFlow()
+                .addStatement("int rows = 0")
+                .beginControlFlow("while (resultSet.next())")
+                .addCode(writeRow.build())
+                .addStatement("csv.endRow()")
+                .addStatement("rows++")
+                .endControlFlow()
+                .addStatement("csv.flush()")
+                .addStatement("return rows")
+                .build();
+    }
+
+    /** Returns the written properties with embedded ones flattened into their columns. */
+    private static ImmutableList<ColumnProperty> columns(List<ColumnProperty> properties) {
+        ImmutableList.Builder<ColumnProperty> columns = ImmutableList.builder();
+        for (ColumnProperty property : properties) {
+            if (!AutoValueResultSetExtension.writable(property)) {
+                continue;
+            }
+            if (property.embedded()) {
+                columns.addAll(columns(property.embeddedProperties()));
+            } else {
+                columns.add(property);
+            }
+        }
+        return columns.build();
+    }
+}
@@ -0,0 +1,157 @@
+package in.workarounds.avrs.resultset;
+
+import in.workaounds.avrs.EnumCode;
+import in.workarounds.avrs.ColumnProperty;
+import com.google.auto.value.extension.AutoValueExtension.Context;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.lang.model.element.VariableElement;
+
+import static com.gabrielittner.auto.value.util.AutoValueUtil.error;
+import static com.gabrielittner.auto.value.util.ElementUtil.getAnnotationValue;
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.STATIC;
+
+/**
+ * Creates the static methods that turn a column value into an enum constant. Names are decoded
+ * with a {@code switch} on the string, which javac compiles to a hash lookup, and integer codes
+ * with a {@code switch} on the int or an index into {@code values()}. Since {@code getInt} reads
+ * {@code NULL} as {@code 0}, integer decoders are also passed {@code wasNull()} and check it
+ * before the lookup. Neither path throws for unknown values or {@code NULL} when the property
+ * has an {@code @EnumFallback}.
+ */
+final class EnumDecoders {
+
+    private static final ClassName SQL_EXCEPTION = ClassName.get("java.sql", "SQLException");
+
+    private EnumDecoders() {
+        throw new AssertionError("No instances.");
+    }
+
+    static String methodName(ColumnProperty property) {
+        String name = property.humanName();
+        return "decode" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    static String valuesFieldName(ColumnProperty property) {
+        return AutoValueResultSetExtension.toUpperSnakeCase(property.humanName()) + "_VALUES";
+    }
+
+    static FieldSpec createValuesField(ColumnProperty property) {
+        TypeName enumType = ClassName.get(property.enumType());
+        return FieldSpec.builder(
+                        ArrayTypeName.of(enumType), valuesFieldName(property), PRIVATE, STATIC, FINAL)
+                .initializer("$T.values()", enumType)
+                .build();
+    }
+
+    static MethodSpec createDecodeMethod(Context context, ColumnProperty property) {
+        ClassName enumType = ClassName.get(property.enumType());
+        List<VariableElement> constants = property.enumConstants();
+        String fallback = property.enumFallback();
+        if (fallback != null && !containsConstant(constants, fallback)) {
+            error(context, property, String.format(
+                    "@EnumFallback(\"%s\") isn't a constant of %s.", fallback, enumType));
+        }
+        if (property.ordinal() && property.enumCoded()) {
+            error(context, property, "@Ordinal can't be used with an enum that has @EnumCode.");
+        }
+
+        MethodSpec.Builder method = MethodSpec.methodBuilder(methodName(property))
+                .addModifiers(PRIVATE, STATIC)
+                .returns(enumType)
+                .addException(SQL_EXCEPTION);
+
+        if (property.ordinal()) {
+            String values = valuesFieldName(property);
+            return method.addParameter(TypeName.INT, "value")
+                    .addParameter(TypeName.BOOLEAN, "wasNull")
+                    .addCode(nullValue(property, enumType, fallback, "wasNull"))
+                    .beginControlFlow("if (value >= 0 && value < $N.length)", values)
+                    .addStatement("return $N[value]", values)
+                    .endControlFlow()
+                    .addCode(unknown(property, enumType, fallback))
+                    .build();
+        }
+
+        if (property.enumCoded()) {
+            method.addParameter(TypeName.INT, "value")
+                    .addParameter(TypeName.BOOLEAN, "wasNull")
+                    .addCode(nullValue(property, enumType, fallback, "wasNull"))
+                    .beginControlFlow("switch (value)");
+            Set<Integer> codes = new HashSet<>();
+            for (VariableElement constant : constants) {
+                Integer code = (Integer) getAnnotationValue(constant, EnumCode.class, "value");
+                if (code == null) {
+                    continue;
+                }
+                if (!codes.add(code)) {
+                    error(context, property, String.format(
+                            "%s has more than one constant with @EnumCode(%d).", enumType, code));
+                }
+                method.addStatement("case $L: return $T.$N", code, enumType, constant.getSimpleName());
+            }
+            return method.endControlFlow()
+                    .addCode(unknown(property, enumType, fallback))
+                    .build();
+        }
+
+        method.addParameter(String.class, "value")
+                .addCode(nullValue(property, enumType, fallback, "value == null"))
+                .beginControlFlow("switch (value)");
+        for (VariableElement constant : constants) {
+            String name = constant.getSimpleName().toString();
+            method.addStatement("case $S: return $T.$N", name, enumType, name);
+        }
+        return method.endControlFlow()
+                .addCode(unknown(property, enumType, fallback))
+                .build();
+    }
+
+    /**
+     * Handles a {@code NULL} column if {@code condition} holds: {@code @Nullable} properties read
+     * it as {@code null} and others as the fallback. Without one, it can't be read, and throws an
+     * exception naming the column rather than leave the constructor to fail on {@code null}.
+     */
+    private static CodeBlock nullValue(
+            ColumnProperty property, ClassName enumType, String fallback, String condition) {
+        CodeBlock.Builder nullValue = CodeBlock.builder().beginControlFlow("if ($L)", condition);
+        if (property.nullable()) {
+            nullValue.addStatement("return null");
+        } else if (fallback != null) {
+            nullValue.addStatement("return $T.$N", enumType, fallback);
+        } else {
+            nullValue.addStatement("throw new $T($S)", SQL_EXCEPTION, "NULL in column "
+                    + property.columnName() + " of non-null property " + property.humanName());
+        }
+        return nullValue.endControlFlow().build();
+    }
+
+    private static CodeBlock unknown(ColumnProperty property, ClassName enumType, String fallback) {
+        if (fallback != null) {
+            return CodeBlock.builder().addStatement("return $T.$N", enumType, fallback).build();
+        }
+        return CodeBlock.builder()
+                .addStatement("throw new $T($S + value + $S)", SQL_EXCEPTION,
+                        "Unknown " + enumType.simpleName() + " value ",
+                        " in column " + property.columnName())
+                .build();
+    }
+
+    private static boolean containsConstant(List<VariableElement> constants, String name) {
+        for (VariableElement constant : constants) {
+            if (constant.getSimpleName().contentEquals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,79 @@
+package in.workarounds.avrs.resultset;
+
+import in.workarounds.avrs.ColumnProperty;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.TypeName;
+import java.util.List;
+import javax.lang.model.util.Elements;
+
+import static com.gabrielittner.auto.value.util.ElementUtil.typeExists;
+
+/**
+ * Creates the code with which the bulk read methods of {@link in.workaounds.avrs.FlightRecorded}
+ * types record an {@link in.workaounds.avrs.MappingBatchEvent} per call. The event is in a local
+ * variable, {@code null} unless it is recorded.
+ */
+final class FlightRecorderEvents {
+
+    private static final ClassName JFR_EVENT = ClassName.get("jdk.jfr", "Event");
+    // Not ClassName.get(MappingBatchEvent.class), which would need jdk.jfr to run the processor.
+    static final ClassName EVENT = ClassName.get("in.workaounds.avrs", "MappingBatchEvent");
+    static final String VARIABLE_NAME = "batchEvent";
+
+    private FlightRecorderEvents() {
+        throw new AssertionError("No instances.");
+    }
+
+    static boolean available(Elements elements) {
+        return typeExists(elements, JFR_EVENT);
+    }
+
+    /** Declares the event of {@code method}, begun if it is recorded. */
+    static CodeBlock start(TypeName valueType, String method) {
+        return CodeBlock.builder()
+                .addStatement("$T $N = $T.start($T.class, $S)",
+                        EVENT, VARIABLE_NAME, EVENT, valueType, method)
+                .build();
+    }
+
+    /** Returns the condition that moves to the next row, timed if {@code recorded}. */
+    static CodeBlock next(boolean recorded) {
+        return recorded
+                ? CodeBlock.of("$T.fetch(resultSet, $N)", EVENT, VARIABLE_NAME)
+                : CodeBlock.of("resultSet.next()");
+    }
+
+    /**
+     * Adds the bytes of the {@code byte[]} and {@code ByteBuffer} properties of {@code value} to
+     * the event, or returns an empty block if there are none.
+     */
+    static CodeBlock countLobs(List<ColumnProperty> properties, String value) {
+        CodeBlock.Builder count = CodeBlock.builder();
+        for (ColumnProperty property : properties) {
+            TypeName type = property.type();
+            if (property.columnAdapter() == null
+                    && (type.equals(TypeName.get(byte[].class))
+                            || type.equals(ColumnProperty.BYTE_BUFFER))) {
+                count.addStatement("$N.addLobBytes($N.$N())",
+                        VARIABLE_NAME, value, property.methodName());
+            }
+        }
+        if (count.build().isEmpty()) {
+            return count.build();
+        }
+        return CodeBlock.builder()
+                .beginControlFlow("if ($N != null)", VARIABLE_NAME)
+                .add(count.build())
+                .endControlFlow()
+                .build();
+    }
+
+    static CodeBlock finish() {
+        return CodeBlock.builder()
+                .beginControlFlow("if ($N != null)", VARIABLE_NAME)
+                .addStatement("$N.finish()", VARIABLE_NAME)
+                .endControlFlow()
+                .build();
+    }
+}
@@ -0,0 +1,248 @@
+package in.workarounds.avrs.resultset;
+
+import in.workarounds.avrs.ColumnProperty;
+import com.gabrielittner.auto.value.util.Property;
+import com.google.auto.value.extension.AutoValueExtension.Context;
+import com.google.common.collect.ImmutableMap;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import javax.lang.model.element.TypeElement;
+
+import static com.gabrielittner.auto.value.util.AutoValueUtil.error;
+import static com.gabrielittner.auto.value.util.AutoValueUtil.getAutoValueClassClassName;
+import static com.gabrielittner.auto.value.util.AutoValueUtil.getFinalClassClassName;
+import static com.gabrielittner.auto.value.util.AutoValueUtil.newFinalClassConstructorCall;
+import static com.google.auto.common.MoreElements.getPackage;
+import static javax.lang.model.element.Modifier.STATIC;
+
+/**
+ * Creates {@code createGroupedListFromResultSet} for value types with a
+ * {@link in.workaounds.avrs.Children} property, which folds the rows of a join ordered by the
+ * {@link in.workaounds.avrs.Id} property into one value per parent.
+ */
+final class GroupedRows {
+
+    static final String METHOD_NAME = "createGroupedListFromResultSet";
+
+    private static final ClassName SQL_EXCEPTION = ClassName.get("java.sql", "SQLException");
+    private static final ClassName RESULT_SET = ClassName.get("java.sql", "ResultSet");
+    private static final ClassName LIST = ClassName.get(List.class);
+    private static final ClassName ARRAY_LIST = ClassName.get(ArrayList.class);
+    private static final TypeName INT_ARRAY = TypeName.get(int[].class);
+
+    private GroupedRows() {
+        throw new AssertionError("No instances.");
+    }
+
+    static ColumnProperty childrenProperty(List<ColumnProperty> properties) {
+        for (ColumnProperty property : properties) {
+            if (property.children()) {
+                return property;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether the value type has a usable {@code @Children} property, after
+     * {@link #validate} reported anything wrong with it.
+     */
+    static boolean applicable(List<ColumnProperty> properties) {
+        ColumnProperty children = childrenProperty(properties);
+        if (children == null || children.childType() == null) {
+            return false;
+        }
+        for (ColumnProperty property : properties) {
+            if (property.id() && property.supportedType()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static void validate(Context context, List<ColumnProperty> properties) {
+        ColumnProperty children = null;
+        ColumnProperty id = null;
+        for (ColumnProperty property : properties) {
+            if (property.id()) {
+                if (id != null) {
+                    error(context, property, "Only one property can be annotated with @Id.");
+                }
+                id = property;
+            }
+            if (!property.children()) {
+                continue;
+            }
+            if (children != null) {
+                error(context, property, "Only one property can be annotated with @Children.");
+            }
+            children = property;
+            TypeElement childType = property.childType();
+            if (property.columnAdapter() != null || childType == null) {
+                error(context, property, "@Children properties must be a java.util.List of a "
+                        + "value type.");
+            } else if (!AutoValueResultSetExtension.applicable(childType)) {
+                error(context, property, "@Children must be a list of a value type that is read "
+                        + "from ResultSet.");
+            } else if (!getPackage(childType).getQualifiedName().contentEquals(
+                    context.packageName())) {
+                error(context, property, "@Children must be a list of a value type in the same "
+                        + "package.");
+            } else {
+                Set<String> clashes = columnNames(properties);
+                clashes.retainAll(columnNames(property.childProperties()));
+                if (!clashes.isEmpty()) {
+                    error(context, property, String.format("@Children columns %s are also read "
+                            + "by the parent. Both would read the first column of that name, so "
+                            + "give the child's columns distinct names with @ColumnName.",
+                            clashes));
+                }
+            }
+        }
+        if (children != null && id == null) {
+            error(context, children, "@Children requires a property annotated with @Id.");
+        }
+    }
+
+    /** Returns the names of the columns read for the properties, by name or by an adapter. */
+    private static Set<String> columnNames(List<ColumnProperty> properties) {
+        Set<String> names = new LinkedHashSet<>();
+        for (ColumnProperty property : AutoValueResultSetExtension.columnLayout(properties)) {
+            if (property.columnAdapter() != null || property.supportedType()) {
+                names.add(property.columnName());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Returns the code that checks whether the row has a child, reading a key column of a
+     * primitive child property with its typed getter instead of boxing it with
+     * {@code getObject}.
+     */
+    private static CodeBlock hasChild(ColumnProperty children, String keyColumn) {
+        for (ColumnProperty property : children.childProperties()) {
+            TypeName type = property.columnType();
+            if (!property.columnName().equals(children.childrenKey())
+                    || property.columnAdapter() != null
+                    || type == null
+                    || !(type.isPrimitive() || type.isBoxedPrimitive())) {
+                continue;
+            }
+            TypeName primitive = type.isPrimitive() ? type : type.unbox();
+            String name = primitive.toString();
+            String getter = "get" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            // A value other than 0 or false can't be NULL, so wasNull() is only asked otherwise.
+            return CodeBlock.of(primitive.equals(TypeName.BOOLEAN)
+                            ? "resultSet.$L($L) || !resultSet.wasNull()"
+                            : "resultSet.$L($L) != 0 || !resultSet.wasNull()",
+                    getter, keyColumn);
+        }
+        return CodeBlock.of("resultSet.getObject($L) != null", keyColumn);
+    }
+
+    static MethodSpec createGroupedListMethod(Context context, List<ColumnProperty> properties,
+            boolean instrumented, boolean flightRecorder) {
+        TypeName valueType = getAutoValueClassClassName(context);
+        ColumnProperty children = childrenProperty(properties);
+        ColumnProperty id = null;
+        int idIndex = 0;
+        for (int i = 0; i < properties.size(); i++) {
+            if (properties.get(i).id()) {
+                id = properties.get(i);
+                idIndex = i;
+            }
+        }
+        ClassName childType = ClassName.get(children.childType());
+        ClassName childFinalClass =
+                AutoValueResultSetExtension.finalClassName(children.childType());
+        String childColumns = children.humanName() + "Columns";
+        String childKeyColumn = children.humanName() + "KeyColumn";
+
+        MethodSpec.Builder groupedMethod =
+                MethodSpec.methodBuilder(METHOD_NAME)
+                        .addModifiers(STATIC)
+                        .returns(ParameterizedTypeName.get(LIST, valueType))
+                        .addException(SQL_EXCEPTION)
+                        .addParameter(RESULT_SET, "resultSet")
+                        .addStatement("$T columns = $L(resultSet)",
+                                INT_ARRAY, AutoValueResultSetExtension.FIND_COLUMNS_METHOD_NAME)
+                        .addStatement("$T $L = $T.$L(resultSet)",
+                                INT_ARRAY, childColumns, childFinalClass,
+                                AutoValueResultSetExtension.FIND_COLUMNS_METHOD_NAME);
+        if (children.childrenKey() != null) {
+            groupedMethod.addStatement("int $L = resultSet.findColumn($S)",
+                    childKeyColumn, children.childrenKey());
+        }
+
+        List<ColumnProperty> layout = AutoValueResultSetExtension.columnLayout(properties);
+        ImmutableMap<Property, FieldSpec> columnAdapters =
+                AutoValueResultSetExtension.getColumnAdapters(layout);
+        AutoValueResultSetExtension.addColumnAdaptersToMethod(
+                groupedMethod, layout, columnAdapters);
+
+        CodeBlock nextId = AutoValueResultSetExtension.readValue(id,
+                CodeBlock.of("columns[$L]", idIndex),
+                AutoValueResultSetExtension.sqlType(layout, id));
+        CodeBlock sameParent = id.type().isPrimitive()
+                ? CodeBlock.of("$L == $N", nextId, id.humanName())
+                : CodeBlock.of("$N.equals($L)", id.humanName(), nextId);
+        CodeBlock addChild = CodeBlock.of("$N.add($T.$L(resultSet, $L))",
+                children.humanName(), childFinalClass,
+                AutoValueResultSetExtension.METHOD_NAME, childColumns);
+
+        String[] names = new String[properties.size()];
+        for (int i = 0; i < properties.size(); i++) {
+            names[i] = properties.get(i).humanName();
+        }
+
+        CodeBlock next = FlightRecorderEvents.next(flightRecorder);
+        groupedMethod.addStatement("$T<$T> values = new $T<>()", LIST, valueType, ARRAY_LIST);
+        if (flightRecorder) {
+            groupedMethod.addCode(FlightRecorderEvents.start(valueType, METHOD_NAME));
+        }
+        groupedMethod
+                .addStatement("boolean hasRow = $L", next)
+                .beginControlFlow("while (hasRow)")
+                .addCode(AutoValueResultSetExtension.readProperties(context, properties,
+                        columnAdapters, instrumented, true, true, layout, flightRecorder))
+                .addStatement("$T<$T> $N = new $T<>()",
+                        LIST, childType, children.humanName(), ARRAY_LIST)
+                .beginControlFlow("do");
+        if (children.childrenKey() != null) {
+            groupedMethod.beginControlFlow("if ($L)", hasChild(children, childKeyColumn))
+                    .addStatement("$L", addChild)
+                    .endControlFlow();
+        } else {
+            groupedMethod.addStatement("$L", addChild);
+        }
+        groupedMethod
+                .addStatement("hasRow = $L", next)
+                .endControlFlow("while (hasRow && $L)", sameParent)
+                .addStatement("$1N = $2T.unmodifiableList($1N)",
+                        children.humanName(), Collections.class)
+                .addCode("$T value = ", getFinalClassClassName(context))
+                .addCode(newFinalClassConstructorCall(context, names));
+        if (flightRecorder) {
+            groupedMethod.addCode(FlightRecorderEvents.countLobs(properties, "value"));
+        }
+        groupedMethod
+                .addStatement("values.add(value)")
+                .endControlFlow();
+        if (flightRecorder) {
+            groupedMethod.addCode(FlightRecorderEvents.finish());
+        }
+        return groupedMethod
+                .addStatement("return values")
+                .build();
+    }
+}
@@ -0,0 +1,172 @@
+package in.workarounds.avrs.resultset;
+
+import in.workaounds.avrs.IdentityMap;
+import in.workarounds.avrs.ColumnProperty;
+import com.gabrielittner.auto.value.util.Property;
+import com.google.auto.value.extension.AutoValueExtension.Context;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.gabrielittner.auto.value.util.AutoValueUtil.getAutoValueClassClassName;
+import static com.gabrielittner.auto.value.util.AutoValueUtil.getFinalClassClassName;
+import static com.gabrielittner.auto.value.util.AutoValueUtil.newFinalClassConstructorCall;
+import static javax.lang.model.element.Modifier.STATIC;
+
+/**
+ * Creates the read methods of value types with an {@link in.workaounds.avrs.Id} property that
+ * take an {@link IdentityMap}: the id column is read first, and a row whose id is in the map
+ * returns the mapped instance without reading the other columns.
+ */
+final class IdentityRows {
+
+    private static final ClassName SQL_EXCEPTION = ClassName.get("java.sql", "SQLException");
+    private static final ClassName RESULT_SET = ClassName.get("java.sql", "ResultSet");
+    private static final ClassName LIST = ClassName.get(List.class);
+    private static final ClassName ARRAY_LIST = ClassName.get(ArrayList.class);
+    private static final TypeName INT_ARRAY = TypeName.get(int[].class);
+
+    private IdentityRows() {
+        throw new AssertionError("No instances.");
+    }
+
+    /**
+     * Returns the value type's own {@code @Id} property, or {@code null} if it has none that
+     * validation accepted.
+     */
+    static ColumnProperty idProperty(List<ColumnProperty> properties) {
+        ColumnProperty id = null;
+        for (ColumnProperty property : properties) {
+            if (!property.id()) {
+                continue;
+            }
+            if (id != null
+                    || property.columnAdapter() != null
+                    || !property.supportedType()
+                    || property.nullable()
+                    || property.ifPresent()
+                    || property.lazyDecoder() != null) {
+                return null;
+            }
+            id = property;
+        }
+        return id;
+    }
+
+    /**
+     * Creates the read method that takes an {@link IdentityMap}. A {@code timed} one also takes
+     * the {@code MappingBatchEvent} that adapter time is added to.
+     */
+    static MethodSpec createReadMethod(Context context, ImmutableList<ColumnProperty> properties,
+            boolean instrumented, boolean timed) {
+        TypeName valueType = getAutoValueClassClassName(context);
+        ColumnProperty id = idProperty(properties);
+        List<ColumnProperty> layout = AutoValueResultSetExtension.columnLayout(properties);
+        List<ColumnProperty> others = new ArrayList<>(properties);
+        others.remove(id);
+
+        MethodSpec.Builder readMethod = MethodSpec.methodBuilder(
+                        AutoValueResultSetExtension.METHOD_NAME)
+                .addModifiers(STATIC)
+                .returns(valueType)
+                .addException(SQL_EXCEPTION)
+                .addParameter(RESULT_SET, "resultSet")
+                .addParameter(INT_ARRAY, "columns")
+                .addParameter(identityMapType(valueType), "identities");
+        if (timed) {
+            readMethod.addParameter(
+                    FlightRecorderEvents.EVENT, FlightRecorderEvents.VARIABLE_NAME);
+        }
+        ImmutableMap<Property, FieldSpec> columnAdapters =
+                AutoValueResultSetExtension.getColumnAdapters(layout);
+        AutoValueResultSetExtension.addColumnAdaptersToMethod(readMethod, layout, columnAdapters);
+
+        String[] names = new String[properties.size()];
+        for (int i = 0; i < properties.size(); i++) {
+            names[i] = properties.get(i).humanName();
+        }
+        CodeBlock idValue = AutoValueResultSetExtension.readValue(id,
+                CodeBlock.of("columns[$L]", AutoValueResultSetExtension.indexOf(layout, id)),
+                AutoValueResultSetExtension.sqlType(layout, id));
+        return readMethod
+                .addStatement("$T $N = $L", id.type(), id.humanName(), idValue)
+                .addStatement("$T existing = identities.get($N)", valueType, id.humanName())
+                .beginControlFlow("if (existing != null)")
+                .addStatement("return existing")
+                .endControlFlow()
+                .addCode(AutoValueResultSetExtension.readProperties(
+                        context, others, columnAdapters, instrumented, true, false, layout, timed))
+                .addCode("$T value = ", getFinalClassClassName(context))
+                .addCode(newFinalClassConstructorCall(context, names))
+                .addStatement("identities.put($N, value)", id.humanName())
+                .addStatement("return value")
+                .build();
+    }
+
+    /** Creates the read method taking an {@link IdentityMap} of types with a timed one. */
+    static MethodSpec createUntimedReadMethod(Context context) {
+        TypeName valueType = getAutoValueClassClassName(context);
+        return MethodSpec.methodBuilder(AutoValueResultSetExtension.METHOD_NAME)
+                .addModifiers(STATIC)
+                .returns(valueType)
+                .addException(SQL_EXCEPTION)
+                .addParameter(RESULT_SET, "resultSet")
+                .addParameter(INT_ARRAY, "columns")
+                .addParameter(identityMapType(valueType), "identities")
+                .addStatement("return $L(resultSet, columns, identities, null)",
+                        AutoValueResultSetExtension.METHOD_NAME)
+                .build();
+    }
+
+    static MethodSpec createListMethod(
+            Context context, List<ColumnProperty> properties, boolean flightRecorder) {
+        TypeName valueType = getAutoValueClassClassName(context);
+        MethodSpec.Builder listMethod =
+                MethodSpec.methodBuilder(AutoValueResultSetExtension.LIST_METHOD_NAME)
+                        .addModifiers(STATIC)
+                        .returns(ParameterizedTypeName.get(LIST, valueType))
+                        .addException(SQL_EXCEPTION)
+                        .addParameter(RESULT_SET, "resultSet")
+                        .addParameter(identityMapType(valueType), "identities")
+                        .addStatement("$T columns = $L(resultSet)",
+                                INT_ARRAY, AutoValueResultSetExtension.FIND_COLUMNS_METHOD_NAME)
+                        .addStatement("$T<$T> values = new $T<>()", LIST, valueType, ARRAY_LIST);
+        if (!flightRecorder) {
+            return listMethod
+                    .beginControlFlow("while (resultSet.next())")
+                    .addStatement("values.add($L(resultSet, columns, identities))",
+                            AutoValueResultSetExtension.METHOD_NAME)
+                    .endControlFlow()
+                    .addStatement("return values")
+                    .build();
+        }
+        CodeBlock read = AutoValueResultSetExtension.timesAdapters(true, properties)
+                ? CodeBlock.of("$L(resultSet, columns, identities, $N)",
+                        AutoValueResultSetExtension.METHOD_NAME,
+                        FlightRecorderEvents.VARIABLE_NAME)
+                : CodeBlock.of("$L(resultSet, columns, identities)",
+                        AutoValueResultSetExtension.METHOD_NAME);
+        return listMethod
+                .addCode(FlightRecorderEvents.start(
+                        valueType, AutoValueResultSetExtension.LIST_METHOD_NAME))
+                .beginControlFlow("while ($L)", FlightRecorderEvents.next(true))
+                .addStatement("$T value = $L", valueType, read)
+                .addCode(FlightRecorderEvents.countLobs(properties, "value"))
+                .addStatement("values.add(value)")
+                .endControlFlow()
+                .addCode(FlightRecorderEvents.finish())
+                .addStatement("return values")
+                .build();
+    }
+
+    private static TypeName identityMapType(TypeName valueType) {
+        return ParameterizedTypeName.get(ClassName.get(IdentityMap.class), valueType);
+    }
+}
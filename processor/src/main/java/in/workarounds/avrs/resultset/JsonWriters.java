@@ -0,0 +1,126 @@
+package in.workarounds.avrs.resultset;
+
+import in.workaounds.avrs.JsonOutput;
+import in.workarounds.avrs.ColumnProperty;
+import com.google.common.collect.ImmutableList;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
+import java.util.List;
+
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.STATIC;
+
+/**
+ * Creates the {@link in.workaounds.avrs.WriteJson} methods, which write rows with a
+ * {@link JsonOutput} straight from the column getters, and the fields holding its encoded
+ * field names.
+ */
+final class JsonWriters {
+
+    static final String METHOD_NAME = "writeJson";
+
+    private static final ClassName SQL_EXCEPTION = ClassName.get("java.sql", "SQLException");
+    private static final ClassName IO_EXCEPTION = ClassName.get("java.io", "IOException");
+    private static final ClassName RESULT_SET = ClassName.get("java.sql", "ResultSet");
+    private static final ClassName OUTPUT_STREAM = ClassName.get("java.io", "OutputStream");
+    private static final ClassName WRITER = ClassName.get("java.io", "Writer");
+    private static final TypeName INT_ARRAY = TypeName.get(int[].class);
+    private static final TypeName BYTE_ARRAY = TypeName.get(byte[].class);
+
+    private JsonWriters() {
+        throw new AssertionError("No instances.");
+    }
+
+    static ImmutableList<FieldSpec> createNameFields(List<ColumnProperty> properties) {
+        ImmutableList.Builder<FieldSpec> fields = ImmutableList.builder();
+        boolean first = true;
+        for (ColumnProperty property : properties) {
+            if (!AutoValueResultSetExtension.writable(property)) {
+                continue;
+            }
+            String name = nameFieldName(property);
+            fields.add(FieldSpec.builder(BYTE_ARRAY, name, PRIVATE, STATIC, FINAL)
+                    .initializer("$T.fieldName($S, $L)",
+                            JsonOutput.class, property.propertyName(), first)
+                    .build());
+            if (property.embedded()) {
+                fields.addAll(createNameFields(property.embeddedProperties()));
+            }
+            first = false;
+        }
+        return fields.build();
+    }
+
+    /**
+     * Creates the public {@code writeJson} overloads for an {@code OutputStream} and a
+     * {@code Writer}, which both call the private one taking a {@link JsonOutput}.
+     */
+    static ImmutableList<MethodSpec> createWriteMethods(List<ColumnProperty> properties) {
+        return ImmutableList.of(
+                createDelegatingMethod(OUTPUT_STREAM),
+                createDelegatingMethod(WRITER),
+                createWriteMethod(properties));
+    }
+
+    private static MethodSpec createDelegatingMethod(ClassName outputType) {
+        return MethodSpec.methodBuilder(METHOD_NAME)
+                .addModifiers(STATIC)
+                .returns(TypeName.INT)
+                .addException(SQL_EXCEPTION)
+                .addException(IO_EXCEPTION)
+                .addParameter(RESULT_SET, "resultSet")
+                .addParameter(outputType, "out")
+                .addStatement("return $L(resultSet, new $T(out))", METHOD_NAME, JsonOutput.class)
+                .build();
+    }
+
+    private static MethodSpec createWriteMethod(List<ColumnProperty> properties) {
+        List<ColumnProperty> layout = AutoValueResultSetExtension.columnLayout(properties);
+        return MethodSpec.methodBuilder(METHOD_NAME)
+                .addModifiers(PRIVATE, STATIC)
+                .returns(TypeName.INT)
+                .addException(SQL_EXCEPTION)
+                .addException(IO_EXCEPTION)
+                .addParameter(RESULT_SET, "resultSet")
+                .addParameter(JsonOutput.class, "json")
+                .addStatement("$T columns = $L(resultSet)",
+                        INT_ARRAY, AutoValueResultSetExtension.FIND_COLUMNS_METHOD_NAME)
+                .addStatement("json.beginArray()")
+                .addStatement("int rows = 0")
+                .beginControlFlow("while (resultSet.next())")
+                .beginControlFlow("if (rows++ > 0)")
+                .addStatement("json.comma()")
+                .endControlFlow()
+                .addCode(writeObject(properties, layout))
+                .endControlFlow()
+                .addStatement("json.endArray()")
+                .addStatement("json.flush()")
+                .addStatement("return rows")
+                .build();
+    }
+
+    private static CodeBlock writeObject(
+            List<ColumnProperty> properties, List<ColumnProperty> layout) {
+        CodeBlock.Builder write = CodeBlock.builder().addStatement("json.beginObject()");
+        for (ColumnProperty property : properties) {
+            if (!AutoValueResultSetExtension.writable(property)) {
+                continue;
+            }
+            write.addStatement("json.name($N)", nameFieldName(property));
+            if (property.embedded()) {
+                write.add(writeObject(property.embeddedProperties(), layout));
+                continue;
+            }
+            write.add(AutoValueResultSetExtension.writeColumn("json", property, layout));
+        }
+        return write.addStatement("json.endObject()").build();
+    }
+
+    private static String nameFieldName(ColumnProperty property) {
+        return "JSON_" + AutoValueResultSetExtension.toUpperSnakeCase(property.humanName());
+    }
+}
@@ -0,0 +1,154 @@
+package in.workarounds.avrs.resultset;
+
+import in.workaounds.avrs.KeysetPages;
+import in.workarounds.avrs.ColumnProperty;
+import com.google.auto.value.extension.AutoValueExtension.Context;
+import com.google.common.collect.ImmutableMap;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import java.util.List;
+import java.util.Map;
+
+import static com.gabrielittner.auto.value.util.AutoValueUtil.error;
+import static com.gabrielittner.auto.value.util.AutoValueUtil.getAutoValueClassClassName;
+import static javax.lang.model.element.Modifier.PROTECTED;
+import static javax.lang.model.element.Modifier.STATIC;
+
+/**
+ * Creates {@code pages} for value types with an {@link in.workaounds.avrs.SortKey} property,
+ * which returns {@link KeysetPages} that bind the key of a page's last value through its
+ * accessor, without boxing primitive keys.
+ */
+final class KeysetPagination {
+
+    static final String METHOD_NAME = "pages";
+
+    private static final ClassName SQL_EXCEPTION = ClassName.get("java.sql", "SQLException");
+    private static final ClassName CONNECTION = ClassName.get("java.sql", "Connection");
+    private static final ClassName PREPARED_STATEMENT =
+            ClassName.get("java.sql", "PreparedStatement");
+    private static final ClassName RESULT_SET = ClassName.get("java.sql", "ResultSet");
+    private static final ClassName LIST = ClassName.get(List.class);
+    private static final ClassName KEYSET_PAGES = ClassName.get(KeysetPages.class);
+
+    private static final Map<TypeName, String> SETTERS = ImmutableMap.<TypeName, String>builder()
+            .put(TypeName.BOOLEAN, "setBoolean")
+            .put(TypeName.BYTE, "setByte")
+            .put(TypeName.SHORT, "setShort")
+            .put(TypeName.INT, "setInt")
+            .put(TypeName.LONG, "setLong")
+            .put(TypeName.FLOAT, "setFloat")
+            .put(TypeName.DOUBLE, "setDouble")
+            .put(TypeName.get(String.class), "setString")
+            .put(ColumnProperty.SQL_TIMESTAMP, "setTimestamp")
+            .build();
+
+    private KeysetPagination() {
+        throw new AssertionError("No instances.");
+    }
+
+    /**
+     * Returns the value type's own {@code @SortKey} property, or {@code null} if it has none that
+     * validation accepted.
+     */
+    static ColumnProperty sortKeyProperty(List<ColumnProperty> properties) {
+        ColumnProperty sortKey = null;
+        for (ColumnProperty property : properties) {
+            if (property.sortKey()) {
+                if (sortKey != null || !comparable(property)) {
+                    return null;
+                }
+                sortKey = property;
+            }
+        }
+        return sortKey;
+    }
+
+    static void validate(Context context, List<ColumnProperty> properties) {
+        ColumnProperty sortKey = null;
+        for (ColumnProperty property : AutoValueResultSetExtension.columnLayout(properties)) {
+            if (!property.sortKey()) {
+                continue;
+            }
+            if (!properties.contains(property)) {
+                error(context, property, "@SortKey properties can't be in an @Embedded type.");
+            } else if (sortKey != null) {
+                error(context, property, "Only one property can be annotated with @SortKey.");
+            } else if (!comparable(property)) {
+                error(context, property, "Only non-null primitive, String and Timestamp "
+                        + "properties read from ResultSet without conversion can be annotated with "
+                        + "@SortKey.");
+            }
+            sortKey = property;
+        }
+    }
+
+    /**
+     * Returns whether the column is compared in SQL the way the property's value is bound, which
+     * rules out converted and encoded columns, and types such as UUIDs whose order in Java may not
+     * be the database's. Keys are bound with the setter matching the getter they are read with.
+     */
+    private static boolean comparable(ColumnProperty property) {
+        return property.columnAdapter() == null
+                && property.supportedType()
+                && !property.nullable()
+                && !property.ifPresent()
+                && property.converter() == null
+                && property.enumType() == null
+                && property.lazyDecoder() == null
+                && !property.epochMillis()
+                && property.scale() == null
+                && SETTERS.containsKey(keyType(property));
+    }
+
+    private static TypeName keyType(ColumnProperty property) {
+        TypeName type = property.type();
+        return type.isBoxedPrimitive() ? type.unbox() : type;
+    }
+
+    static MethodSpec createPagesMethod(Context context, List<ColumnProperty> properties) {
+        TypeName valueType = getAutoValueClassClassName(context);
+        ColumnProperty sortKey = sortKeyProperty(properties);
+        String setter = SETTERS.get(keyType(sortKey));
+
+        TypeSpec pages = TypeSpec.anonymousClassBuilder(
+                        "connection, baseQuery, $S, pageSize, $N, params",
+                        sortKey.columnName(), QueryMethods.ROW_BYTES_FIELD_NAME)
+                .superclass(ParameterizedTypeName.get(KEYSET_PAGES, valueType))
+                .addMethod(MethodSpec.methodBuilder("bindKey")
+                        .addAnnotation(Override.class)
+                        .addModifiers(PROTECTED)
+                        .addException(SQL_EXCEPTION)
+                        .addParameter(PREPARED_STATEMENT, "statement")
+                        .addParameter(TypeName.INT, "index")
+                        .addParameter(valueType, "last")
+                        .addStatement("statement.$L(index, last.$N())",
+                                setter, sortKey.methodName())
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("read")
+                        .addAnnotation(Override.class)
+                        .addModifiers(PROTECTED)
+                        .returns(ParameterizedTypeName.get(LIST, valueType))
+                        .addException(SQL_EXCEPTION)
+                        .addParameter(RESULT_SET, "resultSet")
+                        .addStatement("return $L(resultSet)",
+                                AutoValueResultSetExtension.LIST_METHOD_NAME)
+                        .build())
+                .build();
+
+        return MethodSpec.methodBuilder(METHOD_NAME)
+                .addModifiers(STATIC)
+                .returns(ParameterizedTypeName.get(KEYSET_PAGES, valueType))
+                .addParameter(CONNECTION, "connection")
+                .addParameter(String.class, "baseQuery")
+                .addParameter(TypeName.INT, "pageSize")
+                .addParameter(ArrayTypeName.of(Object.class), "params")
+                .varargs()
+                .addStatement("return $L", pages)
+                .build();
+    }
+}
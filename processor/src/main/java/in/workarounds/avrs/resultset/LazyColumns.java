@@ -0,0 +1,99 @@
+package in.workarounds.avrs.resultset;
+
+import in.workaounds.avrs.ColumnDecoder;
+import in.workarounds.avrs.ColumnProperty;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import java.util.Objects;
+
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+import static javax.lang.model.element.Modifier.VOLATILE;
+
+/**
+ * Creates the memoizing {@code Supplier} that backs {@link in.workaounds.avrs.Lazy} properties
+ * and the decoder fields it is created with. Like the property values AutoValue compares, two
+ * suppliers are equal if their decoded values are, which decodes both.
+ */
+final class LazyColumns {
+
+    static final String CLASS_NAME = "LazyColumn";
+
+    private LazyColumns() {
+        throw new AssertionError("No instances.");
+    }
+
+    static String decoderFieldName(ColumnProperty property) {
+        return AutoValueResultSetExtension.toUpperSnakeCase(property.humanName()) + "_DECODER";
+    }
+
+    static FieldSpec createDecoderField(ColumnProperty property) {
+        TypeName decoder = TypeName.get(property.lazyDecoder());
+        return FieldSpec.builder(decoder, decoderFieldName(property), PRIVATE, STATIC, FINAL)
+                .initializer("new $T()", decoder)
+                .build();
+    }
+
+    static TypeSpec createLazyColumnClass() {
+        TypeVariableName t = TypeVariableName.get("T");
+        TypeName decoder = ParameterizedTypeName.get(ClassName.get(ColumnDecoder.class), t);
+        return TypeSpec.classBuilder(CLASS_NAME)
+                .addModifiers(PRIVATE, STATIC, FINAL)
+                .addTypeVariable(t)
+                .addSuperinterface(ParameterizedTypeName.get(ColumnProperty.SUPPLIER, t))
+                .addField(decoder, "decoder", PRIVATE, FINAL)
+                .addField(byte[].class, "bytes", PRIVATE)
+                .addField(t, "value", PRIVATE)
+                .addField(TypeName.BOOLEAN, "decoded", PRIVATE, VOLATILE)
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addParameter(byte[].class, "bytes")
+                        .addParameter(decoder, "decoder")
+                        .addStatement("this.bytes = bytes")
+                        .addStatement("this.decoder = decoder")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("get")
+                        .addAnnotation(Override.class)
+                        .addModifiers(PUBLIC)
+                        .returns(t)
+                        .beginControlFlow("if (!decoded)")
+                        .beginControlFlow("synchronized (this)")
+                        .beginControlFlow("if (!decoded)")
+                        .addStatement("value = bytes != null ? decoder.decode(bytes) : null")
+                        .addStatement("bytes = null")
+                        .addStatement("decoded = true")
+                        .endControlFlow()
+                        .endControlFlow()
+                        .endControlFlow()
+                        .addStatement("return value")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("equals")
+                        .addAnnotation(Override.class)
+                        .addModifiers(PUBLIC)
+                        .returns(TypeName.BOOLEAN)
+                        .addParameter(Object.class, "o")
+                        .addStatement("return o == this || o instanceof $N\n"
+                                        + "$>$>&& $T.equals(get(), (($N<?>) o).get())$<$<",
+                                CLASS_NAME, Objects.class, CLASS_NAME)
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("hashCode")
+                        .addAnnotation(Override.class)
+                        .addModifiers(PUBLIC)
+                        .returns(TypeName.INT)
+                        .addStatement("return $T.hashCode(get())", Objects.class)
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("toString")
+                        .addAnnotation(Override.class)
+                        .addModifiers(PUBLIC)
+                        .returns(String.class)
+                        .addStatement("return $T.valueOf(get())", String.class)
+                        .build())
+                .build();
+    }
+}
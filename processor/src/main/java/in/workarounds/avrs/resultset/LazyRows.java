@@ -0,0 +1,466 @@
+package in.workarounds.avrs.resultset;
+
+import in.workarounds.avrs.ColumnProperty;
+import com.gabrielittner.auto.value.util.Property;
+import com.google.auto.value.extension.AutoValueExtension.Context;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+
+import static com.gabrielittner.auto.value.util.AutoValueUtil.getAutoValueClassClassName;
+import static com.gabrielittner.auto.value.util.AutoValueUtil.getFinalClassClassName;
+import static com.gabrielittner.auto.value.util.AutoValueUtil.newFinalClassConstructorCall;
+import static javax.lang.model.element.Modifier.ABSTRACT;
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+import static javax.lang.model.element.Modifier.VOLATILE;
+
+/**
+ * Creates the {@link in.workaounds.avrs.LazyRow} read methods and the nested subclass of the value
+ * type that they return. The row keeps the values the driver returned: primitives packed by width,
+ * {@code long} and {@code double} into a {@code long[]} and the narrower ones into an
+ * {@code int[]}, and references in an {@code Object[]}. Only the arrays a type needs are allocated.
+ * Boxed primitives are packed too, with a bit per {@code NULL} or absent column after the
+ * {@code long} slots. Enum names, converters and {@code @Lazy} decoders run when the property is
+ * first accessed.
+ */
+final class LazyRows {
+
+    static final String METHOD_NAME = "createLazyFromResultSet";
+    static final String LIST_METHOD_NAME = "createLazyListFromResultSet";
+    private static final String CLASS_NAME = "LazyRow";
+
+    private static final ClassName SQL_EXCEPTION = ClassName.get("java.sql", "SQLException");
+    private static final ClassName RESULT_SET = ClassName.get("java.sql", "ResultSet");
+    private static final ClassName LIST = ClassName.get(List.class);
+    private static final ClassName ARRAY_LIST = ClassName.get(ArrayList.class);
+    private static final TypeName LONG_ARRAY = ArrayTypeName.of(TypeName.LONG);
+    private static final TypeName INT_ARRAY = ArrayTypeName.of(TypeName.INT);
+    private static final TypeName OBJECT_ARRAY = ArrayTypeName.of(Object.class);
+
+    private LazyRows() {
+        throw new AssertionError("No instances.");
+    }
+
+    /**
+     * Returns the first abstract method of the value class that isn't a property, which the lazy
+     * subclass couldn't implement, or {@code null} if there is none.
+     */
+    static ExecutableElement unsupportedAbstractMethod(Context context) {
+        TypeElement valueClass = context.autoValueClass();
+        for (ExecutableElement method : ElementFilter.methodsIn(valueClass.getEnclosedElements())) {
+            if (method.getModifiers().contains(ABSTRACT)
+                    && !context.properties().containsValue(method)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    /** Returns whether the row keeps the column's value rather than the property's. */
+    private static boolean keepsColumnValue(ColumnProperty property) {
+        return property.columnAdapter() == null && property.supportedType();
+    }
+
+    /**
+     * Returns whether the column value is only decoded when the property is accessed. Converters
+     * that declare exceptions run eagerly, where a checked exception can be thrown, and
+     * {@code @Intern} strings are interned eagerly, so that rows don't keep their own copies.
+     * Enums stored as numbers are decoded eagerly too, as that takes no more than an array
+     * lookup.
+     */
+    private static boolean deferred(ColumnProperty property) {
+        if (!keepsColumnValue(property)) {
+            return false;
+        }
+        if (property.converter() != null) {
+            return property.converter().getThrownTypes().isEmpty();
+        }
+        return property.lazyDecoder() != null
+                || (property.enumType() != null
+                        && !property.enumStoredAsInt()
+                        && property.internCapacity() == null);
+    }
+
+    /** Returns the type of the value the row keeps for a {@link #keepsColumnValue} property. */
+    private static TypeName keptType(ColumnProperty property) {
+        if (deferred(property)) {
+            return property.columnType();
+        }
+        TypeName type = property.type();
+        return type.isBoxedPrimitive() ? type.unbox() : type;
+    }
+
+    private static boolean packed(ColumnProperty property) {
+        return keepsColumnValue(property) && keptType(property).isPrimitive();
+    }
+
+    /**
+     * Returns whether a {@code NULL} or absent column is recorded in a bit rather than in the kept
+     * value, which a packed or not yet decoded value can't tell.
+     */
+    private static boolean hasNullBit(ColumnProperty property) {
+        return AutoValueResultSetExtension.needsColumnIndexVar(property)
+                && !property.type().isPrimitive()
+                && (packed(property) || deferred(property));
+    }
+
+    /** Returns whether a packed property takes a slot of the {@code long[]}. */
+    private static boolean wide(TypeName type) {
+        return type.equals(TypeName.LONG) || type.equals(TypeName.DOUBLE);
+    }
+
+    /** Returns the array a packed property is stored in. */
+    private static String slots(ColumnProperty property) {
+        return wide(keptType(property)) ? "longs" : "ints";
+    }
+
+    private static String decodedFlag(ColumnProperty property) {
+        return property.humanName() + "Decoded";
+    }
+
+    /** Returns the number of {@code long} slots, which precede the words of the null bits. */
+    private static int longSlotCount(List<ColumnProperty> properties) {
+        int count = 0;
+        for (ColumnProperty property : properties) {
+            if (packed(property) && wide(keptType(property))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /** Returns the word of the {@code long[]} that holds null bit {@code bit}. */
+    private static CodeBlock nullWord(int longSlots, int bit) {
+        return CodeBlock.of("longs[$L]", longSlots + bit / 64);
+    }
+
+    private static CodeBlock nullMask(int bit) {
+        return CodeBlock.of("$LL", 1L << (bit % 64));
+    }
+
+    /**
+     * Creates {@code createLazyFromResultSet}. Like {@code createFromResultSet}, the single row
+     * variant finds its columns by name and the bound variant takes the indices returned by
+     * {@code findColumns}.
+     */
+    static MethodSpec createReadMethod(
+            Context context, ImmutableList<ColumnProperty> properties, boolean bound) {
+        MethodSpec.Builder readMethod = MethodSpec.methodBuilder(METHOD_NAME)
+                .addModifiers(STATIC)
+                .returns(getAutoValueClassClassName(context))
+                .addException(SQL_EXCEPTION)
+                .addParameter(RESULT_SET, "resultSet");
+        if (bound) {
+            readMethod.addParameter(INT_ARRAY, "columns");
+        }
+
+        List<ColumnProperty> layout = AutoValueResultSetExtension.columnLayout(properties);
+        ImmutableMap<Property, FieldSpec> columnAdapters =
+                AutoValueResultSetExtension.getColumnAdapters(layout);
+        AutoValueResultSetExtension.addColumnAdaptersToMethod(readMethod, layout, columnAdapters);
+
+        int longSlots = longSlotCount(properties);
+        int longCount = 0;
+        int intCount = 0;
+        int referenceCount = 0;
+        int bitCount = 0;
+        CodeBlock.Builder reads = CodeBlock.builder();
+        for (ColumnProperty property : properties) {
+            if (property.columnAdapter() != null) {
+                reads.addStatement("references[$L] = $N.fromResultSet(resultSet, $S)",
+                        referenceCount++, columnAdapters.get(property), property.columnName());
+                continue;
+            }
+            if (property.children()) {
+                reads.addStatement("references[$L] = $T.emptyList()",
+                        referenceCount++, Collections.class);
+                continue;
+            }
+            if (property.embedded() && property.embeddedType() != null) {
+                reads.add(AutoValueResultSetExtension.readProperties(context,
+                        ImmutableList.of(property), columnAdapters, false, bound, false, layout));
+                reads.addStatement("references[$L] = $N", referenceCount++, property.humanName());
+                continue;
+            }
+            if (!property.supportedType()) {
+                reads.addStatement("references[$L] = null", referenceCount++);
+                continue;
+            }
+
+            CodeBlock columnIndex = bound
+                    ? CodeBlock.of("columns[$L]",
+                            AutoValueResultSetExtension.indexOf(layout, property))
+                    : AutoValueResultSetExtension.getColumnIndex(property);
+            CodeBlock sqlType = bound
+                    ? AutoValueResultSetExtension.sqlType(layout, property)
+                    : null;
+            String columnIndexVar = AutoValueResultSetExtension.columnIndexVar(property);
+            if (AutoValueResultSetExtension.needsColumnIndexVar(property)) {
+                reads.addStatement("int $L = $L", columnIndexVar, columnIndex);
+                columnIndex = CodeBlock.of("$L", columnIndexVar);
+            }
+            CodeBlock value = deferred(property)
+                    ? property.columnValue(columnIndex, sqlType)
+                    : AutoValueResultSetExtension.readValue(property, columnIndex, sqlType);
+            if (AutoValueResultSetExtension.needsColumnIndexVar(property)
+                    && !hasNullBit(property)) {
+                // Guarded before packing, so that the default has the property's type.
+                value = CodeBlock.of("($L)", AutoValueResultSetExtension.guardValue(
+                        property, columnIndexVar, value));
+            }
+            CodeBlock slot;
+            if (packed(property)) {
+                int index = wide(keptType(property)) ? longCount++ : intCount++;
+                slot = CodeBlock.of("$L[$L]", slots(property), index);
+                value = pack(keptType(property), value);
+            } else {
+                slot = CodeBlock.of("references[$L]", referenceCount++);
+            }
+            if (hasNullBit(property)) {
+                int bit = bitCount++;
+                reads.beginControlFlow("if ($L)", AutoValueResultSetExtension.guardCondition(
+                                property, columnIndexVar))
+                        .addStatement("$L |= $L", nullWord(longSlots, bit), nullMask(bit))
+                        .nextControlFlow("else")
+                        .addStatement("$L = $L", slot, value)
+                        .endControlFlow();
+            } else {
+                reads.addStatement("$L = $L", slot, value);
+            }
+        }
+
+        int longWords = longSlots + (bitCount + 63) / 64;
+        if (longWords > 0) {
+            readMethod.addStatement("$T longs = new long[$L]", LONG_ARRAY, longWords);
+        }
+        if (intCount > 0) {
+            readMethod.addStatement("$T ints = new int[$L]", INT_ARRAY, intCount);
+        }
+        return readMethod
+                .addStatement("$T references = new Object[$L]", OBJECT_ARRAY, referenceCount)
+                .addCode(reads.build())
+                .addStatement("return new $N($L)", CLASS_NAME,
+                        constructorArguments(longWords > 0, intCount > 0))
+                .build();
+    }
+
+    /** Creates {@code createLazyListFromResultSet}, which reads all rows with bound indices. */
+    static MethodSpec createListMethod(
+            Context context, List<ColumnProperty> properties, boolean flightRecorder) {
+        TypeName valueType = getAutoValueClassClassName(context);
+        MethodSpec.Builder listMethod = MethodSpec.methodBuilder(LIST_METHOD_NAME)
+                .addModifiers(STATIC)
+                .returns(ParameterizedTypeName.get(LIST, valueType))
+                .addException(SQL_EXCEPTION)
+                .addParameter(RESULT_SET, "resultSet")
+                .addStatement("$T columns = $L(resultSet)",
+                        INT_ARRAY, AutoValueResultSetExtension.FIND_COLUMNS_METHOD_NAME)
+                .addStatement("$T<$T> values = new $T<>()", LIST, valueType, ARRAY_LIST);
+        if (flightRecorder) {
+            listMethod.addCode(FlightRecorderEvents.start(valueType, LIST_METHOD_NAME));
+        }
+        listMethod.beginControlFlow("while ($L)", FlightRecorderEvents.next(flightRecorder))
+                .addStatement("values.add($L(resultSet, columns))", METHOD_NAME)
+                .endControlFlow();
+        if (flightRecorder) {
+            listMethod.addCode(FlightRecorderEvents.finish());
+        }
+        return listMethod
+                .addStatement("return values")
+                .build();
+    }
+
+    private static String constructorArguments(boolean longs, boolean ints) {
+        return (longs ? "longs, " : "") + (ints ? "ints, " : "") + "references";
+    }
+
+    static TypeSpec createLazyRowClass(Context context, ImmutableList<ColumnProperty> properties) {
+        ClassName finalClass = getFinalClassClassName(context);
+        TypeSpec.Builder lazyRow = TypeSpec.classBuilder(CLASS_NAME)
+                .addModifiers(PRIVATE, STATIC, FINAL)
+                .superclass(getAutoValueClassClassName(context));
+        MethodSpec.Builder constructor = MethodSpec.constructorBuilder();
+        int longSlots = longSlotCount(properties);
+        boolean longs = longSlots > 0;
+        boolean ints = false;
+        for (ColumnProperty property : properties) {
+            longs |= hasNullBit(property);
+            ints |= packed(property) && !wide(keptType(property));
+        }
+        if (longs) {
+            lazyRow.addField(LONG_ARRAY, "longs", PRIVATE, FINAL);
+            constructor.addParameter(LONG_ARRAY, "longs").addStatement("this.longs = longs");
+        }
+        if (ints) {
+            lazyRow.addField(INT_ARRAY, "ints", PRIVATE, FINAL);
+            constructor.addParameter(INT_ARRAY, "ints").addStatement("this.ints = ints");
+        }
+        lazyRow.addField(OBJECT_ARRAY, "references", PRIVATE, FINAL)
+                .addField(finalClass, "materialized", PRIVATE, VOLATILE)
+                .addMethod(constructor
+                        .addParameter(OBJECT_ARRAY, "references")
+                        .addStatement("this.references = references")
+                        .build());
+
+        int longCount = 0;
+        int intCount = 0;
+        int referenceCount = 0;
+        int bitCount = 0;
+        String[] accessors = new String[properties.size()];
+        for (int i = 0; i < properties.size(); i++) {
+            ColumnProperty property = properties.get(i);
+            accessors[i] = property.methodName() + "()";
+            MethodSpec.Builder accessor = MethodSpec.methodBuilder(property.methodName())
+                    .addAnnotation(Override.class)
+                    .returns(property.type());
+            for (Modifier modifier : property.element().getModifiers()) {
+                if (modifier != ABSTRACT) {
+                    accessor.addModifiers(modifier);
+                }
+            }
+
+            CodeBlock kept;
+            if (packed(property)) {
+                int index = wide(keptType(property)) ? longCount++ : intCount++;
+                kept = unpack(keptType(property),
+                        CodeBlock.of("$L[$L]", slots(property), index));
+            } else {
+                TypeName type = keepsColumnValue(property) ? keptType(property) : property.type();
+                if (type instanceof ParameterizedTypeName) {
+                    accessor.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+                            .addMember("value", "$S", "unchecked")
+                            .build());
+                }
+                kept = CodeBlock.of("($T) references[$L]", type, referenceCount++);
+            }
+            CodeBlock value = deferred(property) ? decode(property, kept) : kept;
+            if (hasNullBit(property)) {
+                int bit = bitCount++;
+                value = CodeBlock.of("($L & $L) != 0 ? null : $L",
+                        nullWord(longSlots, bit), nullMask(bit), value);
+            }
+
+            if (deferred(property)) {
+                lazyRow.addField(property.type(), property.humanName(), PRIVATE)
+                        .addField(TypeName.BOOLEAN, decodedFlag(property), PRIVATE, VOLATILE);
+                accessor.beginControlFlow("if (!$N)", decodedFlag(property))
+                        .addCode(assignDecoded(property, value))
+                        .addStatement("$N = true", decodedFlag(property))
+                        .endControlFlow()
+                        .addStatement("return $N", property.humanName());
+            } else {
+                accessor.addStatement("return $L", value);
+            }
+            lazyRow.addMethod(accessor.build());
+        }
+
+        MethodSpec materialize = MethodSpec.methodBuilder("materialize")
+                .addModifiers(PRIVATE)
+                .returns(finalClass)
+                .addStatement("$T value = materialized", finalClass)
+                .beginControlFlow("if (value == null)")
+                .addCode("value = ")
+                .addCode(newFinalClassConstructorCall(context, accessors))
+                .addStatement("materialized = value")
+                .endControlFlow()
+                .addStatement("return value")
+                .build();
+
+        return lazyRow
+                .addMethod(materialize)
+                .addMethod(MethodSpec.methodBuilder("equals")
+                        .addAnnotation(Override.class)
+                        .addModifiers(PUBLIC)
+                        .returns(TypeName.BOOLEAN)
+                        .addParameter(Object.class, "o")
+                        .addStatement("return o == this || materialize().equals(o)")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("hashCode")
+                        .addAnnotation(Override.class)
+                        .addModifiers(PUBLIC)
+                        .returns(TypeName.INT)
+                        .addStatement("return materialize().hashCode()")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("toString")
+                        .addAnnotation(Override.class)
+                        .addModifiers(PUBLIC)
+                        .returns(String.class)
+                        .addStatement("return materialize().toString()")
+                        .build())
+                .build();
+    }
+
+    /** Returns the code that decodes the {@code kept} column value of a deferred property. */
+    private static CodeBlock decode(ColumnProperty property, CodeBlock kept) {
+        return property.converter() != null
+                ? property.convert(kept)
+                : AutoValueResultSetExtension.decodeValue(property, kept);
+    }
+
+    /**
+     * Assigns the decoded value to the property's field. Enum decoders throw an
+     * {@link java.sql.SQLException} for values they can't decode, which the accessor can't
+     * declare.
+     */
+    private static CodeBlock assignDecoded(ColumnProperty property, CodeBlock value) {
+        if (property.enumType() == null) {
+            return CodeBlock.builder()
+                    .addStatement("$N = $L", property.humanName(), value)
+                    .build();
+        }
+        return CodeBlock.builder()
+                .beginControlFlow("try")
+                .addStatement("$N = $L", property.humanName(), value)
+                .nextControlFlow("catch ($T e)", SQL_EXCEPTION)
+                .addStatement("throw new $T(e)", IllegalStateException.class)
+                .endControlFlow()
+                .build();
+    }
+
+    private static CodeBlock pack(TypeName type, CodeBlock value) {
+        if (type.equals(TypeName.BOOLEAN)) {
+            return CodeBlock.of("$L ? 1 : 0", value);
+        }
+        if (type.equals(TypeName.DOUBLE)) {
+            return CodeBlock.of("$T.doubleToRawLongBits($L)", Double.class, value);
+        }
+        if (type.equals(TypeName.FLOAT)) {
+            return CodeBlock.of("$T.floatToRawIntBits($L)", Float.class, value);
+        }
+        return value;
+    }
+
+    private static CodeBlock unpack(TypeName type, CodeBlock slot) {
+        if (type.equals(TypeName.BOOLEAN)) {
+            return CodeBlock.of("$L != 0", slot);
+        }
+        if (type.equals(TypeName.DOUBLE)) {
+            return CodeBlock.of("$T.longBitsToDouble($L)", Double.class, slot);
+        }
+        if (type.equals(TypeName.FLOAT)) {
+            return CodeBlock.of("$T.intBitsToFloat($L)", Float.class, slot);
+        }
+        if (type.equals(TypeName.LONG) || type.equals(TypeName.INT)) {
+            return slot;
+        }
+        return CodeBlock.of("($T) $L", type, slot);
+    }
+}
@@ -0,0 +1,238 @@
+package in.workarounds.avrs.resultset;
+
+import in.workaounds.avrs.PrefetchingIterator;
+import in.workaounds.avrs.Queries;
+import in.workaounds.avrs.RowConsumer;
+import in.workarounds.avrs.ColumnProperty;
+import com.google.auto.value.extension.AutoValueExtension.Context;
+import com.google.common.collect.ImmutableMap;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.WildcardTypeName;
+import java.util.List;
+import java.util.Map;
+
+import static com.gabrielittner.auto.value.util.AutoValueUtil.getAutoValueClassClassName;
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PROTECTED;
+import static javax.lang.model.element.Modifier.STATIC;
+
+/**
+ * Creates the {@link in.workaounds.avrs.Queryable} methods and the estimated row width the query
+ * method derives the fetch size from.
+ */
+final class QueryMethods {
+
+    static final String METHOD_NAME = "query";
+    static final String EACH_METHOD_NAME = "queryEach";
+    static final String PREFETCH_METHOD_NAME = "prefetchFromResultSet";
+    static final String ROW_BYTES_FIELD_NAME = "ESTIMATED_ROW_BYTES";
+
+    private static final ClassName SQL_EXCEPTION = ClassName.get("java.sql", "SQLException");
+    private static final ClassName CONNECTION = ClassName.get("java.sql", "Connection");
+    private static final ClassName PREPARED_STATEMENT =
+            ClassName.get("java.sql", "PreparedStatement");
+    private static final ClassName RESULT_SET = ClassName.get("java.sql", "ResultSet");
+    private static final ClassName LIST = ClassName.get(List.class);
+    private static final ClassName EXECUTOR = ClassName.get("java.util.concurrent", "Executor");
+    private static final ClassName PREFETCHING_ITERATOR = ClassName.get(PrefetchingIterator.class);
+    private static final ClassName ROW_CONSUMER = ClassName.get(RowConsumer.class);
+
+    /** Bytes a driver typically transfers for a column of a type whose width varies. */
+    private static final int VARIABLE_WIDTH = 32;
+    private static final int LARGE_OBJECT_WIDTH = 1024;
+
+    private static final Map<TypeName, Integer> COLUMN_WIDTHS =
+            ImmutableMap.<TypeName, Integer>builder()
+            .put(TypeName.BOOLEAN, 1)
+            .put(TypeName.BYTE, 1)
+            .put(TypeName.SHORT, 2)
+            .put(TypeName.INT, 4)
+            .put(TypeName.FLOAT, 4)
+            .put(TypeName.LONG, 8)
+            .put(TypeName.DOUBLE, 8)
+            .put(TypeName.get(byte[].class), 128)
+            .put(TypeName.get(Byte[].class), 128)
+            .put(ColumnProperty.SQL_DATE, 8)
+            .put(ColumnProperty.SQL_TIME, 8)
+            .put(ColumnProperty.SQL_TIMESTAMP, 12)
+            .put(ColumnProperty.INSTANT, 12)
+            .put(ColumnProperty.LOCAL_DATE, 8)
+            .put(ColumnProperty.LOCAL_TIME, 8)
+            .put(ColumnProperty.LOCAL_DATE_TIME, 12)
+            .put(ColumnProperty.OFFSET_TIME, 12)
+            .put(ColumnProperty.OFFSET_DATE_TIME, 16)
+            .put(ColumnProperty.UUID, 16)
+            .put(ColumnProperty.INPUT_STREAM, LARGE_OBJECT_WIDTH)
+            .put(ColumnProperty.READER, LARGE_OBJECT_WIDTH)
+            .put(ColumnProperty.BYTE_BUFFER, LARGE_OBJECT_WIDTH)
+            .build();
+
+    private QueryMethods() {
+        throw new AssertionError("No instances.");
+    }
+
+    static FieldSpec createRowBytesField(List<ColumnProperty> properties) {
+        return FieldSpec.builder(TypeName.INT, ROW_BYTES_FIELD_NAME, PRIVATE, STATIC, FINAL)
+                .initializer("$L", Math.max(1, rowBytes(properties)))
+                .build();
+    }
+
+    /**
+     * Adds up the widths of the columns read for the properties. Columns read by an adapter or
+     * for {@code @Children} aren't known and count as a string.
+     */
+    private static int rowBytes(List<ColumnProperty> properties) {
+        int bytes = 0;
+        for (ColumnProperty property : properties) {
+            if (property.embedded() && property.embeddedType() != null) {
+                bytes += rowBytes(property.embeddedProperties());
+                continue;
+            }
+            TypeName columnType = property.columnType();
+            Integer width = columnType != null ? COLUMN_WIDTHS.get(unbox(columnType)) : null;
+            bytes += width != null ? width : VARIABLE_WIDTH;
+        }
+        return bytes;
+    }
+
+    static MethodSpec createQueryMethod(Context context) {
+        TypeName valueType = getAutoValueClassClassName(context);
+        return MethodSpec.methodBuilder(METHOD_NAME)
+                .addModifiers(STATIC)
+                .returns(ParameterizedTypeName.get(LIST, valueType))
+                .addException(SQL_EXCEPTION)
+                .addParameter(CONNECTION, "connection")
+                .addParameter(String.class, "sql")
+                .addParameter(ArrayTypeName.of(Object.class), "params")
+                .varargs()
+                .beginControlFlow("try ($T statement = $T.prepare(connection, sql, $N, params);\n"
+                                + "$>$>$T resultSet = statement.executeQuery()$<$<)",
+                        PREPARED_STATEMENT, Queries.class, ROW_BYTES_FIELD_NAME, RESULT_SET)
+                .addStatement("return $L(resultSet)", AutoValueResultSetExtension.LIST_METHOD_NAME)
+                .endControlFlow()
+                .build();
+    }
+
+    /**
+     * Creates {@code queryEach}, which runs the query like {@code query} but hands each value to
+     * the consumer as it's mapped instead of collecting them.
+     */
+    static MethodSpec createQueryEachMethod(
+            Context context, List<ColumnProperty> properties, boolean flightRecorder) {
+        TypeName valueType = getAutoValueClassClassName(context);
+        MethodSpec.Builder eachMethod = MethodSpec.methodBuilder(EACH_METHOD_NAME)
+                .addModifiers(STATIC)
+                .addException(SQL_EXCEPTION)
+                .addParameter(CONNECTION, "connection")
+                .addParameter(String.class, "sql")
+                .addParameter(ParameterizedTypeName.get(
+                        ROW_CONSUMER, WildcardTypeName.supertypeOf(valueType)), "consumer")
+                .addParameter(ArrayTypeName.of(Object.class), "params")
+                .varargs()
+                .beginControlFlow("try ($T statement = $T.prepare(connection, sql, $N, params);\n"
+                                + "$>$>$T resultSet = statement.executeQuery()$<$<)",
+                        PREPARED_STATEMENT, Queries.class, ROW_BYTES_FIELD_NAME, RESULT_SET)
+                .addStatement("$T columns = $L(resultSet)", int[].class,
+                        AutoValueResultSetExtension.FIND_COLUMNS_METHOD_NAME);
+        if (!flightRecorder) {
+            return eachMethod
+                    .beginControlFlow("while (resultSet.next())")
+                    .addStatement("consumer.accept($L)",
+                            AutoValueResultSetExtension.readRow(false))
+                    .endControlFlow()
+                    .endControlFlow()
+                    .build();
+        }
+        return eachMethod
+                .addCode(FlightRecorderEvents.start(valueType, EACH_METHOD_NAME))
+                .beginControlFlow("while ($L)", FlightRecorderEvents.next(true))
+                .addStatement("$T value = $L", valueType, AutoValueResultSetExtension.readRow(
+                        AutoValueResultSetExtension.timesAdapters(true, properties)))
+                .addCode(FlightRecorderEvents.countLobs(properties, "value"))
+                .addStatement("consumer.accept(value)")
+                .endControlFlow()
+                .addCode(FlightRecorderEvents.finish())
+                .endControlFlow()
+                .build();
+    }
+
+    /**
+     * Creates {@code prefetchFromResultSet}, which resolves the columns once and returns a started
+     * {@link PrefetchingIterator} that maps the rows with them. A {@code @FlightRecorded} type's
+     * iterator records the event on the background thread.
+     */
+    static MethodSpec createPrefetchMethod(
+            Context context, List<ColumnProperty> properties, boolean flightRecorder) {
+        TypeName valueType = getAutoValueClassClassName(context);
+        TypeSpec.Builder iterator = TypeSpec.anonymousClassBuilder("resultSet, depth, executor")
+                .superclass(ParameterizedTypeName.get(PREFETCHING_ITERATOR, valueType));
+        MethodSpec.Builder read = MethodSpec.methodBuilder("read")
+                .addAnnotation(Override.class)
+                .addModifiers(PROTECTED)
+                .returns(valueType)
+                .addException(SQL_EXCEPTION)
+                .addParameter(RESULT_SET, "resultSet");
+        if (!flightRecorder) {
+            iterator.addMethod(read
+                    .addStatement("return $L", AutoValueResultSetExtension.readRow(false))
+                    .build());
+        } else {
+            CodeBlock countLobs = FlightRecorderEvents.countLobs(properties, "value");
+            CodeBlock readRow = AutoValueResultSetExtension.readRow(
+                    AutoValueResultSetExtension.timesAdapters(true, properties));
+            if (countLobs.isEmpty()) {
+                read.addStatement("return $L", readRow);
+            } else {
+                read.addStatement("$T value = $L", valueType, readRow)
+                        .addCode(countLobs)
+                        .addStatement("return value");
+            }
+            iterator.addField(FlightRecorderEvents.EVENT, FlightRecorderEvents.VARIABLE_NAME,
+                            PRIVATE)
+                    .addMethod(MethodSpec.methodBuilder("producerStarted")
+                            .addAnnotation(Override.class)
+                            .addModifiers(PROTECTED)
+                            .addStatement("$N = $T.start($T.class, $S)",
+                                    FlightRecorderEvents.VARIABLE_NAME, FlightRecorderEvents.EVENT,
+                                    valueType, PREFETCH_METHOD_NAME)
+                            .build())
+                    .addMethod(MethodSpec.methodBuilder("nextRow")
+                            .addAnnotation(Override.class)
+                            .addModifiers(PROTECTED)
+                            .returns(TypeName.BOOLEAN)
+                            .addException(SQL_EXCEPTION)
+                            .addParameter(RESULT_SET, "resultSet")
+                            .addStatement("return $L", FlightRecorderEvents.next(true))
+                            .build())
+                    .addMethod(read.build())
+                    .addMethod(MethodSpec.methodBuilder("producerStopped")
+                            .addAnnotation(Override.class)
+                            .addModifiers(PROTECTED)
+                            .addCode(FlightRecorderEvents.finish())
+                            .build());
+        }
+        return MethodSpec.methodBuilder(PREFETCH_METHOD_NAME)
+                .addModifiers(STATIC)
+                .returns(ParameterizedTypeName.get(PREFETCHING_ITERATOR, valueType))
+                .addException(SQL_EXCEPTION)
+                .addParameter(RESULT_SET, "resultSet")
+                .addParameter(TypeName.INT, "depth")
+                .addParameter(EXECUTOR, "executor")
+                .addStatement("final $T columns = $L(resultSet)", int[].class,
+                        AutoValueResultSetExtension.FIND_COLUMNS_METHOD_NAME)
+                .addStatement("return $L.start()", iterator.build())
+                .build();
+    }
+
+    private static TypeName unbox(TypeName type) {
+        return type.isBoxedPrimitive() ? type.unbox() : type;
+    }
+}
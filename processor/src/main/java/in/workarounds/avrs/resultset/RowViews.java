@@ -0,0 +1,142 @@
+package in.workarounds.avrs.resultset;
+
+import in.workaounds.avrs.RowConsumer;
+import in.workarounds.avrs.ColumnProperty;
+import com.gabrielittner.auto.value.util.Property;
+import com.google.auto.value.extension.AutoValueExtension.Context;
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.WildcardTypeName;
+import java.util.List;
+import javax.lang.model.element.Modifier;
+
+import static com.gabrielittner.auto.value.util.AutoValueUtil.error;
+import static com.gabrielittner.auto.value.util.AutoValueUtil.getAutoValueClassClassName;
+import static javax.lang.model.element.Modifier.ABSTRACT;
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.STATIC;
+
+/**
+ * Creates the {@link in.workaounds.avrs.RowView} class nested in the generated class, whose
+ * accessors read the current row through the indices of {@code findColumns}, and the
+ * {@code forEach} method that moves one instance of it over a result set.
+ */
+final class RowViews {
+
+    static final String METHOD_NAME = "forEach";
+
+    private static final ClassName SQL_EXCEPTION = ClassName.get("java.sql", "SQLException");
+    private static final ClassName RESULT_SET = ClassName.get("java.sql", "ResultSet");
+    private static final ClassName ROW_CONSUMER = ClassName.get(RowConsumer.class);
+    private static final TypeName INT_ARRAY = TypeName.get(int[].class);
+
+    private RowViews() {
+        throw new AssertionError("No instances.");
+    }
+
+    /** Returns {@code X_Row} for value type {@code X}, or {@code Outer_X_Row} if it's nested. */
+    static String className(Context context) {
+        return Joiner.on('_').join(getAutoValueClassClassName(context).simpleNames()) + "_Row";
+    }
+
+    /**
+     * Reports {@code @Lazy} and {@code @Children} properties, whose values would outlive the row
+     * the view was on when they were read.
+     */
+    static void validate(Context context, List<ColumnProperty> properties) {
+        for (ColumnProperty property : AutoValueResultSetExtension.columnLayout(properties)) {
+            if (property.lazyDecoder() != null || property.children()) {
+                error(context, property, "@RowView types can't have @Lazy or @Children "
+                        + "properties, which the view can't read from its current row.");
+            }
+        }
+    }
+
+    static MethodSpec createForEachMethod(Context context, boolean flightRecorder) {
+        ClassName view = ClassName.get("", className(context));
+        MethodSpec.Builder forEach = MethodSpec.methodBuilder(METHOD_NAME)
+                .addModifiers(STATIC)
+                .addException(SQL_EXCEPTION)
+                .addParameter(RESULT_SET, "resultSet")
+                .addParameter(ParameterizedTypeName.get(
+                        ROW_CONSUMER, WildcardTypeName.supertypeOf(view)), "consumer")
+                .addStatement("$1T row = new $1T(resultSet, $2L(resultSet))",
+                        view, AutoValueResultSetExtension.FIND_COLUMNS_METHOD_NAME);
+        if (flightRecorder) {
+            // The consumer reads the columns, so the event has no LOB bytes or adapter time.
+            forEach.addCode(FlightRecorderEvents.start(
+                    getAutoValueClassClassName(context), METHOD_NAME));
+        }
+        forEach.beginControlFlow("while ($L)", FlightRecorderEvents.next(flightRecorder))
+                .addStatement("consumer.accept(row)")
+                .endControlFlow();
+        if (flightRecorder) {
+            forEach.addCode(FlightRecorderEvents.finish());
+        }
+        return forEach.build();
+    }
+
+    static TypeSpec createViewClass(Context context, ImmutableList<ColumnProperty> properties) {
+        List<ColumnProperty> layout = AutoValueResultSetExtension.columnLayout(properties);
+        TypeSpec.Builder view = TypeSpec.classBuilder(className(context))
+                .addModifiers(STATIC, FINAL)
+                .addField(RESULT_SET, "resultSet", PRIVATE, FINAL)
+                .addField(INT_ARRAY, "columns", PRIVATE, FINAL)
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addModifiers(PRIVATE)
+                        .addParameter(RESULT_SET, "resultSet")
+                        .addParameter(INT_ARRAY, "columns")
+                        .addStatement("this.resultSet = resultSet")
+                        .addStatement("this.columns = columns")
+                        .build());
+
+        for (ColumnProperty property : properties) {
+            MethodSpec.Builder accessor = MethodSpec.methodBuilder(property.methodName())
+                    .returns(property.type())
+                    .addException(SQL_EXCEPTION);
+            for (Modifier modifier : property.element().getModifiers()) {
+                if (modifier != ABSTRACT) {
+                    accessor.addModifiers(modifier);
+                }
+            }
+
+            if (property.columnAdapter() == null
+                    && property.supportedType()
+                    && !AutoValueResultSetExtension.needsColumnIndexVar(property)) {
+                String columnIndex =
+                        "columns[" + AutoValueResultSetExtension.indexOf(layout, property) + "]";
+                accessor.addStatement("return $L", AutoValueResultSetExtension.readValue(property,
+                        columnIndex, AutoValueResultSetExtension.sqlType(layout, property)));
+            } else {
+                // Adapters, embedded types and guarded columns are read as by createFromResultSet.
+                List<ColumnProperty> read = ImmutableList.of(property);
+                List<ColumnProperty> readLayout = AutoValueResultSetExtension.columnLayout(read);
+                ImmutableMap<Property, FieldSpec> columnAdapters =
+                        AutoValueResultSetExtension.getColumnAdapters(readLayout);
+                AutoValueResultSetExtension.addColumnAdaptersToMethod(
+                        accessor, readLayout, columnAdapters);
+                accessor.addCode(AutoValueResultSetExtension.readProperties(
+                                context, read, columnAdapters, false, true, false, layout))
+                        .addStatement("return $N", property.humanName());
+            }
+            view.addMethod(accessor.build());
+        }
+
+        return view
+                .addMethod(MethodSpec.methodBuilder("materialize")
+                        .returns(getAutoValueClassClassName(context))
+                        .addException(SQL_EXCEPTION)
+                        .addStatement("return $L(resultSet, columns)",
+                                AutoValueResultSetExtension.METHOD_NAME)
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,136 @@
+package in.workarounds.avrs.resultset;
+
+import in.workaounds.avrs.EstimateSize;
+import in.workaounds.avrs.RetainedSize;
+import in.workarounds.avrs.ColumnProperty;
+import com.google.auto.value.extension.AutoValueExtension.Context;
+import com.google.common.collect.ImmutableMap;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.WildcardTypeName;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.gabrielittner.auto.value.util.AutoValueUtil.getAutoValueClassClassName;
+import static com.google.auto.common.MoreElements.isAnnotationPresent;
+import static javax.lang.model.element.Modifier.STATIC;
+
+/**
+ * Creates the {@link EstimateSize} method, which adds the sizes known when the value type is
+ * compiled, its fields and the objects of fixed size it refers to, to those of the strings, arrays
+ * and lists of each value.
+ */
+final class SizeEstimates {
+
+    static final String METHOD_NAME = "estimateRetainedSize";
+
+    private static final int OBJECT_HEADER = 12;
+    private static final int REFERENCE = 4;
+    private static final int UNKNOWN = 16;
+
+    /** Retained sizes of the immutable types that don't vary between values. */
+    private static final Map<TypeName, Integer> FIXED_SIZES =
+            ImmutableMap.<TypeName, Integer>builder()
+            .put(TypeName.BOOLEAN.box(), 16)
+            .put(TypeName.BYTE.box(), 16)
+            .put(TypeName.SHORT.box(), 16)
+            .put(TypeName.INT.box(), 16)
+            .put(TypeName.LONG.box(), 24)
+            .put(TypeName.FLOAT.box(), 16)
+            .put(TypeName.DOUBLE.box(), 24)
+            .put(ColumnProperty.SQL_DATE, 24)
+            .put(ColumnProperty.SQL_TIME, 24)
+            .put(ColumnProperty.SQL_TIMESTAMP, 32)
+            .put(ColumnProperty.UUID, 32)
+            .put(ColumnProperty.INSTANT, 24)
+            .put(ColumnProperty.LOCAL_DATE, 24)
+            .put(ColumnProperty.LOCAL_TIME, 24)
+            .put(ColumnProperty.LOCAL_DATE_TIME, 72)
+            .put(ColumnProperty.OFFSET_TIME, 48)
+            .put(ColumnProperty.OFFSET_DATE_TIME, 96)
+            .build();
+
+    private SizeEstimates() {
+        throw new AssertionError("No instances.");
+    }
+
+    static MethodSpec createEstimateMethod(Context context, List<ColumnProperty> properties) {
+        TypeName valueType = getAutoValueClassClassName(context);
+        List<CodeBlock> variable = new ArrayList<>();
+        long fixed = addSizes(properties, CodeBlock.of("value"), variable);
+        CodeBlock.Builder rowSize = CodeBlock.builder().add("$LL", fixed);
+        for (CodeBlock size : variable) {
+            rowSize.add(" + $L", size);
+        }
+        return MethodSpec.methodBuilder(METHOD_NAME)
+                .addModifiers(STATIC)
+                .returns(TypeName.LONG)
+                .addParameter(ParameterizedTypeName.get(ColumnProperty.LIST,
+                        WildcardTypeName.subtypeOf(valueType)), "values")
+                .addStatement("long size = $T.of(values)", RetainedSize.class)
+                .beginControlFlow("for ($T value : values)", valueType)
+                .addStatement("size += $L", rowSize.build())
+                .endControlFlow()
+                .addStatement("return size")
+                .build();
+    }
+
+    /**
+     * Returns the size of a value with these properties that is known at compile time, and adds
+     * the expressions for the rest to {@code variable}.
+     */
+    private static long addSizes(
+            List<ColumnProperty> properties, CodeBlock owner, List<CodeBlock> variable) {
+        long fields = OBJECT_HEADER;
+        long referenced = 0;
+        for (ColumnProperty property : properties) {
+            TypeName type = property.type();
+            fields += fieldSize(type);
+            if (type.isPrimitive() || property.enumType() != null) {
+                continue;
+            }
+            CodeBlock value = CodeBlock.of("$L.$N()", owner, property.methodName());
+            if (property.embedded() && property.embeddedType() != null) {
+                referenced += addSizes(property.embeddedProperties(), value, variable);
+            } else if (property.children() && property.childType() != null) {
+                variable.add(isAnnotationPresent(property.childType(), EstimateSize.class)
+                        ? CodeBlock.of("$T.$L($L)", AutoValueResultSetExtension.finalClassName(
+                                property.childType()), METHOD_NAME, value)
+                        : CodeBlock.of("$T.of($L)", RetainedSize.class, value));
+            } else if (type.equals(TypeName.get(String.class))
+                    || type.equals(TypeName.get(byte[].class))) {
+                variable.add(CodeBlock.of("$T.of($L)", RetainedSize.class, value));
+            } else {
+                Integer size = FIXED_SIZES.get(type);
+                if (size == null) {
+                    size = UNKNOWN;
+                }
+                if (property.nullable()) {
+                    variable.add(CodeBlock.of("($L != null ? $LL : 0L)", value, size));
+                } else {
+                    referenced += size;
+                }
+            }
+        }
+        return RetainedSize.align(fields) + referenced;
+    }
+
+    private static int fieldSize(TypeName type) {
+        if (type.equals(TypeName.LONG) || type.equals(TypeName.DOUBLE)) {
+            return 8;
+        }
+        if (type.equals(TypeName.INT) || type.equals(TypeName.FLOAT)) {
+            return 4;
+        }
+        if (type.equals(TypeName.SHORT) || type.equals(TypeName.CHAR)) {
+            return 2;
+        }
+        if (type.equals(TypeName.BYTE) || type.equals(TypeName.BOOLEAN)) {
+            return 1;
+        }
+        return REFERENCE;
+    }
+}
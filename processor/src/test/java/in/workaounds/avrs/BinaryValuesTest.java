@@ -0,0 +1,220 @@
+package in.workaounds.avrs;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+public class BinaryValuesTest {
+    private static final ValueCodec<String> STRINGS = new ValueCodec<String>() {
+        @Override
+        public long schemaHash() {
+            return 42;
+        }
+
+        @Override
+        public void write(String value, DataOutput out) throws IOException {
+            BinaryValues.writeString(out, value);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            return BinaryValues.readString(in);
+        }
+    };
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+
+    private DataInputStream in() {
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    private static DataInputStream in(int... bytes) {
+        byte[] data = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            data[i] = (byte) bytes[i];
+        }
+        return new DataInputStream(new ByteArrayInputStream(data));
+    }
+
+    @Test
+    public void varLongsRoundTrip() throws IOException {
+        long[] values = {0, 1, -1, 63, -64, 64, 300, Integer.MAX_VALUE, Integer.MIN_VALUE,
+                Long.MAX_VALUE, Long.MIN_VALUE};
+        for (long value : values) {
+            BinaryValues.writeVarLong(out, value);
+        }
+
+        DataInputStream in = in();
+        for (long value : values) {
+            assertThat(BinaryValues.readVarLong(in)).isEqualTo(value);
+        }
+        assertThat(in.available()).isEqualTo(0);
+    }
+
+    @Test
+    public void smallMagnitudesTakeOneByte() throws IOException {
+        BinaryValues.writeVarLong(out, -64);
+        BinaryValues.writeVarLong(out, 63);
+
+        assertThat(bytes.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void rejectsVarintsThatOverflow() throws IOException {
+        // Long.MIN_VALUE takes ten bytes, the last one holding a single bit.
+        BinaryValues.writeVarLong(out, Long.MIN_VALUE);
+        byte[] encoded = bytes.toByteArray();
+        assertThat(encoded.length).isEqualTo(10);
+        encoded[9] |= 0x02;
+        try {
+            BinaryValues.readVarLong(new DataInputStream(new ByteArrayInputStream(encoded)));
+            fail();
+        } catch (IOException expected) {
+            assertThat(expected.getMessage()).contains("overflows");
+        }
+
+        try {
+            BinaryValues.readVarLong(
+                    in(0x80, 0x80, 0x80, 0x80, 0x80, 0x80, 0x80, 0x80, 0x80, 0x81, 0x00));
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void rejectsVarIntsOutsideTheIntRange() throws IOException {
+        BinaryValues.writeVarLong(out, Integer.MAX_VALUE + 1L);
+        try {
+            BinaryValues.readVarInt(in());
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void truncatedVarintsThrow() throws IOException {
+        try {
+            BinaryValues.readVarLong(in(0x80, 0x80));
+            fail();
+        } catch (EOFException expected) {
+        }
+    }
+
+    @Test
+    public void stringsAndBytesRoundTrip() throws IOException {
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 70000; i++) {
+            large.append((char) ('a' + i % 26));
+        }
+        BinaryValues.writeString(out, "");
+        BinaryValues.writeString(out, "\u00e9\ud83d\ude00");
+        BinaryValues.writeString(out, large.toString());
+        BinaryValues.writeBytes(out, new byte[] {1, 2, 3});
+
+        DataInputStream in = in();
+        assertThat(BinaryValues.readString(in)).isEqualTo("");
+        assertThat(BinaryValues.readString(in)).isEqualTo("\u00e9\ud83d\ude00");
+        assertThat(BinaryValues.readString(in)).isEqualTo(large.toString());
+        assertThat(BinaryValues.readBytes(in)).isEqualTo(new byte[] {1, 2, 3});
+    }
+
+    @Test
+    public void corruptLengthsFailWithoutAllocatingThem() throws IOException {
+        BinaryValues.writeVarInt(out, Integer.MAX_VALUE);
+        out.write(new byte[] {1, 2, 3});
+        try {
+            BinaryValues.readBytes(in());
+            fail();
+        } catch (EOFException expected) {
+        }
+
+        bytes.reset();
+        BinaryValues.writeVarInt(out, -1);
+        try {
+            BinaryValues.readBytes(in());
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void timestampsKeepTheirNanoseconds() throws IOException {
+        Timestamp value = Timestamp.valueOf("2020-01-02 03:04:05.123456789");
+        Timestamp beforeEpoch = Timestamp.valueOf("1960-01-02 03:04:05.5");
+        BinaryValues.writeTimestamp(out, value);
+        BinaryValues.writeTimestamp(out, beforeEpoch);
+
+        DataInputStream in = in();
+        assertThat(BinaryValues.readTimestamp(in)).isEqualTo(value);
+        assertThat(BinaryValues.readTimestamp(in)).isEqualTo(beforeEpoch);
+    }
+
+    @Test
+    public void rejectsOutOfRangeNanoseconds() throws IOException {
+        BinaryValues.writeVarLong(out, 0);
+        BinaryValues.writeVarInt(out, 1000000000);
+        try {
+            BinaryValues.readTimestamp(in());
+            fail();
+        } catch (IOException expected) {
+        }
+
+        bytes.reset();
+        BinaryValues.writeVarLong(out, 0);
+        BinaryValues.writeVarInt(out, -1);
+        try {
+            BinaryValues.readTimestamp(in());
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void listsRoundTrip() throws IOException {
+        List<String> values = Arrays.asList("a", "b", "c");
+        BinaryValues.writeList(values, out, STRINGS);
+
+        assertThat(BinaryValues.readList(in(), STRINGS)).isEqualTo(values);
+    }
+
+    @Test
+    public void listsOfAnotherSchemaAreRejected() throws IOException {
+        BinaryValues.writeList(Arrays.asList("a"), out, STRINGS);
+        ValueCodec<String> changed = new ValueCodec<String>() {
+            @Override
+            public long schemaHash() {
+                return 43;
+            }
+
+            @Override
+            public void write(String value, DataOutput out) throws IOException {
+                STRINGS.write(value, out);
+            }
+
+            @Override
+            public String read(DataInput in) throws IOException {
+                return STRINGS.read(in);
+            }
+        };
+
+        try {
+            BinaryValues.readList(in(), changed);
+            fail();
+        } catch (IOException expected) {
+            assertThat(expected.getMessage()).contains("Schema hash");
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package in.workaounds.avrs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+public class CsvOutputTest {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    private String written(CsvOutput csv) throws IOException {
+        csv.flush();
+        return new String(bytes.toByteArray(), Utf8Output.UTF_8);
+    }
+
+    @Test
+    public void quotesOnlyWhereNeeded() throws IOException {
+        CsvOutput csv = new CsvOutput(bytes, CsvOptions.CSV);
+
+        csv.value("plain");
+        csv.value("a,b");
+        csv.value("say \"hi\"");
+        csv.value("two\r\nlines");
+        csv.endRow();
+
+        assertThat(written(csv))
+                .isEqualTo("plain,\"a,b\",\"say \"\"hi\"\"\",\"two\r\nlines\"\r\n");
+    }
+
+    @Test
+    public void quotesEmptyStringsSoTheyDifferFromNull() throws IOException {
+        CsvOutput csv = new CsvOutput(bytes, CsvOptions.CSV);
+
+        csv.value("");
+        csv.value((String) null);
+        csv.nullableValue(1L, true);
+        csv.endRow();
+
+        assertThat(written(csv)).isEqualTo("\"\",,\r\n");
+    }
+
+    @Test
+    public void quotesStringsEqualToTheNullValue() throws IOException {
+        CsvOutput csv = new CsvOutput(bytes, CsvOptions.CSV.withNullValue("NULL"));
+
+        csv.value("NULL");
+        csv.nullValue();
+        csv.value("");
+        csv.endRow();
+
+        assertThat(written(csv)).isEqualTo("\"NULL\",NULL,\"\"\r\n");
+    }
+
+    @Test
+    public void usesTheDelimiterAndLineSeparator() throws IOException {
+        CsvOutput csv = new CsvOutput(bytes, CsvOptions.TSV);
+
+        csv.header(new String[] {"a", "b"});
+        csv.value(1L);
+        csv.value("x\ty");
+        csv.endRow();
+        csv.value(true);
+        csv.value("x,y");
+        csv.endRow();
+
+        assertThat(written(csv)).isEqualTo("a\tb\n1\t\"x\ty\"\ntrue\tx,y\n");
+    }
+
+    @Test
+    public void writesNumbersBytesAndDates() throws IOException {
+        CsvOutput csv = new CsvOutput(bytes, CsvOptions.CSV);
+
+        csv.value(-7L);
+        csv.value(2.5);
+        csv.value(new BigDecimal("1E+2"));
+        csv.value(new byte[] {1, 2, 3});
+        csv.value((Object) LocalDate.of(2020, 1, 2));
+        csv.endRow();
+
+        assertThat(written(csv)).isEqualTo("-7,2.5,100,AQID,2020-01-02\r\n");
+    }
+
+    @Test
+    public void writesToAWriter() throws IOException {
+        StringWriter writer = new StringWriter();
+        CsvOutput csv = new CsvOutput(writer, CsvOptions.CSV);
+
+        csv.value("\u00e9\ud83d\ude00");
+        csv.value("a\"b");
+        csv.endRow();
+        csv.flush();
+
+        assertThat(writer.toString()).isEqualTo("\u00e9\ud83d\ude00,\"a\"\"b\"\r\n");
+    }
+
+    @Test
+    public void rejectsQuotesAndLineBreaksAsDelimiters() {
+        char[] delimiters = {'"', '\r', '\n'};
+        for (char delimiter : delimiters) {
+            try {
+                CsvOptions.CSV.withDelimiter(delimiter);
+                fail();
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+}
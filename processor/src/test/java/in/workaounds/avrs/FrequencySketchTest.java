@@ -0,0 +1,67 @@
+package in.workaounds.avrs;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class FrequencySketchTest {
+
+    @Test
+    public void countsIncrements() {
+        FrequencySketch sketch = new FrequencySketch();
+        sketch.ensureCapacity(16);
+
+        sketch.increment(1);
+        sketch.increment(1);
+        sketch.increment(1);
+        sketch.increment(2);
+
+        assertThat(sketch.frequency(1)).isEqualTo(3);
+        assertThat(sketch.frequency(2)).isEqualTo(1);
+        assertThat(sketch.frequency(3)).isEqualTo(0);
+    }
+
+    @Test
+    public void countersSaturate() {
+        FrequencySketch sketch = new FrequencySketch();
+        sketch.ensureCapacity(16);
+
+        for (int i = 0; i < 20; i++) {
+            sketch.increment(1);
+        }
+
+        assertThat(sketch.frequency(1)).isEqualTo(15);
+    }
+
+    @Test
+    public void halvesCountsAfterTheSample() {
+        FrequencySketch sketch = new FrequencySketch();
+        // 16 rows, so counts are halved after 160 increments.
+        sketch.ensureCapacity(16);
+        for (int i = 0; i < 10; i++) {
+            sketch.increment(-1);
+        }
+        for (int i = 0; i < 149; i++) {
+            sketch.increment(i);
+        }
+        // Other keys may share counters with -1, so it can only count more often than it was.
+        int before = sketch.frequency(-1);
+        assertThat(before).isAtLeast(10);
+
+        sketch.increment(149);
+
+        assertThat(sketch.frequency(-1)).isEqualTo(before / 2);
+    }
+
+    @Test
+    public void growingForgetsCounts() {
+        FrequencySketch sketch = new FrequencySketch();
+        sketch.ensureCapacity(16);
+        sketch.increment(1);
+
+        sketch.ensureCapacity(16);
+        assertThat(sketch.frequency(1)).isEqualTo(1);
+        sketch.ensureCapacity(1000);
+        assertThat(sketch.frequency(1)).isEqualTo(0);
+    }
+}
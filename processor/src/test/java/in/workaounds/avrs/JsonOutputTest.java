@@ -0,0 +1,158 @@
+package in.workaounds.avrs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.UUID;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class JsonOutputTest {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final JsonOutput json = new JsonOutput(bytes);
+
+    private String written() throws IOException {
+        json.flush();
+        return new String(bytes.toByteArray(), Utf8Output.UTF_8);
+    }
+
+    @Test
+    public void escapesQuotesBackslashesAndControlCharacters() throws IOException {
+        json.value("a\"b\\c\nd\u0000e\u001f");
+
+        assertThat(written()).isEqualTo("\"a\\\"b\\\\c\\u000ad\\u0000e\\u001f\"");
+    }
+
+    @Test
+    public void encodesCharactersAsUtf8() throws IOException {
+        String value = "\u00e9\u20ac\ud83d\ude00";
+        json.value(value);
+
+        byte[] expected = ("\"" + value + "\"").getBytes(Utf8Output.UTF_8);
+        json.flush();
+        assertThat(Arrays.equals(bytes.toByteArray(), expected)).isTrue();
+    }
+
+    @Test
+    public void writesStringsLongerThanTheBuffer() throws IOException {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            value.append(i % 2 == 0 ? 'a' : '\u00e9');
+        }
+        json.value(value.toString());
+
+        assertThat(written()).isEqualTo("\"" + value + "\"");
+    }
+
+    @Test
+    public void writesBytesAsBase64() throws IOException {
+        json.value(new byte[0]);
+        json.comma();
+        json.value(new byte[] {1});
+        json.comma();
+        json.value(new byte[] {1, 2});
+        json.comma();
+        json.value(new byte[] {1, 2, 3, (byte) 0xff});
+
+        assertThat(written()).isEqualTo("\"\",\"AQ==\",\"AQI=\",\"AQID/w==\"");
+    }
+
+    @Test
+    public void writesNumbers() throws IOException {
+        json.value(0L);
+        json.comma();
+        json.value(-42L);
+        json.comma();
+        json.value(Long.MIN_VALUE);
+        json.comma();
+        json.value(3.0);
+        json.comma();
+        json.value(0.5);
+        json.comma();
+        json.value(1e20);
+
+        assertThat(written()).isEqualTo("0,-42,-9223372036854775808,3,0.5,1.0E20");
+    }
+
+    @Test
+    public void writesNullForNonFiniteDoubles() throws IOException {
+        json.value(Double.NaN);
+        json.comma();
+        json.value(Double.POSITIVE_INFINITY);
+        json.comma();
+        json.nullableValue(1L, true);
+
+        assertThat(written()).isEqualTo("null,null,null");
+    }
+
+    @Test
+    public void writesDecimalsInPlainNotation() throws IOException {
+        json.value(new BigDecimal("1E+3"));
+        json.comma();
+        json.value(new BigDecimal("0.00000012"));
+        json.comma();
+        json.value((Object) new BigDecimal("-1.50"));
+
+        assertThat(written()).isEqualTo("1000,0.00000012,-1.50");
+    }
+
+    @Test
+    public void writesDatesAsIsoStrings() throws IOException {
+        json.value(java.sql.Timestamp.valueOf("2020-01-02 03:04:05.5"));
+        json.comma();
+        json.value(java.sql.Date.valueOf("2020-01-02"));
+        json.comma();
+        json.value(java.sql.Time.valueOf("03:04:00"));
+        json.comma();
+        json.value(new Date(0));
+        json.comma();
+        json.value(LocalDateTime.of(2020, 1, 2, 3, 4));
+        json.comma();
+        json.value((Object) OffsetDateTime.of(2020, 1, 2, 3, 4, 5, 0, ZoneOffset.ofHours(1)));
+
+        assertThat(written()).isEqualTo("\"2020-01-02T03:04:05.5\",\"2020-01-02\",\"03:04:00\","
+                + "\"1970-01-01T00:00:00Z\",\"2020-01-02T03:04:00\",\"2020-01-02T03:04:05+01:00\"");
+    }
+
+    @Test
+    public void writesOtherObjectsAsStrings() throws IOException {
+        UUID id = new UUID(1, 2);
+        json.value((Object) id);
+        json.comma();
+        json.value((Object) null);
+
+        assertThat(written()).isEqualTo("\"" + id + "\",null");
+    }
+
+    @Test
+    public void fieldNamesIncludeTheSeparators() throws IOException {
+        json.beginObject();
+        json.name(JsonOutput.fieldName("a", true));
+        json.value(1L);
+        json.name(JsonOutput.fieldName("b\"", false));
+        json.value(true);
+        json.endObject();
+
+        assertThat(written()).isEqualTo("{\"a\":1,\"b\\\"\":true}");
+    }
+
+    @Test
+    public void writesToAWriter() throws IOException {
+        StringWriter writer = new StringWriter();
+        JsonOutput json = new JsonOutput(writer);
+
+        json.beginArray();
+        json.value("\u00e9\ud83d\ude00");
+        json.endArray();
+        json.flush();
+
+        assertThat(writer.toString()).isEqualTo("[\"\u00e9\ud83d\ude00\"]");
+    }
+}
@@ -0,0 +1,280 @@
+package in.workaounds.avrs;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+public class KeysetPagesTest {
+
+    /** A table of the keys 1 to {@code rows}, which records the queries run against it. */
+    private static final class Table {
+        final long rows;
+        final List<String> queries = new ArrayList<>();
+        SQLException failure;
+
+        Table(long rows) {
+            this.rows = rows;
+        }
+
+        Connection connection() {
+            return proxy(Connection.class, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    if (method.getName().equals("prepareStatement")) {
+                        return statement((String) args[0]);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                }
+            });
+        }
+
+        private PreparedStatement statement(final String sql) {
+            final Map<Integer, Object> params = new HashMap<>();
+            final int[] fetchSize = {0};
+            return proxy(PreparedStatement.class, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args)
+                        throws SQLException {
+                    switch (method.getName()) {
+                        case "setFetchSize":
+                            fetchSize[0] = (Integer) args[0];
+                            return null;
+                        case "getFetchSize":
+                            return fetchSize[0];
+                        case "setInt":
+                        case "setLong":
+                        case "setObject":
+                            params.put((Integer) args[0], args[1]);
+                            return null;
+                        case "executeQuery":
+                            return execute(sql, params);
+                        case "close":
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                }
+            });
+        }
+
+        private synchronized ResultSet execute(String sql, Map<Integer, Object> params)
+                throws SQLException {
+            queries.add(sql);
+            if (failure != null) {
+                throw failure;
+            }
+            boolean after = sql.contains(" > ?");
+            long first = after ? (Long) params.get(1) + 1 : 1;
+            int limit = (Integer) params.get(after ? 2 : 1);
+            final long end = Math.min(rows + 1, first + limit);
+            final long[] current = {first - 1};
+            return proxy(ResultSet.class, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    switch (method.getName()) {
+                        case "next":
+                            return ++current[0] < end;
+                        case "getLong":
+                            return current[0];
+                        case "close":
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                }
+            });
+        }
+
+        synchronized int queryCount() {
+            return queries.size();
+        }
+
+        KeysetPages<Long> pages(int pageSize) {
+            return new KeysetPages<Long>(connection(), "SELECT id FROM t", "id", pageSize, 8) {
+                @Override
+                protected void bindKey(PreparedStatement statement, int index, Long last)
+                        throws SQLException {
+                    statement.setLong(index, last);
+                }
+
+                @Override
+                protected List<Long> read(ResultSet resultSet) throws SQLException {
+                    List<Long> page = new ArrayList<>();
+                    while (resultSet.next()) {
+                        page.add(resultSet.getLong(1));
+                    }
+                    return page;
+                }
+            };
+        }
+    }
+
+    /** Runs tasks when the test asks it to. */
+    private static final class QueuedExecutor implements Executor {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.remove().run();
+            }
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(
+                KeysetPagesTest.class.getClassLoader(), new Class<?>[] {type}, handler));
+    }
+
+    private static List<List<Long>> readAll(KeysetPages.PageIterator<Long> pages) {
+        List<List<Long>> read = new ArrayList<>();
+        while (pages.hasNext()) {
+            read.add(pages.next());
+        }
+        return read;
+    }
+
+    @Test
+    public void continuesAfterTheLastKey() {
+        Table table = new Table(7);
+
+        List<List<Long>> pages = readAll(table.pages(3).iterator());
+
+        assertThat(pages).isEqualTo(Arrays.asList(
+                Arrays.asList(1L, 2L, 3L), Arrays.asList(4L, 5L, 6L), Arrays.asList(7L)));
+        assertThat(table.queries).isEqualTo(Arrays.asList(
+                "SELECT * FROM (SELECT id FROM t) keyset ORDER BY id LIMIT ?",
+                "SELECT * FROM (SELECT id FROM t) keyset WHERE id > ? ORDER BY id LIMIT ?",
+                "SELECT * FROM (SELECT id FROM t) keyset WHERE id > ? ORDER BY id LIMIT ?"));
+    }
+
+    @Test
+    public void fullLastPagesEndWithAnEmptyQuery() {
+        Table table = new Table(6);
+
+        List<List<Long>> pages = readAll(table.pages(3).iterator());
+
+        assertThat(pages.size()).isEqualTo(2);
+        assertThat(table.queryCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void emptyResultsHaveNoPages() {
+        KeysetPages.PageIterator<Long> pages = new Table(0).pages(3).iterator();
+
+        assertThat(pages.hasNext()).isFalse();
+        try {
+            pages.next();
+            fail();
+        } catch (NoSuchElementException expected) {
+        }
+    }
+
+    @Test
+    public void prefetchesTheNextPageOnTheExecutor() {
+        Table table = new Table(5);
+        QueuedExecutor executor = new QueuedExecutor();
+        KeysetPages.PageIterator<Long> pages = table.pages(3).prefetching(executor);
+
+        assertThat(pages.next()).isEqualTo(Arrays.asList(1L, 2L, 3L));
+        assertThat(table.queryCount()).isEqualTo(1);
+        assertThat(executor.tasks.size()).isEqualTo(1);
+        executor.runAll();
+        assertThat(table.queryCount()).isEqualTo(2);
+
+        assertThat(pages.next()).isEqualTo(Arrays.asList(4L, 5L));
+        assertThat(pages.hasNext()).isFalse();
+        assertThat(executor.tasks.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void rejectedPrefetchesAreReadWhenAskedFor() {
+        Table table = new Table(7);
+        Executor rejecting = new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                throw new RejectedExecutionException();
+            }
+        };
+
+        List<List<Long>> pages = readAll(table.pages(3).prefetching(rejecting));
+
+        assertThat(pages).isEqualTo(Arrays.asList(
+                Arrays.asList(1L, 2L, 3L), Arrays.asList(4L, 5L, 6L), Arrays.asList(7L)));
+    }
+
+    @Test
+    public void closeKeepsAQueuedPageFromBeingRead() {
+        Table table = new Table(7);
+        QueuedExecutor executor = new QueuedExecutor();
+        KeysetPages.PageIterator<Long> pages = table.pages(3).prefetching(executor);
+        pages.next();
+
+        pages.close();
+        executor.runAll();
+
+        assertThat(table.queryCount()).isEqualTo(1);
+        assertThat(pages.hasNext()).isFalse();
+    }
+
+    @Test
+    public void failedReadsThrowIllegalStateException() {
+        Table table = new Table(7);
+        table.failure = new SQLException("Connection lost");
+
+        try {
+            table.pages(3).iterator().hasNext();
+            fail();
+        } catch (IllegalStateException expected) {
+            assertThat(expected.getCause()).isSameAs(table.failure);
+        }
+    }
+
+    @Test
+    public void failedPrefetchesThrowIllegalStateException() {
+        Table table = new Table(7);
+        QueuedExecutor executor = new QueuedExecutor();
+        KeysetPages.PageIterator<Long> pages = table.pages(3).prefetching(executor);
+        pages.next();
+        table.failure = new SQLException("Connection lost");
+        executor.runAll();
+
+        try {
+            pages.next();
+            fail();
+        } catch (IllegalStateException expected) {
+            assertThat(expected.getCause()).isSameAs(table.failure);
+        }
+    }
+
+    @Test
+    public void rejectsNonPositivePageSizes() {
+        try {
+            new Table(1).pages(0);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package in.workaounds.avrs;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+public class MappedSnapshotTest {
+
+    /** Writes strings, failing on {@code "fail"}. */
+    private static class StringCodec implements ValueCodec<String> {
+        private final long schemaHash;
+
+        StringCodec(long schemaHash) {
+            this.schemaHash = schemaHash;
+        }
+
+        @Override
+        public long schemaHash() {
+            return schemaHash;
+        }
+
+        @Override
+        public void write(String value, DataOutput out) throws IOException {
+            if (value.equals("fail")) {
+                throw new IOException("Can't write " + value);
+            }
+            BinaryValues.writeString(out, value);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            return BinaryValues.readString(in);
+        }
+    }
+
+    private static final StringCodec CODEC = new StringCodec(1);
+
+    private final File directory = createDirectory();
+    private final File file = new File(directory, "snapshot");
+
+    private static File createDirectory() {
+        try {
+            File directory = Files.createTempDirectory("avrs-snapshot").toFile();
+            directory.deleteOnExit();
+            return directory;
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Test
+    public void valuesRoundTrip() throws IOException {
+        List<String> values = Arrays.asList("a", "", "c\u00e9");
+        MappedSnapshot.write(file, values, CODEC);
+        file.deleteOnExit();
+
+        MappedSnapshot<String> snapshot = MappedSnapshot.open(file, CODEC);
+
+        assertThat(snapshot).isEqualTo(values);
+        assertThat(snapshot.get(2)).isEqualTo("c\u00e9");
+        assertThat(new File(file.getPath() + ".tmp").exists()).isFalse();
+    }
+
+    @Test
+    public void emptyListsRoundTrip() throws IOException {
+        MappedSnapshot.write(file, Collections.<String>emptyList(), CODEC);
+        file.deleteOnExit();
+
+        assertThat(MappedSnapshot.open(file, CODEC).size()).isEqualTo(0);
+    }
+
+    @Test
+    public void rejectsIndexesOutOfBounds() throws IOException {
+        MappedSnapshot.write(file, Arrays.asList("a"), CODEC);
+        file.deleteOnExit();
+        MappedSnapshot<String> snapshot = MappedSnapshot.open(file, CODEC);
+
+        try {
+            snapshot.get(1);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+    }
+
+    @Test
+    public void rejectsAnotherSchema() throws IOException {
+        MappedSnapshot.write(file, Arrays.asList("a"), CODEC);
+        file.deleteOnExit();
+
+        try {
+            MappedSnapshot.open(file, new StringCodec(2));
+            fail();
+        } catch (IOException expected) {
+            assertThat(expected.getMessage()).contains("schema hash");
+        }
+    }
+
+    @Test
+    public void rejectsTruncatedFiles() throws IOException {
+        MappedSnapshot.write(file, Arrays.asList("a", "b"), CODEC);
+        file.deleteOnExit();
+        try (RandomAccessFile truncated = new RandomAccessFile(file, "rw")) {
+            truncated.setLength(truncated.length() - 1);
+        }
+
+        try {
+            MappedSnapshot.open(file, CODEC);
+            fail();
+        } catch (IOException expected) {
+            assertThat(expected.getMessage()).contains("truncated");
+        }
+
+        try (RandomAccessFile truncated = new RandomAccessFile(file, "rw")) {
+            truncated.setLength(3);
+        }
+        try {
+            MappedSnapshot.open(file, CODEC);
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void failedWritesKeepTheFileAndDeleteTheTemporaryOne() throws IOException {
+        MappedSnapshot.write(file, Arrays.asList("a"), CODEC);
+        file.deleteOnExit();
+
+        try {
+            MappedSnapshot.write(file, Arrays.asList("b", "fail"), CODEC);
+            fail();
+        } catch (IOException expected) {
+        }
+
+        assertThat(new File(file.getPath() + ".tmp").exists()).isFalse();
+        assertThat(MappedSnapshot.open(file, CODEC)).isEqualTo(Arrays.asList("a"));
+    }
+
+    @Test
+    public void refreshingSnapshotsServeTheFileOfAnEarlierRun() throws Exception {
+        MappedSnapshot.write(file, Arrays.asList("old"), CODEC);
+        file.deleteOnExit();
+        RefreshingSnapshot<String> snapshot = new RefreshingSnapshot<>(
+                file, CODEC, new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() {
+                        return Arrays.asList("new");
+                    }
+                });
+
+        assertThat(snapshot.get()).isEqualTo(Arrays.asList("old"));
+        snapshot.refresh();
+        assertThat(snapshot.get()).isEqualTo(Arrays.asList("new"));
+    }
+
+    @Test
+    public void scheduledRefreshesStartAfterTheInitialDelay() throws Exception {
+        MappedSnapshot.write(file, Arrays.asList("old"), CODEC);
+        file.deleteOnExit();
+        RefreshingSnapshot<String> snapshot = new RefreshingSnapshot<>(
+                file, CODEC, new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() {
+                        return Arrays.asList("new");
+                    }
+                });
+        assertThat(snapshot.get()).isEqualTo(Arrays.asList("old"));
+        ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1);
+        try {
+            ScheduledFuture<?> refreshes =
+                    snapshot.scheduleRefresh(executor, 0, 1, TimeUnit.HOURS);
+
+            // The first refresh runs at once rather than a period later.
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).get();
+            assertThat(snapshot.get()).isEqualTo(Arrays.asList("new"));
+            assertThat(snapshot.lastFailure()).isNull();
+            refreshes.cancel(false);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failedRefreshesKeepTheSnapshot() throws Exception {
+        final Exception failure = new Exception("Query failed");
+        RefreshingSnapshot<String> snapshot = new RefreshingSnapshot<>(
+                file, CODEC, new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() throws Exception {
+                        if (file.exists()) {
+                            throw failure;
+                        }
+                        return Arrays.asList("a");
+                    }
+                });
+        assertThat(snapshot.get()).isEqualTo(Arrays.asList("a"));
+        file.deleteOnExit();
+
+        ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1);
+        try {
+            snapshot.scheduleRefresh(executor, 0, 1, TimeUnit.HOURS);
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(snapshot.lastFailure()).isSameAs(failure);
+        assertThat(snapshot.get()).isEqualTo(Arrays.asList("a"));
+    }
+}
@@ -0,0 +1,211 @@
+package in.workaounds.avrs;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+public class PrefetchingIteratorTest {
+    private static final Executor THREADS = new Executor() {
+        @Override
+        public void execute(Runnable task) {
+            new Thread(task).start();
+        }
+    };
+
+    /** Returns a result set of the rows 1 to {@code rows} in its first column. */
+    private static ResultSet resultSet(final int rows, final int fetchSize) {
+        final int[] row = {0};
+        return (ResultSet) Proxy.newProxyInstance(PrefetchingIteratorTest.class.getClassLoader(),
+                new Class<?>[] {ResultSet.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        switch (method.getName()) {
+                            case "getFetchSize":
+                                return fetchSize;
+                            case "next":
+                                return ++row[0] <= rows;
+                            case "getInt":
+                                return row[0];
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    }
+                });
+    }
+
+    /** Reads the first column, throwing {@code failure} at row {@code failingRow}. */
+    private static class Rows extends PrefetchingIterator<Integer> {
+        final AtomicInteger read = new AtomicInteger();
+        volatile boolean producerStarted;
+        volatile boolean producerStopped;
+        int failingRow = -1;
+        Throwable failure;
+
+        Rows(ResultSet resultSet, int depth, Executor executor) throws SQLException {
+            super(resultSet, depth, executor);
+        }
+
+        @Override
+        protected Integer read(ResultSet resultSet) throws SQLException {
+            int value = resultSet.getInt(1);
+            if (value == failingRow) {
+                if (failure instanceof Error) {
+                    throw (Error) failure;
+                }
+                throw (SQLException) failure;
+            }
+            read.incrementAndGet();
+            return value;
+        }
+
+        @Override
+        protected void producerStarted() {
+            producerStarted = true;
+        }
+
+        @Override
+        protected void producerStopped() {
+            producerStopped = true;
+        }
+    }
+
+    private static List<Integer> drain(PrefetchingIterator<Integer> rows) {
+        List<Integer> values = new ArrayList<>();
+        while (rows.hasNext()) {
+            values.add(rows.next());
+        }
+        return values;
+    }
+
+    @Test
+    public void readsEveryRowInOrder() throws SQLException {
+        Rows rows = new Rows(resultSet(7, 2), 1, THREADS);
+        rows.start();
+
+        assertThat(drain(rows)).containsExactly(1, 2, 3, 4, 5, 6, 7).inOrder();
+        assertThat(rows.producerStarted).isTrue();
+        assertThat(rows.producerStopped).isTrue();
+        try {
+            rows.next();
+            fail();
+        } catch (NoSuchElementException expected) {
+        }
+    }
+
+    @Test
+    public void readsEmptyResultSets() throws SQLException {
+        Rows rows = new Rows(resultSet(0, 0), 2, THREADS);
+        rows.start();
+
+        assertThat(rows.hasNext()).isFalse();
+    }
+
+    @Test
+    public void failuresThrowIllegalStateExceptionAfterTheRowsBeforeThem() throws SQLException {
+        Rows rows = new Rows(resultSet(5, 1), 8, THREADS);
+        rows.failingRow = 3;
+        rows.failure = new SQLException("Row 3 is corrupt");
+        rows.start();
+
+        assertThat(rows.next()).isEqualTo(1);
+        assertThat(rows.next()).isEqualTo(2);
+        try {
+            rows.hasNext();
+            fail();
+        } catch (IllegalStateException expected) {
+            assertThat(expected.getCause()).isSameAs(rows.failure);
+        }
+        assertThat(rows.hasNext()).isFalse();
+    }
+
+    @Test
+    public void errorsAreRethrown() throws SQLException {
+        Rows rows = new Rows(resultSet(5, 1), 8, THREADS);
+        rows.failingRow = 1;
+        rows.failure = new AssertionError("Broken mapping");
+        rows.start();
+
+        try {
+            rows.hasNext();
+            fail();
+        } catch (AssertionError expected) {
+            assertThat(expected).isSameAs(rows.failure);
+        }
+    }
+
+    @Test
+    public void closeStopsTheProducer() throws SQLException {
+        Rows rows = new Rows(resultSet(100000, 1), 1, THREADS);
+        rows.start();
+        assertThat(rows.next()).isEqualTo(1);
+
+        rows.close();
+
+        assertThat(rows.producerStopped).isTrue();
+        assertThat(rows.read.get()).isAtMost(10);
+        assertThat(rows.hasNext()).isFalse();
+        rows.close();
+    }
+
+    @Test
+    public void closeWithoutStartingReturns() throws SQLException {
+        Rows rows = new Rows(resultSet(5, 1), 1, THREADS);
+
+        rows.close();
+
+        assertThat(rows.hasNext()).isFalse();
+    }
+
+    @Test
+    public void rejectedStartsDontBlockClose() throws SQLException {
+        Rows rows = new Rows(resultSet(5, 1), 1, new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                throw new RejectedExecutionException();
+            }
+        });
+
+        try {
+            rows.start();
+            fail();
+        } catch (RejectedExecutionException expected) {
+        }
+        rows.close();
+
+        assertThat(rows.producerStarted).isFalse();
+    }
+
+    @Test
+    public void startsOnce() throws SQLException {
+        Rows rows = new Rows(resultSet(5, 1), 1, THREADS);
+        rows.start();
+
+        try {
+            rows.start();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        rows.close();
+    }
+
+    @Test
+    public void rejectsDepthsBelowOne() throws SQLException {
+        try {
+            new Rows(resultSet(5, 1), 0, THREADS);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
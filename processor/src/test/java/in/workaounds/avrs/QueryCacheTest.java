@@ -0,0 +1,212 @@
+package in.workaounds.avrs;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+public class QueryCacheTest {
+    private static final Object[] NO_PARAMS = {};
+    private static final String[] NO_TABLES = {};
+
+    /** Loads a single value and counts how often it was called. */
+    private static class CountingLoader implements QueryCache.Loader<String> {
+        final String value;
+        final long weight;
+        int loads;
+
+        CountingLoader(String value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+
+        @Override
+        public List<String> load() throws SQLException {
+            loads++;
+            return Collections.singletonList(value);
+        }
+
+        @Override
+        public long weigh(List<String> values) {
+            return weight;
+        }
+    }
+
+    private static int load(QueryCache cache, String sql) throws SQLException {
+        CountingLoader loader = new CountingLoader(sql, 1);
+        cache.get(sql, NO_PARAMS, NO_TABLES, loader);
+        return loader.loads;
+    }
+
+    @Test
+    public void cachesResults() throws SQLException {
+        QueryCache cache = new QueryCache(100, 1, TimeUnit.HOURS);
+        CountingLoader loader = new CountingLoader("a", 1);
+
+        List<String> first = cache.get("select a", NO_PARAMS, NO_TABLES, loader);
+        List<String> second = cache.get("select a", NO_PARAMS, NO_TABLES, loader);
+
+        assertThat(second).isSameAs(first);
+        assertThat(loader.loads).isEqualTo(1);
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.weight()).isEqualTo(1L);
+    }
+
+    @Test
+    public void keysIncludeParameters() throws SQLException {
+        QueryCache cache = new QueryCache(100, 1, TimeUnit.HOURS);
+        CountingLoader loader = new CountingLoader("a", 1);
+
+        cache.get("select a where id = ?", new Object[] {1}, NO_TABLES, loader);
+        cache.get("select a where id = ?", new Object[] {2}, NO_TABLES, loader);
+        cache.get("select a where id = ?", new Object[] {1}, NO_TABLES, loader);
+
+        assertThat(loader.loads).isEqualTo(2);
+    }
+
+    @Test
+    public void resultsHeavierThanTheCacheAreNotCached() throws SQLException {
+        QueryCache cache = new QueryCache(10, 1, TimeUnit.HOURS);
+        CountingLoader loader = new CountingLoader("a", 11);
+
+        cache.get("select a", NO_PARAMS, NO_TABLES, loader);
+        cache.get("select a", NO_PARAMS, NO_TABLES, loader);
+
+        assertThat(loader.loads).isEqualTo(2);
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void oneOffQueriesDontEvictAFullCache() throws SQLException {
+        // A window of 1 and a main space of 9.
+        QueryCache cache = new QueryCache(10, 1, TimeUnit.HOURS);
+        for (int i = 0; i < 10; i++) {
+            load(cache, "q" + i);
+        }
+
+        // q9 leaves the window but is requested no more often than the probation entries.
+        load(cache, "scan");
+
+        assertThat(cache.size()).isEqualTo(10);
+        assertThat(load(cache, "q1")).isEqualTo(0);
+        assertThat(load(cache, "q9")).isEqualTo(1);
+    }
+
+    @Test
+    public void frequentQueriesEvictProbationBeforeProtected() throws SQLException {
+        QueryCache cache = new QueryCache(10, 1, TimeUnit.HOURS);
+        for (int i = 0; i < 10; i++) {
+            load(cache, "q" + i);
+        }
+        // Requested again while on probation, q0 moves to the protected segment and q1 is now
+        // the first probation entry.
+        assertThat(load(cache, "q0")).isEqualTo(0);
+
+        load(cache, "hot");
+        assertThat(load(cache, "hot")).isEqualTo(0);
+        // Leaving the window, the twice requested query evicts the least recently added one on
+        // probation.
+        load(cache, "next");
+
+        assertThat(load(cache, "hot")).isEqualTo(0);
+        assertThat(load(cache, "q0")).isEqualTo(0);
+        assertThat(load(cache, "q2")).isEqualTo(0);
+        assertThat(load(cache, "q1")).isEqualTo(1);
+    }
+
+    @Test
+    public void queriesRequestedOftenAreAdmittedAfterARejection() throws SQLException {
+        QueryCache cache = new QueryCache(10, 1, TimeUnit.HOURS);
+        for (int i = 0; i < 10; i++) {
+            load(cache, "q" + i);
+        }
+        load(cache, "rejected");
+        load(cache, "scan");
+        assertThat(load(cache, "rejected")).isEqualTo(1);
+
+        load(cache, "scan2");
+
+        assertThat(load(cache, "rejected")).isEqualTo(0);
+        assertThat(cache.weight()).isAtMost(10);
+    }
+
+    @Test
+    public void entriesExpire() throws Exception {
+        QueryCache cache = new QueryCache(100, 1, TimeUnit.MILLISECONDS);
+        load(cache, "a");
+        Thread.sleep(10);
+
+        assertThat(load(cache, "a")).isEqualTo(1);
+        Thread.sleep(10);
+        cache.cleanUp();
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.weight()).isEqualTo(0L);
+    }
+
+    @Test
+    public void invalidateRemovesQueriesOfTheTable() throws SQLException {
+        QueryCache cache = new QueryCache(100, 1, TimeUnit.HOURS);
+        CountingLoader orders = new CountingLoader("o", 1);
+        CountingLoader users = new CountingLoader("u", 1);
+        cache.get("select o", NO_PARAMS, new String[] {"Orders"}, orders);
+        cache.get("select u", NO_PARAMS, new String[] {"users"}, users);
+
+        cache.invalidate("ORDERS");
+
+        assertThat(cache.size()).isEqualTo(1);
+        cache.get("select o", NO_PARAMS, new String[] {"Orders"}, orders);
+        cache.get("select u", NO_PARAMS, new String[] {"users"}, users);
+        assertThat(orders.loads).isEqualTo(2);
+        assertThat(users.loads).isEqualTo(1);
+    }
+
+    @Test
+    public void invalidateAllRemovesEverything() throws SQLException {
+        QueryCache cache = new QueryCache(100, 1, TimeUnit.HOURS);
+        load(cache, "a");
+        load(cache, "b");
+
+        cache.invalidateAll();
+
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.weight()).isEqualTo(0L);
+    }
+
+    @Test
+    public void loadRacingAnInvalidationIsNotCached() throws SQLException {
+        final QueryCache cache = new QueryCache(100, 1, TimeUnit.HOURS);
+        CountingLoader loader = new CountingLoader("o", 1) {
+            @Override
+            public List<String> load() throws SQLException {
+                // The table changes while the query runs, so its result may be stale.
+                cache.invalidate("orders");
+                return super.load();
+            }
+        };
+
+        List<String> values = cache.get("select o", NO_PARAMS, new String[] {"orders"}, loader);
+
+        assertThat(values).isEqualTo(Collections.singletonList("o"));
+        assertThat(cache.size()).isEqualTo(0);
+        cache.get("select o", NO_PARAMS, new String[] {"orders"}, loader);
+        assertThat(loader.loads).isEqualTo(2);
+    }
+
+    @Test
+    public void rejectsNonPositiveBounds() {
+        try {
+            new QueryCache(0, 1, TimeUnit.HOURS);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new QueryCache(1, 0, TimeUnit.HOURS);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -26,18 +26,39 @@ public class AutoValueResultSetExtensionTest {
 
         JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
                 + "package test;\n"
-                + "import java.sql.ResultSet;\n"
                 + "import java.lang.String;\n"
+                + "import java.sql.ResultSet;\n"
                 + "import java.sql.SQLException;\n"
-                + "final class AutoValue_Test extends $AutoValue_Test throws SQLException {\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "final class AutoValue_Test extends $AutoValue_Test {\n"
                 + "  AutoValue_Test(int a, String b) {\n"
                 + "    super(a, b);\n"
                 + "  }\n"
-                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) {\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
                 + "    int a = resultSet.getInt(resultSet.findColumn(\"a\"));\n"
                 + "    String b = resultSet.getString(resultSet.findColumn(\"b\"));\n"
                 + "    return new AutoValue_Test(a, b);\n"
                 + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[2];\n"
+                + "    columns[0] = resultSet.findColumn(\"a\");\n"
+                + "    columns[1] = resultSet.findColumn(\"b\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    int a = resultSet.getInt(columns[0]);\n"
+                + "    String b = resultSet.getString(columns[1]);\n"
+                + "    return new AutoValue_Test(a, b);\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
                 + "}\n");
 
         assertAbout(javaSources())
@@ -63,9 +84,11 @@ public class AutoValueResultSetExtensionTest {
 
         JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
                 + "package test;\n"
-                + "import java.sql.ResultSet;\n"
                 + "import java.lang.String;\n"
+                + "import java.sql.ResultSet;\n"
                 + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
                 + "final class AutoValue_Test extends $AutoValue_Test {\n"
                 + "  AutoValue_Test(int a, String b) {\n"
                 + "    super(a, b);\n"
@@ -75,6 +98,25 @@ public class AutoValueResultSetExtensionTest {
                 + "    String b = resultSet.getString(resultSet.findColumn(\"column_b\"));\n"
                 + "    return new AutoValue_Test(a, b);\n"
                 + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[2];\n"
+                + "    columns[0] = resultSet.findColumn(\"a\");\n"
+                + "    columns[1] = resultSet.findColumn(\"column_b\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    int a = resultSet.getInt(columns[0]);\n"
+                + "    String b = resultSet.getString(columns[1]);\n"
+                + "    return new AutoValue_Test(a, b);\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
                 + "}\n");
 
         assertAbout(javaSources())
@@ -100,19 +142,41 @@ public class AutoValueResultSetExtensionTest {
 
         JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
                 + "package test;\n"
-                + "import java.sql.ResultSet;\n"
                 + "import java.lang.String;\n"
+                + "import java.sql.ResultSet;\n"
                 + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
                 + "final class AutoValue_Test extends $AutoValue_Test {\n"
                 + "  AutoValue_Test(int a, String b) {\n"
                 + "    super(a, b);\n"
                 + "  }\n"
                 + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
                 + "    int a = resultSet.getInt(resultSet.findColumn(\"a\"));\n"
-                + "    int bColumnIndex = resultSet.findColumn(\"b\");"
+                + "    int bColumnIndex = resultSet.findColumn(\"b\");\n"
+                + "    String b = resultSet.isNull(bColumnIndex) ? null : resultSet.getString(bColumnIndex);\n"
+                + "    return new AutoValue_Test(a, b);\n"
+                + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[2];\n"
+                + "    columns[0] = resultSet.findColumn(\"a\");\n"
+                + "    columns[1] = resultSet.findColumn(\"b\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    int a = resultSet.getInt(columns[0]);\n"
+                + "    int bColumnIndex = columns[1];\n"
                 + "    String b = resultSet.isNull(bColumnIndex) ? null : resultSet.getString(bColumnIndex);\n"
                 + "    return new AutoValue_Test(a, b);\n"
                 + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
                 + "}\n");
 
         assertAbout(javaSources())
@@ -139,19 +203,41 @@ public class AutoValueResultSetExtensionTest {
 
         JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
                 + "package test;\n"
-                + "import java.sql.ResultSet;\n"
                 + "import java.lang.String;\n"
+                + "import java.sql.ResultSet;\n"
                 + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
                 + "final class AutoValue_Test extends $AutoValue_Test {\n"
                 + "  AutoValue_Test(int a, String b) {\n"
                 + "    super(a, b);\n"
                 + "  }\n"
                 + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
                 + "    int a = resultSet.getInt(resultSet.findColumn(\"a\"));\n"
-                + "    int bColumnIndex = resultSet.findColumn(\"column_b\");"
+                + "    int bColumnIndex = resultSet.findColumn(\"column_b\");\n"
+                + "    String b = resultSet.isNull(bColumnIndex) ? null : resultSet.getString(bColumnIndex);\n"
+                + "    return new AutoValue_Test(a, b);\n"
+                + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[2];\n"
+                + "    columns[0] = resultSet.findColumn(\"a\");\n"
+                + "    columns[1] = resultSet.findColumn(\"column_b\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    int a = resultSet.getInt(columns[0]);\n"
+                + "    int bColumnIndex = columns[1];\n"
                 + "    String b = resultSet.isNull(bColumnIndex) ? null : resultSet.getString(bColumnIndex);\n"
                 + "    return new AutoValue_Test(a, b);\n"
                 + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
                 + "}\n");
 
         assertAbout(javaSources())
@@ -196,9 +282,11 @@ public class AutoValueResultSetExtensionTest {
 
         JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
                 + "package test;\n"
-                + "import java.sql.ResultSet;\n"
                 + "import java.lang.String;\n"
+                + "import java.sql.ResultSet;\n"
                 + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
                 + "final class AutoValue_Test extends $AutoValue_Test {\n"
                 + "  AutoValue_Test(int[] a, String b) {\n"
                 + "    super(a, b);\n"
@@ -208,6 +296,24 @@ public class AutoValueResultSetExtensionTest {
                 + "    String b = resultSet.getString(resultSet.findColumn(\"b\"));\n"
                 + "    return new AutoValue_Test(a, b);\n"
                 + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[2];\n"
+                + "    columns[1] = resultSet.findColumn(\"b\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    int[] a = null; // can't be read from resultSet\n"
+                + "    String b = resultSet.getString(columns[1]);\n"
+                + "    return new AutoValue_Test(a, b);\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
                 + "}\n");
 
         assertAbout(javaSources())
@@ -244,7 +350,6 @@ public class AutoValueResultSetExtensionTest {
 
         JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
                 + "package test;\n"
-                + "import java.sql.ResultSet;\n"
                 + "import java.lang.Boolean;\n"
                 + "import java.lang.Double;\n"
                 + "import java.lang.Float;\n"
@@ -252,12 +357,15 @@ public class AutoValueResultSetExtensionTest {
                 + "import java.lang.Long;\n"
                 + "import java.lang.Short;\n"
                 + "import java.lang.String;\n"
+                + "import java.sql.ResultSet;\n"
                 + "import java.sql.SQLException;\n"
-                + "final class AutoValue_Test extends $AutoValue_Test thrown{\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "final class AutoValue_Test extends $AutoValue_Test {\n"
                 + "  AutoValue_Test(String a, int b, Integer c, long d, Long e, short f, Short g, double h, Double i, float j, Float k, boolean l, Boolean m, byte[] n) {\n"
                 + "    super(a, b, c, d, e, f, g, h, i, j, k, l, m, n);\n"
                 + "  }\n"
-                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) {\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
                 + "    String a = resultSet.getString(resultSet.findColumn(\"a\"));\n"
                 + "    int b = resultSet.getInt(resultSet.findColumn(\"b\"));\n"
                 + "    Integer c = resultSet.getInt(resultSet.findColumn(\"c\"));\n"
@@ -269,11 +377,54 @@ public class AutoValueResultSetExtensionTest {
                 + "    Double i = resultSet.getDouble(resultSet.findColumn(\"i\"));\n"
                 + "    float j = resultSet.getFloat(resultSet.findColumn(\"j\"));\n"
                 + "    Float k = resultSet.getFloat(resultSet.findColumn(\"k\"));\n"
-                + "    boolean l = resultSet.getInt(resultSet.findColumn(\"l\")) == 1;\n"
-                + "    Boolean m = resultSet.getInt(resultSet.findColumn(\"m\")) == 1;\n"
-                + "    byte[] n = resultSet.getBlob(resultSet.findColumn(\"n\"));\n"
+                + "    boolean l = resultSet.getBoolean(resultSet.findColumn(\"l\"));\n"
+                + "    Boolean m = resultSet.getBoolean(resultSet.findColumn(\"m\"));\n"
+                + "    byte[] n = resultSet.getBytes(resultSet.findColumn(\"n\"));\n"
                 + "    return new AutoValue_Test(a, b, c, d, e, f, g, h, i, j, k, l, m, n);\n"
                 + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[14];\n"
+                + "    columns[0] = resultSet.findColumn(\"a\");\n"
+                + "    columns[1] = resultSet.findColumn(\"b\");\n"
+                + "    columns[2] = resultSet.findColumn(\"c\");\n"
+                + "    columns[3] = resultSet.findColumn(\"d\");\n"
+                + "    columns[4] = resultSet.findColumn(\"e\");\n"
+                + "    columns[5] = resultSet.findColumn(\"f\");\n"
+                + "    columns[6] = resultSet.findColumn(\"g\");\n"
+                + "    columns[7] = resultSet.findColumn(\"h\");\n"
+                + "    columns[8] = resultSet.findColumn(\"i\");\n"
+                + "    columns[9] = resultSet.findColumn(\"j\");\n"
+                + "    columns[10] = resultSet.findColumn(\"k\");\n"
+                + "    columns[11] = resultSet.findColumn(\"l\");\n"
+                + "    columns[12] = resultSet.findColumn(\"m\");\n"
+                + "    columns[13] = resultSet.findColumn(\"n\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    String a = resultSet.getString(columns[0]);\n"
+                + "    int b = resultSet.getInt(columns[1]);\n"
+                + "    Integer c = resultSet.getInt(columns[2]);\n"
+                + "    long d = resultSet.getLong(columns[3]);\n"
+                + "    Long e = resultSet.getLong(columns[4]);\n"
+                + "    short f = resultSet.getShort(columns[5]);\n"
+                + "    Short g = resultSet.getShort(columns[6]);\n"
+                + "    double h = resultSet.getDouble(columns[7]);\n"
+                + "    Double i = resultSet.getDouble(columns[8]);\n"
+                + "    float j = resultSet.getFloat(columns[9]);\n"
+                + "    Float k = resultSet.getFloat(columns[10]);\n"
+                + "    boolean l = resultSet.getBoolean(columns[11]);\n"
+                + "    Boolean m = resultSet.getBoolean(columns[12]);\n"
+                + "    byte[] n = resultSet.getBytes(columns[13]);\n"
+                + "    return new AutoValue_Test(a, b, c, d, e, f, g, h, i, j, k, l, m, n);\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
                 + "}\n");
 
         assertAbout(javaSources())
@@ -333,13 +484,28 @@ public class AutoValueResultSetExtensionTest {
                 + "}\n");
         JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
                 + "package test;\n"
-                + "import java.sql.ResultSet;\n"
                 + "import java.lang.String;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
                 + "final class AutoValue_Test extends $AutoValue_Test {\n"
                 + "  AutoValue_Test(Foo foo, String bar, String columnName) {\n"
                 + "    super(foo, bar, columnName);\n"
                 + "  }\n"
-                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) {\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    FooAdapter fooAdapter = new FooAdapter();\n"
+                + "    StringAdapter stringAdapter = new StringAdapter();\n"
+                + "    Foo foo = fooAdapter.fromResultSet(resultSet, \"foo\");\n"
+                + "    String bar = stringAdapter.fromResultSet(resultSet, \"bar\");\n"
+                + "    String columnName = stringAdapter.fromResultSet(resultSet, \"column\");\n"
+                + "    return new AutoValue_Test(foo, bar, columnName);\n"
+                + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[3];\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
                 + "    FooAdapter fooAdapter = new FooAdapter();\n"
                 + "    StringAdapter stringAdapter = new StringAdapter();\n"
                 + "    Foo foo = fooAdapter.fromResultSet(resultSet, \"foo\");\n"
@@ -347,6 +513,14 @@ public class AutoValueResultSetExtensionTest {
                 + "    String columnName = stringAdapter.fromResultSet(resultSet, \"column\");\n"
                 + "    return new AutoValue_Test(foo, bar, columnName);\n"
                 + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
                 + "}\n");
 
         assertAbout(javaSources())
@@ -357,14 +531,14 @@ public class AutoValueResultSetExtensionTest {
                 .generatesSources(expected);
     }
 
-    // TODO: 08/08/16 change the tests to add exception signatures
     @Test
-    public void rxjava() {
+    public void instrumented() {
         JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
                 + "package test;\n"
+                + "import in.workaounds.avrs.Instrumented;\n"
                 + "import com.google.auto.value.AutoValue;\n"
                 + "import java.sql.ResultSet;\n"
-                + "@AutoValue public abstract class Test {\n"
+                + "@Instrumented @AutoValue public abstract class Test {\n"
                 + "  public static Test blah(ResultSet resultSet) { return null; }\n"
                 + "  public abstract int a();\n"
                 + "  public abstract String b();\n"
@@ -372,29 +546,68 @@ public class AutoValueResultSetExtensionTest {
 
         JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
                 + "package test;\n"
-                + "import java.sql.ResultSet;\n"
-                + "import java.lang.Override;\n"
+                + "import in.workaounds.avrs.MappingListeners;\n"
                 + "import java.lang.String;\n"
-                + "import rx.functions.Func1;\n"
+                + "import java.lang.System;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
                 + "final class AutoValue_Test extends $AutoValue_Test {\n"
-                + "  static final Func1<ResultSet, Test> MAPPER = new Func1<ResultSet, Test>() {\n"
-                + "    @Override\n"
-                + "    public AutoValue_Test call(ResultSet c) {\n"
-                + "      return createFromResultSet(c);\n"
-                + "    }\n"
-                + "  };\n"
+                + "  private static final boolean INSTRUMENTED = MappingListeners.ENABLED;\n"
                 + "  AutoValue_Test(int a, String b) {\n"
                 + "    super(a, b);\n"
                 + "  }\n"
-                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) {\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    long startNanos = INSTRUMENTED ? System.nanoTime() : 0L;\n"
                 + "    int a = resultSet.getInt(resultSet.findColumn(\"a\"));\n"
+                + "    if (INSTRUMENTED && resultSet.wasNull()) {\n"
+                + "      MappingListeners.get().onNull(Test.class, \"a\");\n"
+                + "    }\n"
                 + "    String b = resultSet.getString(resultSet.findColumn(\"b\"));\n"
-                + "    return new AutoValue_Test(a, b);\n"
+                + "    if (INSTRUMENTED && b == null) {\n"
+                + "      MappingListeners.get().onNull(Test.class, \"b\");\n"
+                + "    }\n"
+                + "    AutoValue_Test mapped = new AutoValue_Test(a, b);\n"
+                + "    if (INSTRUMENTED) {\n"
+                + "      MappingListeners.get().onRowMapped(Test.class, System.nanoTime() - startNanos);\n"
+                + "    }\n"
+                + "    return mapped;\n"
+                + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[2];\n"
+                + "    columns[0] = resultSet.findColumn(\"a\");\n"
+                + "    columns[1] = resultSet.findColumn(\"b\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    long startNanos = INSTRUMENTED ? System.nanoTime() : 0L;\n"
+                + "    int a = resultSet.getInt(columns[0]);\n"
+                + "    if (INSTRUMENTED && resultSet.wasNull()) {\n"
+                + "      MappingListeners.get().onNull(Test.class, \"a\");\n"
+                + "    }\n"
+                + "    String b = resultSet.getString(columns[1]);\n"
+                + "    if (INSTRUMENTED && b == null) {\n"
+                + "      MappingListeners.get().onNull(Test.class, \"b\");\n"
+                + "    }\n"
+                + "    AutoValue_Test mapped = new AutoValue_Test(a, b);\n"
+                + "    if (INSTRUMENTED) {\n"
+                + "      MappingListeners.get().onRowMapped(Test.class, System.nanoTime() - startNanos);\n"
+                + "    }\n"
+                + "    return mapped;\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
                 + "  }\n"
                 + "}\n");
 
         assertAbout(javaSources())
-                .that(Arrays.asList(func1(), source))
+                .that(Collections.singletonList(source))
                 .processedWith(new AutoValueProcessor())
                 .compilesWithoutError()
                 .and()
@@ -402,39 +615,2531 @@ public class AutoValueResultSetExtensionTest {
     }
 
     @Test
-    public void rxjavaOptIn() {
+    public void instrumentedIfPresent() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.IfPresent;\n"
+                + "import in.workaounds.avrs.Instrumented;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "@Instrumented @AutoValue public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  public abstract int a();\n"
+                + "  @IfPresent public abstract long b();\n"
+                + "}\n");
+
+        JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.MappingListeners;\n"
+                + "import in.workaounds.avrs.OptionalColumns;\n"
+                + "import java.lang.System;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "final class AutoValue_Test extends $AutoValue_Test {\n"
+                + "  private static final boolean INSTRUMENTED = MappingListeners.ENABLED;\n"
+                + "  AutoValue_Test(int a, long b) {\n"
+                + "    super(a, b);\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    long startNanos = INSTRUMENTED ? System.nanoTime() : 0L;\n"
+                + "    int a = resultSet.getInt(resultSet.findColumn(\"a\"));\n"
+                + "    if (INSTRUMENTED && resultSet.wasNull()) {\n"
+                + "      MappingListeners.get().onNull(Test.class, \"a\");\n"
+                + "    }\n"
+                + "    int bColumnIndex = OptionalColumns.find(resultSet, \"b\");\n"
+                + "    long b = bColumnIndex == 0 ? 0 : resultSet.getLong(bColumnIndex);\n"
+                + "    if (INSTRUMENTED && bColumnIndex != 0 && resultSet.wasNull()) {\n"
+                + "      MappingListeners.get().onNull(Test.class, \"b\");\n"
+                + "    }\n"
+                + "    AutoValue_Test mapped = new AutoValue_Test(a, b);\n"
+                + "    if (INSTRUMENTED) {\n"
+                + "      MappingListeners.get().onRowMapped(Test.class, System.nanoTime() - startNanos);\n"
+                + "    }\n"
+                + "    return mapped;\n"
+                + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[2];\n"
+                + "    columns[0] = resultSet.findColumn(\"a\");\n"
+                + "    columns[1] = OptionalColumns.find(resultSet, \"b\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    long startNanos = INSTRUMENTED ? System.nanoTime() : 0L;\n"
+                + "    int a = resultSet.getInt(columns[0]);\n"
+                + "    if (INSTRUMENTED && resultSet.wasNull()) {\n"
+                + "      MappingListeners.get().onNull(Test.class, \"a\");\n"
+                + "    }\n"
+                + "    int bColumnIndex = columns[1];\n"
+                + "    long b = bColumnIndex == 0 ? 0 : resultSet.getLong(bColumnIndex);\n"
+                + "    if (INSTRUMENTED && bColumnIndex != 0 && resultSet.wasNull()) {\n"
+                + "      MappingListeners.get().onNull(Test.class, \"b\");\n"
+                + "    }\n"
+                + "    AutoValue_Test mapped = new AutoValue_Test(a, b);\n"
+                + "    if (INSTRUMENTED) {\n"
+                + "      MappingListeners.get().onRowMapped(Test.class, System.nanoTime() - startNanos);\n"
+                + "    }\n"
+                + "    return mapped;\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void list() {
         JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
                 + "package test;\n"
                 + "import com.google.auto.value.AutoValue;\n"
                 + "import java.sql.ResultSet;\n"
-                + "import rx.functions.Func1;\n"
                 + "@AutoValue public abstract class Test {\n"
-                + "  public static Func1<ResultSet, Test> blahMap() { return null; }\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
                 + "  public abstract int a();\n"
                 + "  public abstract String b();\n"
                 + "}\n");
 
         JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
                 + "package test;\n"
-                + "import java.sql.ResultSet;\n"
-                + "import java.lang.Override;\n"
                 + "import java.lang.String;\n"
-                + "import rx.functions.Func1;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
                 + "final class AutoValue_Test extends $AutoValue_Test {\n"
-                + "  static final Func1<ResultSet, Test> MAPPER = new Func1<ResultSet, Test>() {\n"
-                + "    @Override\n"
-                + "    public AutoValue_Test call(ResultSet c) {\n"
-                + "      return createFromResultSet(c);\n"
-                + "    }\n"
-                + "  };\n"
                 + "  AutoValue_Test(int a, String b) {\n"
                 + "    super(a, b);\n"
                 + "  }\n"
-                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) {\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
                 + "    int a = resultSet.getInt(resultSet.findColumn(\"a\"));\n"
                 + "    String b = resultSet.getString(resultSet.findColumn(\"b\"));\n"
                 + "    return new AutoValue_Test(a, b);\n"
                 + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[2];\n"
+                + "    columns[0] = resultSet.findColumn(\"a\");\n"
+                + "    columns[1] = resultSet.findColumn(\"b\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    int a = resultSet.getInt(columns[0]);\n"
+                + "    String b = resultSet.getString(columns[1]);\n"
+                + "    return new AutoValue_Test(a, b);\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void intern() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.Intern;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "@AutoValue public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  public abstract int a();\n"
+                + "  @Intern(16) public abstract String orderStatus();\n"
+                + "}\n");
+
+        JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.StringInterner;\n"
+                + "import java.lang.String;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "final class AutoValue_Test extends $AutoValue_Test {\n"
+                + "  private static final StringInterner ORDER_STATUS_INTERNER = new StringInterner(16);\n"
+                + "  AutoValue_Test(int a, String orderStatus) {\n"
+                + "    super(a, orderStatus);\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int a = resultSet.getInt(resultSet.findColumn(\"a\"));\n"
+                + "    String orderStatus = ORDER_STATUS_INTERNER.intern(resultSet.getString(resultSet.findColumn(\"orderStatus\")));\n"
+                + "    return new AutoValue_Test(a, orderStatus);\n"
+                + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[2];\n"
+                + "    columns[0] = resultSet.findColumn(\"a\");\n"
+                + "    columns[1] = resultSet.findColumn(\"orderStatus\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    int a = resultSet.getInt(columns[0]);\n"
+                + "    String orderStatus = ORDER_STATUS_INTERNER.intern(resultSet.getString(columns[1]));\n"
+                + "    return new AutoValue_Test(a, orderStatus);\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void internUnsupported() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.Intern;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "@AutoValue public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  @Intern public abstract int a();\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .failsToCompile()
+                .withErrorContaining("Only String properties read from ResultSet can be annotated with @Intern.");
+    }
+
+    @Test
+    public void enums() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.EnumCode;\n"
+                + "import in.workaounds.avrs.EnumFallback;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "@AutoValue public abstract class Test {\n"
+                + "  public enum Status { ACTIVE, UNKNOWN }\n"
+                + "  public enum Tier { @EnumCode(10) GOLD, @EnumCode(20) SILVER }\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  @EnumFallback(\"UNKNOWN\") public abstract Status status();\n"
+                + "  public abstract Tier tier();\n"
+                + "}\n");
+
+        JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
+                + "package test;\n"
+                + "import java.lang.String;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "final class AutoValue_Test extends $AutoValue_Test {\n"
+                + "  AutoValue_Test(Test.Status status, Test.Tier tier) {\n"
+                + "    super(status, tier);\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    Test.Status status = decodeStatus(resultSet.getString(resultSet.findColumn(\"status\")));\n"
+                + "    Test.Tier tier = decodeTier(resultSet.getInt(resultSet.findColumn(\"tier\")), resultSet.wasNull());\n"
+                + "    return new AutoValue_Test(status, tier);\n"
+                + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[2];\n"
+                + "    columns[0] = resultSet.findColumn(\"status\");\n"
+                + "    columns[1] = resultSet.findColumn(\"tier\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    Test.Status status = decodeStatus(resultSet.getString(columns[0]));\n"
+                + "    Test.Tier tier = decodeTier(resultSet.getInt(columns[1]), resultSet.wasNull());\n"
+                + "    return new AutoValue_Test(status, tier);\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "  private static Test.Status decodeStatus(String value) throws SQLException {\n"
+                + "    if (value == null) {\n"
+                + "      return Test.Status.UNKNOWN;\n"
+                + "    }\n"
+                + "    switch (value) {\n"
+                + "      case \"ACTIVE\": return Test.Status.ACTIVE;\n"
+                + "      case \"UNKNOWN\": return Test.Status.UNKNOWN;\n"
+                + "    }\n"
+                + "    return Test.Status.UNKNOWN;\n"
+                + "  }\n"
+                + "  private static Test.Tier decodeTier(int value, boolean wasNull) throws SQLException {\n"
+                + "    if (wasNull) {\n"
+                + "      throw new SQLException(\"NULL in column tier of non-null property tier\");\n"
+                + "    }\n"
+                + "    switch (value) {\n"
+                + "      case 10: return Test.Tier.GOLD;\n"
+                + "      case 20: return Test.Tier.SILVER;\n"
+                + "    }\n"
+                + "    throw new SQLException(\"Unknown Tier value \" + value + \" in column tier\");\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void javaTime() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.time.Instant;\n"
+                + "import java.time.LocalDate;\n"
+                + "import java.time.LocalDateTime;\n"
+                + "import java.time.OffsetDateTime;\n"
+                + "@AutoValue public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  public abstract Instant a();\n"
+                + "  public abstract LocalDate b();\n"
+                + "  public abstract LocalDateTime c();\n"
+                + "  public abstract OffsetDateTime d();\n"
+                + "}\n");
+
+        JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
+                + "package test;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.sql.SQLException;\n"
+                + "import java.time.Instant;\n"
+                + "import java.time.LocalDate;\n"
+                + "import java.time.LocalDateTime;\n"
+                + "import java.time.OffsetDateTime;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "final class AutoValue_Test extends $AutoValue_Test {\n"
+                + "  AutoValue_Test(Instant a, LocalDate b, LocalDateTime c, OffsetDateTime d) {\n"
+                + "    super(a, b, c, d);\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    Instant a = resultSet.getObject(resultSet.findColumn(\"a\"), Instant.class);\n"
+                + "    LocalDate b = resultSet.getObject(resultSet.findColumn(\"b\"), LocalDate.class);\n"
+                + "    LocalDateTime c = resultSet.getObject(resultSet.findColumn(\"c\"), LocalDateTime.class);\n"
+                + "    OffsetDateTime d = resultSet.getObject(resultSet.findColumn(\"d\"), OffsetDateTime.class);\n"
+                + "    return new AutoValue_Test(a, b, c, d);\n"
+                + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[4];\n"
+                + "    columns[0] = resultSet.findColumn(\"a\");\n"
+                + "    columns[1] = resultSet.findColumn(\"b\");\n"
+                + "    columns[2] = resultSet.findColumn(\"c\");\n"
+                + "    columns[3] = resultSet.findColumn(\"d\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    Instant a = resultSet.getObject(columns[0], Instant.class);\n"
+                + "    LocalDate b = resultSet.getObject(columns[1], LocalDate.class);\n"
+                + "    LocalDateTime c = resultSet.getObject(columns[2], LocalDateTime.class);\n"
+                + "    OffsetDateTime d = resultSet.getObject(columns[3], OffsetDateTime.class);\n"
+                + "    return new AutoValue_Test(a, b, c, d);\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void epochMillisAndScaled() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.EpochMillis;\n"
+                + "import in.workaounds.avrs.Scaled;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "@AutoValue public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  @EpochMillis public abstract long createdAt();\n"
+                + "  @Scaled(2) public abstract long amountCents();\n"
+                + "}\n");
+
+        JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.PrimitiveColumns;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.sql.ResultSetMetaData;\n"
+                + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "final class AutoValue_Test extends $AutoValue_Test {\n"
+                + "  AutoValue_Test(long createdAt, long amountCents) {\n"
+                + "    super(createdAt, amountCents);\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    long createdAt = PrimitiveColumns.getEpochMillis(resultSet, resultSet.findColumn(\"createdAt\"));\n"
+                + "    long amountCents = PrimitiveColumns.getScaled(resultSet, resultSet.findColumn(\"amountCents\"), 2);\n"
+                + "    return new AutoValue_Test(createdAt, amountCents);\n"
+                + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[4];\n"
+                + "    columns[0] = resultSet.findColumn(\"createdAt\");\n"
+                + "    columns[1] = resultSet.findColumn(\"amountCents\");\n"
+                + "    ResultSetMetaData metaData = resultSet.getMetaData();\n"
+                + "    columns[2] = metaData.getColumnType(columns[0]);\n"
+                + "    columns[3] = PrimitiveColumns.scaledReadMode(metaData, columns[1], 2);\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    long createdAt = PrimitiveColumns.getEpochMillis(resultSet, columns[0], columns[2]);\n"
+                + "    long amountCents = PrimitiveColumns.getScaled(resultSet, columns[1], 2, columns[3]);\n"
+                + "    return new AutoValue_Test(createdAt, amountCents);\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void uuid() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.util.UUID;\n"
+                + "@AutoValue public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  public abstract UUID id();\n"
+                + "}\n");
+
+        JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.UuidColumns;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.sql.ResultSetMetaData;\n"
+                + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "import java.util.UUID;\n"
+                + "final class AutoValue_Test extends $AutoValue_Test {\n"
+                + "  AutoValue_Test(UUID id) {\n"
+                + "    super(id);\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    UUID id = UuidColumns.getUuid(resultSet, resultSet.findColumn(\"id\"));\n"
+                + "    return new AutoValue_Test(id);\n"
+                + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[2];\n"
+                + "    columns[0] = resultSet.findColumn(\"id\");\n"
+                + "    ResultSetMetaData metaData = resultSet.getMetaData();\n"
+                + "    columns[1] = metaData.getColumnType(columns[0]);\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    UUID id = UuidColumns.getUuid(resultSet, columns[0], columns[1]);\n"
+                + "    return new AutoValue_Test(id);\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void streams() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.Spill;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.io.InputStream;\n"
+                + "import java.io.Reader;\n"
+                + "import java.nio.ByteBuffer;\n"
+                + "import java.sql.ResultSet;\n"
+                + "@AutoValue public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  public abstract InputStream a();\n"
+                + "  public abstract Reader b();\n"
+                + "  @Spill(1024) public abstract ByteBuffer c();\n"
+                + "}\n");
+
+        JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.LobColumns;\n"
+                + "import java.io.InputStream;\n"
+                + "import java.io.Reader;\n"
+                + "import java.nio.ByteBuffer;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "final class AutoValue_Test extends $AutoValue_Test {\n"
+                + "  AutoValue_Test(InputStream a, Reader b, ByteBuffer c) {\n"
+                + "    super(a, b, c);\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    InputStream a = resultSet.getBinaryStream(resultSet.findColumn(\"a\"));\n"
+                + "    Reader b = resultSet.getCharacterStream(resultSet.findColumn(\"b\"));\n"
+                + "    ByteBuffer c = LobColumns.getSpilled(resultSet, resultSet.findColumn(\"c\"), 1024);\n"
+                + "    return new AutoValue_Test(a, b, c);\n"
+                + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[3];\n"
+                + "    columns[0] = resultSet.findColumn(\"a\");\n"
+                + "    columns[1] = resultSet.findColumn(\"b\");\n"
+                + "    columns[2] = resultSet.findColumn(\"c\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    InputStream a = resultSet.getBinaryStream(columns[0]);\n"
+                + "    Reader b = resultSet.getCharacterStream(columns[1]);\n"
+                + "    ByteBuffer c = LobColumns.getSpilled(resultSet, columns[2], 1024);\n"
+                + "    return new AutoValue_Test(a, b, c);\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void lazy() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.ColumnDecoder;\n"
+                + "import in.workaounds.avrs.Lazy;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.util.function.Supplier;\n"
+                + "@AutoValue public abstract class Test {\n"
+                + "  public static class BodyDecoder implements ColumnDecoder<String> {\n"
+                + "    public String decode(byte[] bytes) { return new String(bytes); }\n"
+                + "  }\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  @Lazy(BodyDecoder.class) public abstract Supplier<String> body();\n"
+                + "}\n");
+
+        JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.ColumnDecoder;\n"
+                + "import java.lang.Object;\n"
+                + "import java.lang.Override;\n"
+                + "import java.lang.String;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "import java.util.Objects;\n"
+                + "import java.util.function.Supplier;\n"
+                + "final class AutoValue_Test extends $AutoValue_Test {\n"
+                + "  private static final Test.BodyDecoder BODY_DECODER = new Test.BodyDecoder();\n"
+                + "  AutoValue_Test(Supplier<String> body) {\n"
+                + "    super(body);\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    Supplier<String> body = new LazyColumn<>(resultSet.getBytes(resultSet.findColumn(\"body\")), BODY_DECODER);\n"
+                + "    return new AutoValue_Test(body);\n"
+                + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[1];\n"
+                + "    columns[0] = resultSet.findColumn(\"body\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    Supplier<String> body = new LazyColumn<>(resultSet.getBytes(columns[0]), BODY_DECODER);\n"
+                + "    return new AutoValue_Test(body);\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "  private static final class LazyColumn<T> implements Supplier<T> {\n"
+                + "    private final ColumnDecoder<T> decoder;\n"
+                + "    private byte[] bytes;\n"
+                + "    private T value;\n"
+                + "    private volatile boolean decoded;\n"
+                + "    LazyColumn(byte[] bytes, ColumnDecoder<T> decoder) {\n"
+                + "      this.bytes = bytes;\n"
+                + "      this.decoder = decoder;\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public T get() {\n"
+                + "      if (!decoded) {\n"
+                + "        synchronized (this) {\n"
+                + "          if (!decoded) {\n"
+                + "            value = bytes != null ? decoder.decode(bytes) : null;\n"
+                + "            bytes = null;\n"
+                + "            decoded = true;\n"
+                + "          }\n"
+                + "        }\n"
+                + "      }\n"
+                + "      return value;\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public boolean equals(Object o) {\n"
+                + "      return o == this || o instanceof LazyColumn\n"
+                + "              && Objects.equals(get(), ((LazyColumn<?>) o).get());\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public int hashCode() {\n"
+                + "      return Objects.hashCode(get());\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public String toString() {\n"
+                + "      return String.valueOf(get());\n"
+                + "    }\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void lazyNotSupplier() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.ColumnDecoder;\n"
+                + "import in.workaounds.avrs.Lazy;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "@AutoValue public abstract class Test {\n"
+                + "  public static class BodyDecoder implements ColumnDecoder<String> {\n"
+                + "    public String decode(byte[] bytes) { return new String(bytes); }\n"
+                + "  }\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  @Lazy(BodyDecoder.class) public abstract String body();\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .failsToCompile()
+                .withErrorContaining("Only java.util.function.Supplier properties read from "
+                        + "ResultSet can be annotated with @Lazy.");
+    }
+
+    @Test
+    public void lazyRow() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.EnumFallback;\n"
+                + "import in.workaounds.avrs.LazyRow;\n"
+                + "import in.workaounds.avrs.TypeConverter;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "@LazyRow @AutoValue public abstract class Test {\n"
+                + "  public enum Status { ACTIVE, UNKNOWN }\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  public abstract int a();\n"
+                + "  public abstract String b();\n"
+                + "  public abstract double c();\n"
+                + "  @EnumFallback(\"UNKNOWN\") public abstract Status status();\n"
+                + "  public abstract Long d();\n"
+                + "  public abstract Money e();\n"
+                + "  public static final class Money {\n"
+                + "    @TypeConverter static Money fromColumn(long cents) { return null; }\n"
+                + "  }\n"
+                + "}\n");
+
+        JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
+                + "package test;\n"
+                + "import java.lang.Double;\n"
+                + "import java.lang.IllegalStateException;\n"
+                + "import java.lang.Long;\n"
+                + "import java.lang.Object;\n"
+                + "import java.lang.Override;\n"
+                + "import java.lang.String;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "final class AutoValue_Test extends $AutoValue_Test {\n"
+                + "  AutoValue_Test(int a, String b, double c, Test.Status status, Long d, Test.Money e) {\n"
+                + "    super(a, b, c, status, d, e);\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int a = resultSet.getInt(resultSet.findColumn(\"a\"));\n"
+                + "    String b = resultSet.getString(resultSet.findColumn(\"b\"));\n"
+                + "    double c = resultSet.getDouble(resultSet.findColumn(\"c\"));\n"
+                + "    Test.Status status = decodeStatus(resultSet.getString(resultSet.findColumn(\"status\")));\n"
+                + "    Long d = resultSet.getLong(resultSet.findColumn(\"d\"));\n"
+                + "    Test.Money e = Test.Money.fromColumn(resultSet.getLong(resultSet.findColumn(\"e\")));\n"
+                + "    return new AutoValue_Test(a, b, c, status, d, e);\n"
+                + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[6];\n"
+                + "    columns[0] = resultSet.findColumn(\"a\");\n"
+                + "    columns[1] = resultSet.findColumn(\"b\");\n"
+                + "    columns[2] = resultSet.findColumn(\"c\");\n"
+                + "    columns[3] = resultSet.findColumn(\"status\");\n"
+                + "    columns[4] = resultSet.findColumn(\"d\");\n"
+                + "    columns[5] = resultSet.findColumn(\"e\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    int a = resultSet.getInt(columns[0]);\n"
+                + "    String b = resultSet.getString(columns[1]);\n"
+                + "    double c = resultSet.getDouble(columns[2]);\n"
+                + "    Test.Status status = decodeStatus(resultSet.getString(columns[3]));\n"
+                + "    Long d = resultSet.getLong(columns[4]);\n"
+                + "    Test.Money e = Test.Money.fromColumn(resultSet.getLong(columns[5]));\n"
+                + "    return new AutoValue_Test(a, b, c, status, d, e);\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "  static Test createLazyFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    long[] longs = new long[3];\n"
+                + "    int[] ints = new int[1];\n"
+                + "    Object[] references = new Object[2];\n"
+                + "    ints[0] = resultSet.getInt(resultSet.findColumn(\"a\"));\n"
+                + "    references[0] = resultSet.getString(resultSet.findColumn(\"b\"));\n"
+                + "    longs[0] = Double.doubleToRawLongBits(resultSet.getDouble(resultSet.findColumn(\"c\")));\n"
+                + "    references[1] = resultSet.getString(resultSet.findColumn(\"status\"));\n"
+                + "    longs[1] = resultSet.getLong(resultSet.findColumn(\"d\"));\n"
+                + "    longs[2] = resultSet.getLong(resultSet.findColumn(\"e\"));\n"
+                + "    return new LazyRow(longs, ints, references);\n"
+                + "  }\n"
+                + "  static Test createLazyFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    long[] longs = new long[3];\n"
+                + "    int[] ints = new int[1];\n"
+                + "    Object[] references = new Object[2];\n"
+                + "    ints[0] = resultSet.getInt(columns[0]);\n"
+                + "    references[0] = resultSet.getString(columns[1]);\n"
+                + "    longs[0] = Double.doubleToRawLongBits(resultSet.getDouble(columns[2]));\n"
+                + "    references[1] = resultSet.getString(columns[3]);\n"
+                + "    longs[1] = resultSet.getLong(columns[4]);\n"
+                + "    longs[2] = resultSet.getLong(columns[5]);\n"
+                + "    return new LazyRow(longs, ints, references);\n"
+                + "  }\n"
+                + "  static List<Test> createLazyListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createLazyFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "  private static Test.Status decodeStatus(String value) throws SQLException {\n"
+                + "    if (value == null) {\n"
+                + "      return Test.Status.UNKNOWN;\n"
+                + "    }\n"
+                + "    switch (value) {\n"
+                + "      case \"ACTIVE\": return Test.Status.ACTIVE;\n"
+                + "      case \"UNKNOWN\": return Test.Status.UNKNOWN;\n"
+                + "    }\n"
+                + "    return Test.Status.UNKNOWN;\n"
+                + "  }\n"
+                + "  private static final class LazyRow extends Test {\n"
+                + "    private final long[] longs;\n"
+                + "    private final int[] ints;\n"
+                + "    private final Object[] references;\n"
+                + "    private volatile AutoValue_Test materialized;\n"
+                + "    private Test.Status status;\n"
+                + "    private volatile boolean statusDecoded;\n"
+                + "    private Test.Money e;\n"
+                + "    private volatile boolean eDecoded;\n"
+                + "    LazyRow(long[] longs, int[] ints, Object[] references) {\n"
+                + "      this.longs = longs;\n"
+                + "      this.ints = ints;\n"
+                + "      this.references = references;\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public int a() {\n"
+                + "      return ints[0];\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public String b() {\n"
+                + "      return (String) references[0];\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public double c() {\n"
+                + "      return Double.longBitsToDouble(longs[0]);\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public Test.Status status() {\n"
+                + "      if (!statusDecoded) {\n"
+                + "        try {\n"
+                + "          status = decodeStatus((String) references[1]);\n"
+                + "        } catch (SQLException e) {\n"
+                + "          throw new IllegalStateException(e);\n"
+                + "        }\n"
+                + "        statusDecoded = true;\n"
+                + "      }\n"
+                + "      return status;\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public Long d() {\n"
+                + "      return longs[1];\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public Test.Money e() {\n"
+                + "      if (!eDecoded) {\n"
+                + "        e = Test.Money.fromColumn(longs[2]);\n"
+                + "        eDecoded = true;\n"
+                + "      }\n"
+                + "      return e;\n"
+                + "    }\n"
+                + "    private AutoValue_Test materialize() {\n"
+                + "      AutoValue_Test value = materialized;\n"
+                + "      if (value == null) {\n"
+                + "        value = new AutoValue_Test(a(), b(), c(), status(), d(), e());\n"
+                + "        materialized = value;\n"
+                + "      }\n"
+                + "      return value;\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public boolean equals(Object o) {\n"
+                + "      return o == this || materialize().equals(o);\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public int hashCode() {\n"
+                + "      return materialize().hashCode();\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public String toString() {\n"
+                + "      return materialize().toString();\n"
+                + "    }\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void ifPresent() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.IfPresent;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import javax.annotation.Nullable;\n"
+                + "@AutoValue public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  public abstract int a();\n"
+                + "  @IfPresent public abstract long b();\n"
+                + "  @IfPresent @Nullable public abstract String c();\n"
+                + "}\n");
+
+        JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.OptionalColumns;\n"
+                + "import java.lang.String;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "final class AutoValue_Test extends $AutoValue_Test {\n"
+                + "  AutoValue_Test(int a, long b, String c) {\n"
+                + "    super(a, b, c);\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int a = resultSet.getInt(resultSet.findColumn(\"a\"));\n"
+                + "    int bColumnIndex = OptionalColumns.find(resultSet, \"b\");\n"
+                + "    long b = bColumnIndex == 0 ? 0 : resultSet.getLong(bColumnIndex);\n"
+                + "    int cColumnIndex = OptionalColumns.find(resultSet, \"c\");\n"
+                + "    String c = cColumnIndex == 0 || resultSet.isNull(cColumnIndex) ? null : resultSet.getString(cColumnIndex);\n"
+                + "    return new AutoValue_Test(a, b, c);\n"
+                + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[3];\n"
+                + "    columns[0] = resultSet.findColumn(\"a\");\n"
+                + "    columns[1] = OptionalColumns.find(resultSet, \"b\");\n"
+                + "    columns[2] = OptionalColumns.find(resultSet, \"c\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    int a = resultSet.getInt(columns[0]);\n"
+                + "    int bColumnIndex = columns[1];\n"
+                + "    long b = bColumnIndex == 0 ? 0 : resultSet.getLong(bColumnIndex);\n"
+                + "    int cColumnIndex = columns[2];\n"
+                + "    String c = cColumnIndex == 0 || resultSet.isNull(cColumnIndex) ? null : resultSet.getString(cColumnIndex);\n"
+                + "    return new AutoValue_Test(a, b, c);\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void ifPresentNonNull() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.IfPresent;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "@AutoValue public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  @IfPresent public abstract String a();\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .failsToCompile()
+                .withErrorContaining("Only primitive or @Nullable properties read from ResultSet can be annotated with @IfPresent.");
+    }
+
+    @Test
+    public void children() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.Children;\n"
+                + "import in.workaounds.avrs.Id;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.util.List;\n"
+                + "@AutoValue public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  @Id public abstract long a();\n"
+                + "  public abstract String b();\n"
+                + "  @Children(key = \"lineA\") public abstract List<Line> c();\n"
+                + "  @AutoValue public abstract static class Line {\n"
+                + "    public static Line blah(ResultSet resultSet) { return null; }\n"
+                + "    public abstract long lineA();\n"
+                + "  }\n"
+                + "}\n");
+
+        JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.IdentityMap;\n"
+                + "import java.lang.String;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.Collections;\n"
+                + "import java.util.List;\n"
+                + "final class AutoValue_Test extends $AutoValue_Test {\n"
+                + "  AutoValue_Test(long a, String b, List<Test.Line> c) {\n"
+                + "    super(a, b, c);\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    long a = resultSet.getLong(resultSet.findColumn(\"a\"));\n"
+                + "    String b = resultSet.getString(resultSet.findColumn(\"b\"));\n"
+                + "    List<Test.Line> c = Collections.emptyList();\n"
+                + "    return new AutoValue_Test(a, b, c);\n"
+                + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[3];\n"
+                + "    columns[0] = resultSet.findColumn(\"a\");\n"
+                + "    columns[1] = resultSet.findColumn(\"b\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    long a = resultSet.getLong(columns[0]);\n"
+                + "    String b = resultSet.getString(columns[1]);\n"
+                + "    List<Test.Line> c = Collections.emptyList();\n"
+                + "    return new AutoValue_Test(a, b, c);\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "  static List<Test> createGroupedListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    int[] cColumns = AutoValue_Test_Line.findColumns(resultSet);\n"
+                + "    int cKeyColumn = resultSet.findColumn(\"lineA\");\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    boolean hasRow = resultSet.next();\n"
+                + "    while (hasRow) {\n"
+                + "      long a = resultSet.getLong(columns[0]);\n"
+                + "      String b = resultSet.getString(columns[1]);\n"
+                + "      List<Test.Line> c = new ArrayList<>();\n"
+                + "      do {\n"
+                + "        if (resultSet.getLong(cKeyColumn) != 0 || !resultSet.wasNull()) {\n"
+                + "          c.add(AutoValue_Test_Line.createFromResultSet(resultSet, cColumns));\n"
+                + "        }\n"
+                + "        hasRow = resultSet.next();\n"
+                + "      } while (hasRow && resultSet.getLong(columns[0]) == a);\n"
+                + "      c = Collections.unmodifiableList(c);\n"
+                + "      AutoValue_Test value = new AutoValue_Test(a, b, c);\n"
+                + "      values.add(value);\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "  static Test createFromResultSet(ResultSet resultSet, int[] columns, IdentityMap<Test> identities) throws SQLException {\n"
+                + "    long a = resultSet.getLong(columns[0]);\n"
+                + "    Test existing = identities.get(a);\n"
+                + "    if (existing != null) {\n"
+                + "      return existing;\n"
+                + "    }\n"
+                + "    String b = resultSet.getString(columns[1]);\n"
+                + "    List<Test.Line> c = Collections.emptyList();\n"
+                + "    AutoValue_Test value = new AutoValue_Test(a, b, c);\n"
+                + "    identities.put(a, value);\n"
+                + "    return value;\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet, IdentityMap<Test> identities) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns, identities));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void childrenWithoutId() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.Children;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.util.List;\n"
+                + "@AutoValue public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  public abstract long a();\n"
+                + "  @Children public abstract List<Line> c();\n"
+                + "  @AutoValue public abstract static class Line {\n"
+                + "    public static Line blah(ResultSet resultSet) { return null; }\n"
+                + "    public abstract long lineA();\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .failsToCompile()
+                .withErrorContaining("@Children requires a property annotated with @Id.");
+    }
+
+    @Test
+    public void idArray() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.Children;\n"
+                + "import in.workaounds.avrs.Id;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.util.List;\n"
+                + "@AutoValue public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  @Id @SuppressWarnings(\"mutable\") public abstract byte[] a();\n"
+                + "  @Children public abstract List<Line> c();\n"
+                + "  @AutoValue public abstract static class Line {\n"
+                + "    public static Line blah(ResultSet resultSet) { return null; }\n"
+                + "    public abstract long lineA();\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .failsToCompile()
+                .withErrorContaining("@Id properties are compared with equals(), so they "
+                        + "can't be arrays or streams.");
+    }
+
+    @Test
+    public void childrenColumnClash() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.Children;\n"
+                + "import in.workaounds.avrs.Id;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.util.List;\n"
+                + "@AutoValue public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  @Id public abstract long id();\n"
+                + "  @Children public abstract List<Line> lines();\n"
+                + "  @AutoValue public abstract static class Line {\n"
+                + "    public static Line blah(ResultSet resultSet) { return null; }\n"
+                + "    public abstract long id();\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .failsToCompile()
+                .withErrorContaining("@Children columns [id] are also read by the parent.");
+    }
+
+    @Test
+    public void embedded() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.Embedded;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "@AutoValue public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  public abstract int a();\n"
+                + "  @Embedded(prefix = \"billing_\") public abstract Address b();\n"
+                + "  @AutoValue public abstract static class Address {\n"
+                + "    public abstract String street();\n"
+                + "    public abstract int zip();\n"
+                + "  }\n"
+                + "}\n");
+
+        JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
+                + "package test;\n"
+                + "import java.lang.String;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "final class AutoValue_Test extends $AutoValue_Test {\n"
+                + "  AutoValue_Test(int a, Test.Address b) {\n"
+                + "    super(a, b);\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int a = resultSet.getInt(resultSet.findColumn(\"a\"));\n"
+                + "    String bStreet = resultSet.getString(resultSet.findColumn(\"billing_street\"));\n"
+                + "    int bZip = resultSet.getInt(resultSet.findColumn(\"billing_zip\"));\n"
+                + "    Test.Address b = new AutoValue_Test_Address(bStreet, bZip);\n"
+                + "    return new AutoValue_Test(a, b);\n"
+                + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[4];\n"
+                + "    columns[0] = resultSet.findColumn(\"a\");\n"
+                + "    columns[2] = resultSet.findColumn(\"billing_street\");\n"
+                + "    columns[3] = resultSet.findColumn(\"billing_zip\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    int a = resultSet.getInt(columns[0]);\n"
+                + "    String bStreet = resultSet.getString(columns[2]);\n"
+                + "    int bZip = resultSet.getInt(columns[3]);\n"
+                + "    Test.Address b = new AutoValue_Test_Address(bStreet, bZip);\n"
+                + "    return new AutoValue_Test(a, b);\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void typeConverter() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.TypeConverter;\n"
+                + "import in.workaounds.avrs.TypeConverters;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "@AutoValue @TypeConverters(Test.Converters.class) public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  public abstract Money a();\n"
+                + "  public abstract Percent b();\n"
+                + "  public static final class Money {\n"
+                + "    @TypeConverter static Money fromColumn(long cents) { return null; }\n"
+                + "  }\n"
+                + "  public static final class Percent {\n"
+                + "  }\n"
+                + "  static final class Converters {\n"
+                + "    @TypeConverter static Percent percent(String value) { return null; }\n"
+                + "  }\n"
+                + "}\n");
+
+        JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
+                + "package test;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "final class AutoValue_Test extends $AutoValue_Test {\n"
+                + "  AutoValue_Test(Test.Money a, Test.Percent b) {\n"
+                + "    super(a, b);\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    Test.Money a = Test.Money.fromColumn(resultSet.getLong(resultSet.findColumn(\"a\")));\n"
+                + "    Test.Percent b = Test.Converters.percent(resultSet.getString(resultSet.findColumn(\"b\")));\n"
+                + "    return new AutoValue_Test(a, b);\n"
+                + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[2];\n"
+                + "    columns[0] = resultSet.findColumn(\"a\");\n"
+                + "    columns[1] = resultSet.findColumn(\"b\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    Test.Money a = Test.Money.fromColumn(resultSet.getLong(columns[0]));\n"
+                + "    Test.Percent b = Test.Converters.percent(resultSet.getString(columns[1]));\n"
+                + "    return new AutoValue_Test(a, b);\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void typeConverterNotStatic() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.TypeConverter;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "@AutoValue public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  public abstract Money a();\n"
+                + "  public static final class Money {\n"
+                + "    @TypeConverter Money fromColumn(long cents) { return null; }\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .failsToCompile()
+                .withErrorContaining("@TypeConverter Money.fromColumn must be static.");
+    }
+
+    @Test
+    public void typeConverterPrivate() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.TypeConverter;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "@AutoValue public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  public abstract Money a();\n"
+                + "  public static final class Money {\n"
+                + "    @TypeConverter private static Money fromColumn(long cents) { return null; }\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .failsToCompile()
+                .withErrorContaining("@TypeConverter Money.fromColumn can't be private.");
+    }
+
+    @Test
+    public void writeJson() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.WriteJson;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "@AutoValue @WriteJson public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  public abstract long a();\n"
+                + "  public abstract String b();\n"
+                + "  public abstract Integer c();\n"
+                + "}\n");
+
+        JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.JsonOutput;\n"
+                + "import java.io.IOException;\n"
+                + "import java.io.OutputStream;\n"
+                + "import java.io.Writer;\n"
+                + "import java.lang.Integer;\n"
+                + "import java.lang.String;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "final class AutoValue_Test extends $AutoValue_Test {\n"
+                + "  private static final byte[] JSON_A = JsonOutput.fieldName(\"a\", true);\n"
+                + "  private static final byte[] JSON_B = JsonOutput.fieldName(\"b\", false);\n"
+                + "  private static final byte[] JSON_C = JsonOutput.fieldName(\"c\", false);\n"
+                + "  AutoValue_Test(long a, String b, Integer c) {\n"
+                + "    super(a, b, c);\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    long a = resultSet.getLong(resultSet.findColumn(\"a\"));\n"
+                + "    String b = resultSet.getString(resultSet.findColumn(\"b\"));\n"
+                + "    Integer c = resultSet.getInt(resultSet.findColumn(\"c\"));\n"
+                + "    return new AutoValue_Test(a, b, c);\n"
+                + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[3];\n"
+                + "    columns[0] = resultSet.findColumn(\"a\");\n"
+                + "    columns[1] = resultSet.findColumn(\"b\");\n"
+                + "    columns[2] = resultSet.findColumn(\"c\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    long a = resultSet.getLong(columns[0]);\n"
+                + "    String b = resultSet.getString(columns[1]);\n"
+                + "    Integer c = resultSet.getInt(columns[2]);\n"
+                + "    return new AutoValue_Test(a, b, c);\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "  static int writeJson(ResultSet resultSet, OutputStream out) throws SQLException, IOException {\n"
+                + "    return writeJson(resultSet, new JsonOutput(out));\n"
+                + "  }\n"
+                + "  static int writeJson(ResultSet resultSet, Writer out) throws SQLException, IOException {\n"
+                + "    return writeJson(resultSet, new JsonOutput(out));\n"
+                + "  }\n"
+                + "  private static int writeJson(ResultSet resultSet, JsonOutput json) throws SQLException, IOException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    json.beginArray();\n"
+                + "    int rows = 0;\n"
+                + "    while (resultSet.next()) {\n"
+                + "      if (rows++ > 0) {\n"
+                + "        json.comma();\n"
+                + "      }\n"
+                + "      json.beginObject();\n"
+                + "      json.name(JSON_A);\n"
+                + "      json.value(resultSet.getLong(columns[0]));\n"
+                + "      json.name(JSON_B);\n"
+                + "      json.value(resultSet.getString(columns[1]));\n"
+                + "      json.name(JSON_C);\n"
+                + "      json.nullableValue(resultSet.getInt(columns[2]), resultSet.wasNull());\n"
+                + "      json.endObject();\n"
+                + "    }\n"
+                + "    json.endArray();\n"
+                + "    json.flush();\n"
+                + "    return rows;\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void writeCsv() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.WriteCsv;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "@AutoValue @WriteCsv public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  public abstract long a();\n"
+                + "  public abstract String b();\n"
+                + "  public abstract Integer c();\n"
+                + "}\n");
+
+        JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.CsvOptions;\n"
+                + "import in.workaounds.avrs.CsvOutput;\n"
+                + "import java.io.IOException;\n"
+                + "import java.io.OutputStream;\n"
+                + "import java.io.Writer;\n"
+                + "import java.lang.Integer;\n"
+                + "import java.lang.String;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "final class AutoValue_Test extends $AutoValue_Test {\n"
+                + "  private static final String[] CSV_HEADER = {\"a\", \"b\", \"c\"};\n"
+                + "  AutoValue_Test(long a, String b, Integer c) {\n"
+                + "    super(a, b, c);\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    long a = resultSet.getLong(resultSet.findColumn(\"a\"));\n"
+                + "    String b = resultSet.getString(resultSet.findColumn(\"b\"));\n"
+                + "    Integer c = resultSet.getInt(resultSet.findColumn(\"c\"));\n"
+                + "    return new AutoValue_Test(a, b, c);\n"
+                + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[3];\n"
+                + "    columns[0] = resultSet.findColumn(\"a\");\n"
+                + "    columns[1] = resultSet.findColumn(\"b\");\n"
+                + "    columns[2] = resultSet.findColumn(\"c\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    long a = resultSet.getLong(columns[0]);\n"
+                + "    String b = resultSet.getString(columns[1]);\n"
+                + "    Integer c = resultSet.getInt(columns[2]);\n"
+                + "    return new AutoValue_Test(a, b, c);\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "  static int writeCsv(ResultSet resultSet, OutputStream out, CsvOptions options) throws SQLException, IOException {\n"
+                + "    return writeCsv(resultSet, new CsvOutput(out, options), options.header());\n"
+                + "  }\n"
+                + "  static int writeCsv(ResultSet resultSet, Writer out, CsvOptions options) throws SQLException, IOException {\n"
+                + "    return writeCsv(resultSet, new CsvOutput(out, options), options.header());\n"
+                + "  }\n"
+                + "  private static int writeCsv(ResultSet resultSet, CsvOutput csv, boolean header) throws SQLException, IOException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    if (header) {\n"
+                + "      csv.header(CSV_HEADER);\n"
+                + "    }\n"
+                + "    int rows = 0;\n"
+                + "    while (resultSet.next()) {\n"
+                + "      csv.value(resultSet.getLong(columns[0]));\n"
+                + "      csv.value(resultSet.getString(columns[1]));\n"
+                + "      csv.nullableValue(resultSet.getInt(columns[2]), resultSet.wasNull());\n"
+                + "      csv.endRow();\n"
+                + "      rows++;\n"
+                + "    }\n"
+                + "    csv.flush();\n"
+                + "    return rows;\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void binaryCodec() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.BinaryCodec;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import javax.annotation.Nullable;\n"
+                + "@AutoValue @BinaryCodec public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  public abstract long a();\n"
+                + "  @Nullable public abstract String b();\n"
+                + "  public abstract int c();\n"
+                + "}\n");
+
+        JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.BinaryValues;\n"
+                + "import in.workaounds.avrs.ValueCodec;\n"
+                + "import java.io.DataInput;\n"
+                + "import java.io.DataOutput;\n"
+                + "import java.io.IOException;\n"
+                + "import java.lang.Override;\n"
+                + "import java.lang.String;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "final class AutoValue_Test extends $AutoValue_Test {\n"
+                + "  private static final long SCHEMA_HASH = 0x74c0c716ea69fcadL;\n"
+                + "  static final ValueCodec<Test> CODEC = new ValueCodec<Test>() {\n"
+                + "    @Override\n"
+                + "    public long schemaHash() {\n"
+                + "      return SCHEMA_HASH;\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public void write(Test value, DataOutput out) throws IOException {\n"
+                + "      out.writeByte((value.b() == null ? 1 : 0));\n"
+                + "      BinaryValues.writeVarLong(out, value.a());\n"
+                + "      if (value.b() != null) {\n"
+                + "        BinaryValues.writeString(out, value.b());\n"
+                + "      }\n"
+                + "      BinaryValues.writeVarInt(out, value.c());\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public Test read(DataInput in) throws IOException {\n"
+                + "      int nulls0 = in.readUnsignedByte();\n"
+                + "      long a = BinaryValues.readVarLong(in);\n"
+                + "      String b = (nulls0 & 1) != 0 ? null : BinaryValues.readString(in);\n"
+                + "      int c = BinaryValues.readVarInt(in);\n"
+                + "      return new AutoValue_Test(a, b, c);\n"
+                + "    }\n"
+                + "  };\n"
+                + "  AutoValue_Test(long a, String b, int c) {\n"
+                + "    super(a, b, c);\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    long a = resultSet.getLong(resultSet.findColumn(\"a\"));\n"
+                + "    int bColumnIndex = resultSet.findColumn(\"b\");\n"
+                + "    String b = resultSet.isNull(bColumnIndex) ? null : resultSet.getString(bColumnIndex);\n"
+                + "    int c = resultSet.getInt(resultSet.findColumn(\"c\"));\n"
+                + "    return new AutoValue_Test(a, b, c);\n"
+                + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[3];\n"
+                + "    columns[0] = resultSet.findColumn(\"a\");\n"
+                + "    columns[1] = resultSet.findColumn(\"b\");\n"
+                + "    columns[2] = resultSet.findColumn(\"c\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    long a = resultSet.getLong(columns[0]);\n"
+                + "    int bColumnIndex = columns[1];\n"
+                + "    String b = resultSet.isNull(bColumnIndex) ? null : resultSet.getString(bColumnIndex);\n"
+                + "    int c = resultSet.getInt(columns[2]);\n"
+                + "    return new AutoValue_Test(a, b, c);\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "  static void writeTo(List<? extends Test> values, DataOutput out) throws IOException {\n"
+                + "    BinaryValues.writeList(values, out, CODEC);\n"
+                + "  }\n"
+                + "  static List<Test> readFrom(DataInput in) throws IOException {\n"
+                + "    return BinaryValues.readList(in, CODEC);\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void binaryCodecUnsupportedType() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.BinaryCodec;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.io.InputStream;\n"
+                + "import java.sql.ResultSet;\n"
+                + "@AutoValue @BinaryCodec public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  public abstract long a();\n"
+                + "  public abstract InputStream b();\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .failsToCompile()
+                .withErrorContaining("Property has type that can't be encoded by @BinaryCodec.");
+    }
+
+    @Test
+    public void estimateSize() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.EstimateSize;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import javax.annotation.Nullable;\n"
+                + "@AutoValue @EstimateSize public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  public abstract long a();\n"
+                + "  public abstract String b();\n"
+                + "  @Nullable public abstract Integer c();\n"
+                + "}\n");
+
+        JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.RetainedSize;\n"
+                + "import java.lang.Integer;\n"
+                + "import java.lang.String;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "final class AutoValue_Test extends $AutoValue_Test {\n"
+                + "  AutoValue_Test(long a, String b, Integer c) {\n"
+                + "    super(a, b, c);\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    long a = resultSet.getLong(resultSet.findColumn(\"a\"));\n"
+                + "    String b = resultSet.getString(resultSet.findColumn(\"b\"));\n"
+                + "    int cColumnIndex = resultSet.findColumn(\"c\");\n"
+                + "    Integer c = resultSet.isNull(cColumnIndex) ? null : resultSet.getInt(cColumnIndex);\n"
+                + "    return new AutoValue_Test(a, b, c);\n"
+                + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[3];\n"
+                + "    columns[0] = resultSet.findColumn(\"a\");\n"
+                + "    columns[1] = resultSet.findColumn(\"b\");\n"
+                + "    columns[2] = resultSet.findColumn(\"c\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    long a = resultSet.getLong(columns[0]);\n"
+                + "    String b = resultSet.getString(columns[1]);\n"
+                + "    int cColumnIndex = columns[2];\n"
+                + "    Integer c = resultSet.isNull(cColumnIndex) ? null : resultSet.getInt(cColumnIndex);\n"
+                + "    return new AutoValue_Test(a, b, c);\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "  static long estimateRetainedSize(List<? extends Test> values) {\n"
+                + "    long size = RetainedSize.of(values);\n"
+                + "    for (Test value : values) {\n"
+                + "      size += 32L + RetainedSize.of(value.b()) + (value.c() != null ? 16L : 0L);\n"
+                + "    }\n"
+                + "    return size;\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void identityMap() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.Id;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "@AutoValue public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  @Id public abstract long a();\n"
+                + "  public abstract String b();\n"
+                + "}\n");
+
+        JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.IdentityMap;\n"
+                + "import java.lang.String;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "final class AutoValue_Test extends $AutoValue_Test {\n"
+                + "  AutoValue_Test(long a, String b) {\n"
+                + "    super(a, b);\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    long a = resultSet.getLong(resultSet.findColumn(\"a\"));\n"
+                + "    String b = resultSet.getString(resultSet.findColumn(\"b\"));\n"
+                + "    return new AutoValue_Test(a, b);\n"
+                + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[2];\n"
+                + "    columns[0] = resultSet.findColumn(\"a\");\n"
+                + "    columns[1] = resultSet.findColumn(\"b\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    long a = resultSet.getLong(columns[0]);\n"
+                + "    String b = resultSet.getString(columns[1]);\n"
+                + "    return new AutoValue_Test(a, b);\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "  static Test createFromResultSet(ResultSet resultSet, int[] columns, IdentityMap<Test> identities) throws SQLException {\n"
+                + "    long a = resultSet.getLong(columns[0]);\n"
+                + "    Test existing = identities.get(a);\n"
+                + "    if (existing != null) {\n"
+                + "      return existing;\n"
+                + "    }\n"
+                + "    String b = resultSet.getString(columns[1]);\n"
+                + "    AutoValue_Test value = new AutoValue_Test(a, b);\n"
+                + "    identities.put(a, value);\n"
+                + "    return value;\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet, IdentityMap<Test> identities) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns, identities));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void queryable() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.Queryable;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "@AutoValue @Queryable public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  public abstract long a();\n"
+                + "  public abstract String b();\n"
+                + "  public abstract Integer c();\n"
+                + "}\n");
+
+        JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.PrefetchingIterator;\n"
+                + "import in.workaounds.avrs.Queries;\n"
+                + "import in.workaounds.avrs.RowConsumer;\n"
+                + "import java.lang.Integer;\n"
+                + "import java.lang.Object;\n"
+                + "import java.lang.Override;\n"
+                + "import java.lang.String;\n"
+                + "import java.sql.Connection;\n"
+                + "import java.sql.PreparedStatement;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "import java.util.concurrent.Executor;\n"
+                + "final class AutoValue_Test extends $AutoValue_Test {\n"
+                + "  private static final int ESTIMATED_ROW_BYTES = 44;\n"
+                + "  AutoValue_Test(long a, String b, Integer c) {\n"
+                + "    super(a, b, c);\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    long a = resultSet.getLong(resultSet.findColumn(\"a\"));\n"
+                + "    String b = resultSet.getString(resultSet.findColumn(\"b\"));\n"
+                + "    Integer c = resultSet.getInt(resultSet.findColumn(\"c\"));\n"
+                + "    return new AutoValue_Test(a, b, c);\n"
+                + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[3];\n"
+                + "    columns[0] = resultSet.findColumn(\"a\");\n"
+                + "    columns[1] = resultSet.findColumn(\"b\");\n"
+                + "    columns[2] = resultSet.findColumn(\"c\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    long a = resultSet.getLong(columns[0]);\n"
+                + "    String b = resultSet.getString(columns[1]);\n"
+                + "    Integer c = resultSet.getInt(columns[2]);\n"
+                + "    return new AutoValue_Test(a, b, c);\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "  static List<Test> query(Connection connection, String sql, Object... params) throws SQLException {\n"
+                + "    try (PreparedStatement statement = Queries.prepare(connection, sql, ESTIMATED_ROW_BYTES, params);\n"
+                + "        ResultSet resultSet = statement.executeQuery()) {\n"
+                + "      return createListFromResultSet(resultSet);\n"
+                + "    }\n"
+                + "  }\n"
+                + "  static void queryEach(Connection connection, String sql, RowConsumer<? super Test> consumer, Object... params) throws SQLException {\n"
+                + "    try (PreparedStatement statement = Queries.prepare(connection, sql, ESTIMATED_ROW_BYTES, params);\n"
+                + "        ResultSet resultSet = statement.executeQuery()) {\n"
+                + "      int[] columns = findColumns(resultSet);\n"
+                + "      while (resultSet.next()) {\n"
+                + "        consumer.accept(createFromResultSet(resultSet, columns));\n"
+                + "      }\n"
+                + "    }\n"
+                + "  }\n"
+                + "  static PrefetchingIterator<Test> prefetchFromResultSet(ResultSet resultSet, int depth, Executor executor) throws SQLException {\n"
+                + "    final int[] columns = findColumns(resultSet);\n"
+                + "    return new PrefetchingIterator<Test>(resultSet, depth, executor) {\n"
+                + "      @Override\n"
+                + "      protected Test read(ResultSet resultSet) throws SQLException {\n"
+                + "        return createFromResultSet(resultSet, columns);\n"
+                + "      }\n"
+                + "    }.start();\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void sortKey() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.SortKey;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "@AutoValue public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  @SortKey public abstract long a();\n"
+                + "  public abstract String b();\n"
+                + "}\n");
+
+        JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.KeysetPages;\n"
+                + "import java.lang.Object;\n"
+                + "import java.lang.Override;\n"
+                + "import java.lang.String;\n"
+                + "import java.sql.Connection;\n"
+                + "import java.sql.PreparedStatement;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "final class AutoValue_Test extends $AutoValue_Test {\n"
+                + "  private static final int ESTIMATED_ROW_BYTES = 40;\n"
+                + "  AutoValue_Test(long a, String b) {\n"
+                + "    super(a, b);\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    long a = resultSet.getLong(resultSet.findColumn(\"a\"));\n"
+                + "    String b = resultSet.getString(resultSet.findColumn(\"b\"));\n"
+                + "    return new AutoValue_Test(a, b);\n"
+                + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[2];\n"
+                + "    columns[0] = resultSet.findColumn(\"a\");\n"
+                + "    columns[1] = resultSet.findColumn(\"b\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    long a = resultSet.getLong(columns[0]);\n"
+                + "    String b = resultSet.getString(columns[1]);\n"
+                + "    return new AutoValue_Test(a, b);\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "  static KeysetPages<Test> pages(Connection connection, String baseQuery, int pageSize, Object... params) {\n"
+                + "    return new KeysetPages<Test>(connection, baseQuery, \"a\", pageSize, ESTIMATED_ROW_BYTES, params) {\n"
+                + "      @Override\n"
+                + "      protected void bindKey(PreparedStatement statement, int index, Test last) throws SQLException {\n"
+                + "        statement.setLong(index, last.a());\n"
+                + "      }\n"
+                + "      @Override\n"
+                + "      protected List<Test> read(ResultSet resultSet) throws SQLException {\n"
+                + "        return createListFromResultSet(resultSet);\n"
+                + "      }\n"
+                + "    };\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void sortKeyConverted() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.EpochMillis;\n"
+                + "import in.workaounds.avrs.SortKey;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "@AutoValue public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  @SortKey @EpochMillis public abstract long a();\n"
+                + "  public abstract String b();\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .failsToCompile()
+                .withErrorContaining("Only non-null primitive, String and Timestamp properties read from ResultSet without conversion can be annotated with @SortKey.");
+    }
+
+    @Test
+    public void sortKeyUuid() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.SortKey;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.util.UUID;\n"
+                + "@AutoValue public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  @SortKey public abstract UUID a();\n"
+                + "  public abstract String b();\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .failsToCompile()
+                .withErrorContaining("Only non-null primitive, String and Timestamp properties read from ResultSet without conversion can be annotated with @SortKey.");
+    }
+
+    @Test
+    public void rowView() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.RowView;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "@AutoValue @RowView public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  public abstract long a();\n"
+                + "  public abstract String b();\n"
+                + "}\n");
+
+        JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.RowConsumer;\n"
+                + "import java.lang.String;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "final class AutoValue_Test extends $AutoValue_Test {\n"
+                + "  AutoValue_Test(long a, String b) {\n"
+                + "    super(a, b);\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    long a = resultSet.getLong(resultSet.findColumn(\"a\"));\n"
+                + "    String b = resultSet.getString(resultSet.findColumn(\"b\"));\n"
+                + "    return new AutoValue_Test(a, b);\n"
+                + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[2];\n"
+                + "    columns[0] = resultSet.findColumn(\"a\");\n"
+                + "    columns[1] = resultSet.findColumn(\"b\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    long a = resultSet.getLong(columns[0]);\n"
+                + "    String b = resultSet.getString(columns[1]);\n"
+                + "    return new AutoValue_Test(a, b);\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "  static void forEach(ResultSet resultSet, RowConsumer<? super Test_Row> consumer) throws SQLException {\n"
+                + "    Test_Row row = new Test_Row(resultSet, findColumns(resultSet));\n"
+                + "    while (resultSet.next()) {\n"
+                + "      consumer.accept(row);\n"
+                + "    }\n"
+                + "  }\n"
+                + "  static final class Test_Row {\n"
+                + "    private final ResultSet resultSet;\n"
+                + "    private final int[] columns;\n"
+                + "    private Test_Row(ResultSet resultSet, int[] columns) {\n"
+                + "      this.resultSet = resultSet;\n"
+                + "      this.columns = columns;\n"
+                + "    }\n"
+                + "    public long a() throws SQLException {\n"
+                + "      return resultSet.getLong(columns[0]);\n"
+                + "    }\n"
+                + "    public String b() throws SQLException {\n"
+                + "      return resultSet.getString(columns[1]);\n"
+                + "    }\n"
+                + "    Test materialize() throws SQLException {\n"
+                + "      return createFromResultSet(resultSet, columns);\n"
+                + "    }\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void rowViewLazy() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.ColumnDecoder;\n"
+                + "import in.workaounds.avrs.Lazy;\n"
+                + "import in.workaounds.avrs.RowView;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.util.function.Supplier;\n"
+                + "@AutoValue @RowView public abstract class Test {\n"
+                + "  public static class BodyDecoder implements ColumnDecoder<String> {\n"
+                + "    public String decode(byte[] bytes) { return new String(bytes); }\n"
+                + "  }\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  public abstract long a();\n"
+                + "  @Lazy(BodyDecoder.class) public abstract Supplier<String> body();\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .failsToCompile()
+                .withErrorContaining("@RowView types can't have @Lazy or @Children properties, which the view can't read from its current row.");
+    }
+
+    @Test
+    public void flightRecorded() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.FlightRecorded;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "@AutoValue @FlightRecorded public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  public abstract int a();\n"
+                + "  public abstract byte[] b();\n"
+                + "}\n");
+
+        JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.MappingBatchEvent;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "final class AutoValue_Test extends $AutoValue_Test {\n"
+                + "  AutoValue_Test(int a, byte[] b) {\n"
+                + "    super(a, b);\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int a = resultSet.getInt(resultSet.findColumn(\"a\"));\n"
+                + "    byte[] b = resultSet.getBytes(resultSet.findColumn(\"b\"));\n"
+                + "    return new AutoValue_Test(a, b);\n"
+                + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[2];\n"
+                + "    columns[0] = resultSet.findColumn(\"a\");\n"
+                + "    columns[1] = resultSet.findColumn(\"b\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    int a = resultSet.getInt(columns[0]);\n"
+                + "    byte[] b = resultSet.getBytes(columns[1]);\n"
+                + "    return new AutoValue_Test(a, b);\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    MappingBatchEvent batchEvent = MappingBatchEvent.start(Test.class, \"createListFromResultSet\");\n"
+                + "    while (MappingBatchEvent.fetch(resultSet, batchEvent)) {\n"
+                + "      AutoValue_Test value = createFromResultSet(resultSet, columns);\n"
+                + "      if (batchEvent != null) {\n"
+                + "        batchEvent.addLobBytes(value.b());\n"
+                + "      }\n"
+                + "      values.add(value);\n"
+                + "    }\n"
+                + "    if (batchEvent != null) {\n"
+                + "      batchEvent.finish();\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    // TODO: 08/08/16 change the tests to add exception signatures
+    @Test
+    public void flightRecordedPaths() {
+        JavaFileObject stringAdapterSource = JavaFileObjects.forSourceString("test.StringAdapter", ""
+                + "package test;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.sql.SQLException;\n"
+                + "import in.workaounds.avrs.ColumnTypeAdapter;\n"
+                + "public class StringAdapter implements ColumnTypeAdapter<String> {\n"
+                + "  public String fromResultSet(ResultSet resultSet, String columnName) throws SQLException {\n"
+                + "    return resultSet.getString(columnName);\n"
+                + "  }\n"
+                + "}\n");
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.ColumnAdapter;\n"
+                + "import in.workaounds.avrs.FlightRecorded;\n"
+                + "import in.workaounds.avrs.Id;\n"
+                + "import in.workaounds.avrs.Queryable;\n"
+                + "import in.workaounds.avrs.RowView;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "@AutoValue @FlightRecorded @Queryable @RowView public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  @Id public abstract long a();\n"
+                + "  @ColumnAdapter(StringAdapter.class) public abstract String b();\n"
+                + "}\n");
+
+        JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
+                + "package test;\n"
+                + "import in.workaounds.avrs.IdentityMap;\n"
+                + "import in.workaounds.avrs.MappingBatchEvent;\n"
+                + "import in.workaounds.avrs.PrefetchingIterator;\n"
+                + "import in.workaounds.avrs.Queries;\n"
+                + "import in.workaounds.avrs.RowConsumer;\n"
+                + "import java.lang.Object;\n"
+                + "import java.lang.Override;\n"
+                + "import java.lang.String;\n"
+                + "import java.lang.System;\n"
+                + "import java.sql.Connection;\n"
+                + "import java.sql.PreparedStatement;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "import java.util.concurrent.Executor;\n"
+                + "final class AutoValue_Test extends $AutoValue_Test {\n"
+                + "  private static final int ESTIMATED_ROW_BYTES = 40;\n"
+                + "  AutoValue_Test(long a, String b) {\n"
+                + "    super(a, b);\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    StringAdapter stringAdapter = new StringAdapter();\n"
+                + "    long a = resultSet.getLong(resultSet.findColumn(\"a\"));\n"
+                + "    String b = stringAdapter.fromResultSet(resultSet, \"b\");\n"
+                + "    return new AutoValue_Test(a, b);\n"
+                + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[2];\n"
+                + "    columns[0] = resultSet.findColumn(\"a\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    return createFromResultSet(resultSet, columns, (MappingBatchEvent) null);\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns, MappingBatchEvent batchEvent) throws SQLException {\n"
+                + "    StringAdapter stringAdapter = new StringAdapter();\n"
+                + "    long a = resultSet.getLong(columns[0]);\n"
+                + "    long bStartNanos = batchEvent != null ? System.nanoTime() : 0L;\n"
+                + "    String b = stringAdapter.fromResultSet(resultSet, \"b\");\n"
+                + "    if (batchEvent != null) {\n"
+                + "      batchEvent.addAdapterNanos(System.nanoTime() - bStartNanos);\n"
+                + "    }\n"
+                + "    return new AutoValue_Test(a, b);\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    MappingBatchEvent batchEvent = MappingBatchEvent.start(Test.class, \"createListFromResultSet\");\n"
+                + "    while (MappingBatchEvent.fetch(resultSet, batchEvent)) {\n"
+                + "      AutoValue_Test value = createFromResultSet(resultSet, columns, batchEvent);\n"
+                + "      values.add(value);\n"
+                + "    }\n"
+                + "    if (batchEvent != null) {\n"
+                + "      batchEvent.finish();\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "  static Test createFromResultSet(ResultSet resultSet, int[] columns, IdentityMap<Test> identities) throws SQLException {\n"
+                + "    return createFromResultSet(resultSet, columns, identities, null);\n"
+                + "  }\n"
+                + "  static Test createFromResultSet(ResultSet resultSet, int[] columns, IdentityMap<Test> identities, MappingBatchEvent batchEvent) throws SQLException {\n"
+                + "    StringAdapter stringAdapter = new StringAdapter();\n"
+                + "    long a = resultSet.getLong(columns[0]);\n"
+                + "    Test existing = identities.get(a);\n"
+                + "    if (existing != null) {\n"
+                + "      return existing;\n"
+                + "    }\n"
+                + "    long bStartNanos = batchEvent != null ? System.nanoTime() : 0L;\n"
+                + "    String b = stringAdapter.fromResultSet(resultSet, \"b\");\n"
+                + "    if (batchEvent != null) {\n"
+                + "      batchEvent.addAdapterNanos(System.nanoTime() - bStartNanos);\n"
+                + "    }\n"
+                + "    AutoValue_Test value = new AutoValue_Test(a, b);\n"
+                + "    identities.put(a, value);\n"
+                + "    return value;\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet, IdentityMap<Test> identities) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    MappingBatchEvent batchEvent = MappingBatchEvent.start(Test.class, \"createListFromResultSet\");\n"
+                + "    while (MappingBatchEvent.fetch(resultSet, batchEvent)) {\n"
+                + "      Test value = createFromResultSet(resultSet, columns, identities, batchEvent);\n"
+                + "      values.add(value);\n"
+                + "    }\n"
+                + "    if (batchEvent != null) {\n"
+                + "      batchEvent.finish();\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "  static List<Test> query(Connection connection, String sql, Object... params) throws SQLException {\n"
+                + "    try (PreparedStatement statement = Queries.prepare(connection, sql, ESTIMATED_ROW_BYTES, params);\n"
+                + "        ResultSet resultSet = statement.executeQuery()) {\n"
+                + "      return createListFromResultSet(resultSet);\n"
+                + "    }\n"
+                + "  }\n"
+                + "  static void queryEach(Connection connection, String sql, RowConsumer<? super Test> consumer, Object... params) throws SQLException {\n"
+                + "    try (PreparedStatement statement = Queries.prepare(connection, sql, ESTIMATED_ROW_BYTES, params);\n"
+                + "        ResultSet resultSet = statement.executeQuery()) {\n"
+                + "      int[] columns = findColumns(resultSet);\n"
+                + "      MappingBatchEvent batchEvent = MappingBatchEvent.start(Test.class, \"queryEach\");\n"
+                + "      while (MappingBatchEvent.fetch(resultSet, batchEvent)) {\n"
+                + "        Test value = createFromResultSet(resultSet, columns, batchEvent);\n"
+                + "        consumer.accept(value);\n"
+                + "      }\n"
+                + "      if (batchEvent != null) {\n"
+                + "        batchEvent.finish();\n"
+                + "      }\n"
+                + "    }\n"
+                + "  }\n"
+                + "  static PrefetchingIterator<Test> prefetchFromResultSet(ResultSet resultSet, int depth, Executor executor) throws SQLException {\n"
+                + "    final int[] columns = findColumns(resultSet);\n"
+                + "    return new PrefetchingIterator<Test>(resultSet, depth, executor) {\n"
+                + "      private MappingBatchEvent batchEvent;\n"
+                + "      @Override\n"
+                + "      protected void producerStarted() {\n"
+                + "        batchEvent = MappingBatchEvent.start(Test.class, \"prefetchFromResultSet\");\n"
+                + "      }\n"
+                + "      @Override\n"
+                + "      protected boolean nextRow(ResultSet resultSet) throws SQLException {\n"
+                + "        return MappingBatchEvent.fetch(resultSet, batchEvent);\n"
+                + "      }\n"
+                + "      @Override\n"
+                + "      protected Test read(ResultSet resultSet) throws SQLException {\n"
+                + "        return createFromResultSet(resultSet, columns, batchEvent);\n"
+                + "      }\n"
+                + "      @Override\n"
+                + "      protected void producerStopped() {\n"
+                + "        if (batchEvent != null) {\n"
+                + "          batchEvent.finish();\n"
+                + "        }\n"
+                + "      }\n"
+                + "    }.start();\n"
+                + "  }\n"
+                + "  static void forEach(ResultSet resultSet, RowConsumer<? super Test_Row> consumer) throws SQLException {\n"
+                + "    Test_Row row = new Test_Row(resultSet, findColumns(resultSet));\n"
+                + "    MappingBatchEvent batchEvent = MappingBatchEvent.start(Test.class, \"forEach\");\n"
+                + "    while (MappingBatchEvent.fetch(resultSet, batchEvent)) {\n"
+                + "      consumer.accept(row);\n"
+                + "    }\n"
+                + "    if (batchEvent != null) {\n"
+                + "      batchEvent.finish();\n"
+                + "    }\n"
+                + "  }\n"
+                + "  static final class Test_Row {\n"
+                + "    private final ResultSet resultSet;\n"
+                + "    private final int[] columns;\n"
+                + "    private Test_Row(ResultSet resultSet, int[] columns) {\n"
+                + "      this.resultSet = resultSet;\n"
+                + "      this.columns = columns;\n"
+                + "    }\n"
+                + "    public long a() throws SQLException {\n"
+                + "      return resultSet.getLong(columns[0]);\n"
+                + "    }\n"
+                + "    public String b() throws SQLException {\n"
+                + "      StringAdapter stringAdapter = new StringAdapter();\n"
+                + "      String b = stringAdapter.fromResultSet(resultSet, \"b\");\n"
+                + "      return b;\n"
+                + "    }\n"
+                + "    Test materialize() throws SQLException {\n"
+                + "      return createFromResultSet(resultSet, columns);\n"
+                + "    }\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Arrays.asList(stringAdapterSource, source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void rxjava() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "@AutoValue public abstract class Test {\n"
+                + "  public static Test blah(ResultSet resultSet) { return null; }\n"
+                + "  public abstract int a();\n"
+                + "  public abstract String b();\n"
+                + "}\n");
+
+        JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
+                + "package test;\n"
+                + "import java.lang.Override;\n"
+                + "import java.lang.String;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "import rx.exceptions.Exceptions;\n"
+                + "import rx.functions.Func1;\n"
+                + "final class AutoValue_Test extends $AutoValue_Test {\n"
+                + "  static final Func1<ResultSet, Test> MAPPER = new Func1<ResultSet, Test>() {\n"
+                + "    @Override\n"
+                + "    public AutoValue_Test call(ResultSet rs) {\n"
+                + "      try {\n"
+                + "        return createFromResultSet(rs);\n"
+                + "      }\n"
+                + "      catch (SQLException e) {\n"
+                + "        throw Exceptions.propagate(e);\n"
+                + "      }\n"
+                + "    }\n"
+                + "  };\n"
+                + "  AutoValue_Test(int a, String b) {\n"
+                + "    super(a, b);\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int a = resultSet.getInt(resultSet.findColumn(\"a\"));\n"
+                + "    String b = resultSet.getString(resultSet.findColumn(\"b\"));\n"
+                + "    return new AutoValue_Test(a, b);\n"
+                + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[2];\n"
+                + "    columns[0] = resultSet.findColumn(\"a\");\n"
+                + "    columns[1] = resultSet.findColumn(\"b\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    int a = resultSet.getInt(columns[0]);\n"
+                + "    String b = resultSet.getString(columns[1]);\n"
+                + "    return new AutoValue_Test(a, b);\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
+                + "}\n");
+
+        assertAbout(javaSources())
+                .that(Arrays.asList(func1(), source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void rxjavaOptIn() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Test", ""
+                + "package test;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import rx.functions.Func1;\n"
+                + "@AutoValue public abstract class Test {\n"
+                + "  public static Func1<ResultSet, Test> blahMap() { return null; }\n"
+                + "  public abstract int a();\n"
+                + "  public abstract String b();\n"
+                + "}\n");
+
+        JavaFileObject expected = JavaFileObjects.forSourceString("test.AutoValue_Test", ""
+                + "package test;\n"
+                + "import java.lang.Override;\n"
+                + "import java.lang.String;\n"
+                + "import java.sql.ResultSet;\n"
+                + "import java.sql.SQLException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "import rx.exceptions.Exceptions;\n"
+                + "import rx.functions.Func1;\n"
+                + "final class AutoValue_Test extends $AutoValue_Test {\n"
+                + "  static final Func1<ResultSet, Test> MAPPER = new Func1<ResultSet, Test>() {\n"
+                + "    @Override\n"
+                + "    public AutoValue_Test call(ResultSet rs) {\n"
+                + "      try {\n"
+                + "        return createFromResultSet(rs);\n"
+                + "      }\n"
+                + "      catch (SQLException e) {\n"
+                + "        throw Exceptions.propagate(e);\n"
+                + "      }\n"
+                + "    }\n"
+                + "  };\n"
+                + "  AutoValue_Test(int a, String b) {\n"
+                + "    super(a, b);\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int a = resultSet.getInt(resultSet.findColumn(\"a\"));\n"
+                + "    String b = resultSet.getString(resultSet.findColumn(\"b\"));\n"
+                + "    return new AutoValue_Test(a, b);\n"
+                + "  }\n"
+                + "  static int[] findColumns(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = new int[2];\n"
+                + "    columns[0] = resultSet.findColumn(\"a\");\n"
+                + "    columns[1] = resultSet.findColumn(\"b\");\n"
+                + "    return columns;\n"
+                + "  }\n"
+                + "  static AutoValue_Test createFromResultSet(ResultSet resultSet, int[] columns) throws SQLException {\n"
+                + "    int a = resultSet.getInt(columns[0]);\n"
+                + "    String b = resultSet.getString(columns[1]);\n"
+                + "    return new AutoValue_Test(a, b);\n"
+                + "  }\n"
+                + "  static List<Test> createListFromResultSet(ResultSet resultSet) throws SQLException {\n"
+                + "    int[] columns = findColumns(resultSet);\n"
+                + "    List<Test> values = new ArrayList<>();\n"
+                + "    while (resultSet.next()) {\n"
+                + "      values.add(createFromResultSet(resultSet, columns));\n"
+                + "    }\n"
+                + "    return values;\n"
+                + "  }\n"
                 + "}\n");
 
         assertAbout(javaSources())